@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+
+/**
+ * Builds a SqlSessionFactory over a fresh in-memory HSQLDB database filled with authors, blogs and posts.
+ * Every setting of mybatis-config.xml can be overridden through the properties.
+ */
+public final class BenchmarkDatabase {
+
+  public static final int AUTHORS = 100;
+  public static final int BLOGS = 20;
+  public static final int POSTS_PER_BLOG = 10;
+
+  private static final AtomicInteger DATABASE_ID = new AtomicInteger();
+
+  private BenchmarkDatabase() {
+  }
+
+  public static Properties defaults() {
+    Properties properties = new Properties();
+    properties.setProperty("url", "jdbc:hsqldb:mem:benchmark" + DATABASE_ID.incrementAndGet());
+    properties.setProperty("compileDynamicSql", "false");
+    properties.setProperty("sqlShapeCacheSize", "0");
+    properties.setProperty("precompileRowMappers", "false");
+    properties.setProperty("poolSize", "10");
+    properties.setProperty("poolConcurrentEnabled", "false");
+    properties.setProperty("cacheType", "PERPETUAL");
+    properties.setProperty("cacheReadOnly", "true");
+    return properties;
+  }
+
+  public static SqlSessionFactory create(Properties properties) throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmarks/mybatis-config.xml");
+    SqlSessionFactory sqlSessionFactory;
+    try {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, properties);
+    } finally {
+      reader.close();
+    }
+    populate(sqlSessionFactory);
+    return sqlSessionFactory;
+  }
+
+  private static void populate(SqlSessionFactory sqlSessionFactory) throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      Connection conn = session.getConnection();
+      Reader reader = Resources.getResourceAsReader("org/apache/ibatis/benchmarks/CreateDB.sql");
+      try {
+        ScriptRunner runner = new ScriptRunner(conn);
+        runner.setLogWriter(null);
+        runner.runScript(reader);
+      } finally {
+        reader.close();
+      }
+      PreparedStatement ps = conn.prepareStatement("insert into author (id, username, email, bio) values (?, ?, ?, ?)");
+      for (int i = 1; i <= AUTHORS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "author" + i);
+        ps.setString(3, "author" + i + "@example.com");
+        ps.setString(4, "Bio of author " + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      ps = conn.prepareStatement("insert into blog (id, author_id, title) values (?, ?, ?)");
+      for (int i = 1; i <= BLOGS; i++) {
+        ps.setInt(1, i);
+        ps.setInt(2, i);
+        ps.setString(3, "Blog " + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      ps = conn.prepareStatement("insert into post (id, blog_id, subject, body) values (?, ?, ?, ?)");
+      for (int i = 1; i <= BLOGS * POSTS_PER_BLOG; i++) {
+        ps.setInt(1, i);
+        ps.setInt(2, (i - 1) / POSTS_PER_BLOG + 1);
+        ps.setString(3, "Post " + i);
+        ps.setString(4, "Body of post " + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+      conn.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+}
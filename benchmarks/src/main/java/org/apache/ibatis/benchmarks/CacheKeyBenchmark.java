@@ -0,0 +1,98 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CacheKey creation and equals with the same components BaseExecutor.createCacheKey uses, and the
+ * combined keys DefaultResultSetHandler builds for nested result maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+  private static final String STATEMENT = "org.apache.ibatis.benchmarks.BlogMapper.findAuthors";
+  private static final String SQL = "select id, username, email, bio from author WHERE id >= ? and id in ( ? , ? , ? , ? , ? )";
+
+  private CacheKey key;
+  private CacheKey other;
+  private CacheKey different;
+  private CacheKey rowKey;
+  private CacheKey parentRowKey;
+
+  @Setup
+  public void setUp() {
+    key = createKey();
+    other = createKey();
+    different = createKey();
+    different.update("different");
+    rowKey = new CacheKey(new Object[] { "BlogMapper.postResult", "post_id", 7 });
+    parentRowKey = new CacheKey(new Object[] { "BlogMapper.blogResult", "blog_id", 1 });
+  }
+
+  @Benchmark
+  public CacheKey create() {
+    return createKey();
+  }
+
+  @Benchmark
+  public boolean equalKeys() {
+    return key.equals(other);
+  }
+
+  @Benchmark
+  public boolean unequalKeys() {
+    return key.equals(different);
+  }
+
+  @Benchmark
+  public CacheKey combine() {
+    CacheKey combinedKey = new CacheKey(rowKey);
+    combinedKey.update(parentRowKey);
+    return combinedKey;
+  }
+
+  private CacheKey createKey() {
+    CacheKey cacheKey = new CacheKey();
+    cacheKey.update(STATEMENT);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(SQL);
+    for (int i = 0; i < 6; i++) {
+      cacheKey.update(i * 10);
+    }
+    cacheKey.update("benchmark");
+    return cacheKey;
+  }
+
+}
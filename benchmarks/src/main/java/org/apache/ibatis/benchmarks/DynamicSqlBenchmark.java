@@ -0,0 +1,78 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DynamicSqlSource.getBoundSql for a statement with if, where and foreach, with and without compiled tests
+ * and the SQL shape cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicSqlBenchmark {
+
+  @Param({ "false", "true" })
+  public String compileDynamicSql;
+
+  @Param({ "0", "256" })
+  public String sqlShapeCacheSize;
+
+  private MappedStatement mappedStatement;
+  private Map<String, Object> criteria;
+
+  @Setup
+  public void setUp() throws Exception {
+    Properties properties = BenchmarkDatabase.defaults();
+    properties.setProperty("compileDynamicSql", compileDynamicSql);
+    properties.setProperty("sqlShapeCacheSize", sqlShapeCacheSize);
+    SqlSessionFactory sqlSessionFactory = BenchmarkDatabase.create(properties);
+    mappedStatement = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.benchmarks.BlogMapper.findAuthors");
+    criteria = new HashMap<String, Object>();
+    criteria.put("username", null);
+    criteria.put("minId", 10);
+    criteria.put("ids", Arrays.asList(10, 20, 30, 40, 50));
+  }
+
+  @Benchmark
+  public BoundSql getBoundSql() {
+    return mappedStatement.getBoundSql(criteria);
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DefaultParameterHandler.setParameters on an already prepared statement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterHandlerBenchmark {
+
+  private SqlSession sqlSession;
+  private PreparedStatement statement;
+  private MappedStatement mappedStatement;
+  private BoundSql boundSql;
+  private Author author;
+
+  @Setup
+  public void setUp() throws Exception {
+    SqlSessionFactory sqlSessionFactory = BenchmarkDatabase.create(BenchmarkDatabase.defaults());
+    sqlSession = sqlSessionFactory.openSession();
+    Connection connection = sqlSession.getConnection();
+    mappedStatement = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.benchmarks.BlogMapper.selectAuthor");
+    author = new Author();
+    author.setId(1);
+    boundSql = mappedStatement.getBoundSql(author);
+    statement = connection.prepareStatement(boundSql.getSql());
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    statement.close();
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public PreparedStatement setParameters() throws SQLException {
+    new DefaultParameterHandler(mappedStatement, author, boundSql).setParameters(statement);
+    return statement;
+  }
+
+}
@@ -0,0 +1,35 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+create table author (
+  id int primary key,
+  username varchar(32),
+  email varchar(64),
+  bio varchar(255)
+);
+
+create table blog (
+  id int primary key,
+  author_id int,
+  title varchar(64)
+);
+
+create table post (
+  id int primary key,
+  blog_id int,
+  subject varchar(64),
+  body varchar(255)
+);
@@ -38,4 +38,16 @@ public @interface CacheNamespace {
   int size() default 1000;
 
   boolean readWrite() default true;
+
+  boolean blocking() default false;
+
+  /**
+   * Milliseconds an entry lives after it was put, 0 for no limit.
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Milliseconds an entry lives after it was last read, 0 for no limit.
+   */
+  long timeToIdle() default 0;
 }
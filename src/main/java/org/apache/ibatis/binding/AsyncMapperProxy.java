@@ -0,0 +1,87 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * Mapper proxy of an {@link org.apache.ibatis.session.AsyncSqlSession}.
+ * <p>
+ * Every call opens its own session, so it gets its own connection and transaction, and commits it when the
+ * method returns. Methods returning {@link java.util.concurrent.Future} are submitted to the executor service,
+ * all other methods run in the calling thread.
+ */
+public class AsyncMapperProxy<T> implements InvocationHandler {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final ExecutorService executorService;
+  private final Class<T> mapperInterface;
+  private final Map<Method, MapperMethod> methodCache;
+
+  public AsyncMapperProxy(SqlSessionFactory sqlSessionFactory, ExecutorService executorService, Class<T> mapperInterface, Map<Method, MapperMethod> methodCache) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executorService = executorService;
+    this.mapperInterface = mapperInterface;
+    this.methodCache = methodCache;
+  }
+
+  public Object invoke(Object proxy, Method method, final Object[] args) throws Throwable {
+    if (Object.class.equals(method.getDeclaringClass())) {
+      try {
+        return method.invoke(this, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    final MapperMethod mapperMethod = cachedMapperMethod(method);
+    Callable<Object> call = new Callable<Object>() {
+      public Object call() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+          Object result = mapperMethod.execute(sqlSession, args);
+          sqlSession.commit();
+          return result;
+        } finally {
+          sqlSession.close();
+          ErrorContext.instance().reset();
+        }
+      }
+    };
+    if (mapperMethod.returnsFuture()) {
+      return executorService.submit(call);
+    }
+    return call.call();
+  }
+
+  private MapperMethod cachedMapperMethod(Method method) {
+    MapperMethod mapperMethod = methodCache.get(method);
+    if (mapperMethod == null) {
+      mapperMethod = new MapperMethod(mapperInterface, method, sqlSessionFactory.getConfiguration());
+      methodCache.put(method, mapperMethod);
+    }
+    return mapperMethod;
+  }
+
+}
@@ -16,16 +16,22 @@
 package org.apache.ibatis.binding;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.columnar.ColumnarResult;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.reflection.MetaObject;
@@ -46,6 +52,14 @@ public class MapperMethod {
     this.command = new SqlCommand(config, mapperInterface, method);
     this.method = new MethodSignature(config, method);
   }
+
+  /**
+   * 方法是否返回Future，execute返回的是Future中的结果
+   * @return
+   */
+  public boolean returnsFuture() {
+    return method.returnsFuture();
+  }
   
   /**
    * 执行方法
@@ -72,6 +86,10 @@ public class MapperMethod {
         result = executeForMany(sqlSession, args);
       } else if (method.returnsMap()) {//是否是Map类型返回值
         result = executeForMap(sqlSession, args);
+      } else if (method.returnsCursor()) {//是否是游标返回值
+        result = executeForCursor(sqlSession, args);
+      } else if (method.returnsColumns()) {//是否按列读取的结果
+        result = executeForColumns(sqlSession, args);
       } else {//返回任意Object结果集
         Object param = method.convertArgsToSqlCommandParam(args);
         result = sqlSession.selectOne(command.getName(), param);
@@ -180,6 +198,35 @@ public class MapperMethod {
     return array;
   }
   
+  /**
+   * 处理游标类型返回值 结果集逐行读取
+   * @param sqlSession
+   * @param args
+   * @return
+   */
+  private <T> Cursor<T> executeForCursor(SqlSession sqlSession, Object[] args) {
+    Cursor<T> result;
+    Object param = method.convertArgsToSqlCommandParam(args);
+    if (method.hasRowBounds()) {
+      RowBounds rowBounds = method.extractRowBounds(args);
+      result = sqlSession.<T>selectCursor(command.getName(), param, rowBounds);
+    } else {
+      result = sqlSession.<T>selectCursor(command.getName(), param);
+    }
+    return result;
+  }
+
+  /**
+   * 处理按列读取的结果 不映射为对象
+   */
+  private ColumnarResult executeForColumns(SqlSession sqlSession, Object[] args) {
+    Object param = method.convertArgsToSqlCommandParam(args);
+    if (method.hasRowBounds()) {
+      return sqlSession.selectColumns(command.getName(), param, method.extractRowBounds(args));
+    }
+    return sqlSession.selectColumns(command.getName(), param);
+  }
+
   /**
    * 处理Map类型结果集
    * @param sqlSession
@@ -252,6 +299,9 @@ public class MapperMethod {
     private final boolean returnsMany;//是否是集合或者数组返回值
     private final boolean returnsMap;
     private final boolean returnsVoid;//是否是void返回值
+    private final boolean returnsCursor;//是否是游标返回值
+    private final boolean returnsColumns;//是否是按列读取的结果
+    private final boolean returnsFuture;//是否是Future返回值(异步执行)
     private final Class<?> returnType;//返回值类型
     private final String mapKey;//获取注解Mapkey的Value值
     private final Integer resultHandlerIndex;//resultHandler的参数下标
@@ -260,9 +310,16 @@ public class MapperMethod {
     private final boolean hasNamedParameters;
 
     public MethodSignature(Configuration configuration, Method method) throws BindingException {
-      this.returnType = method.getReturnType();
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsFuture = Future.class.equals(method.getReturnType());
+      //异步方法按Future的类型参数处理返回值
+      this.returnType = returnsFuture ? getFutureResultType(method) : method.getReturnType();
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = (configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray());
+      this.returnsCursor = Cursor.class.equals(this.returnType);
+      this.returnsColumns = ColumnarResult.class.equals(this.returnType);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException(method.getName() + " cannot return a Cursor asynchronously, it would be read after its session is closed");
+      }
       this.mapKey = getMapKey(method);
       this.returnsMap = (this.mapKey != null);
       this.hasNamedParameters = hasNamedParams(method);
@@ -333,6 +390,41 @@ public class MapperMethod {
     public boolean returnsVoid() {
       return returnsVoid;
     }
+
+    public boolean returnsCursor() {
+      return returnsCursor;
+    }
+
+    public boolean returnsColumns() {
+      return returnsColumns;
+    }
+
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
+    /**
+     * 获取Future的类型参数
+     * @param method
+     * @return
+     */
+    private Class<?> getFutureResultType(Method method) {
+      Type genericReturnType = method.getGenericReturnType();
+      if (genericReturnType instanceof ParameterizedType) {
+        Type resultType = ((ParameterizedType) genericReturnType).getActualTypeArguments()[0];
+        if (resultType instanceof Class) {
+          return (Class<?>) resultType;
+        } else if (resultType instanceof ParameterizedType) {
+          return (Class<?>) ((ParameterizedType) resultType).getRawType();
+        } else if (resultType instanceof GenericArrayType) {
+          Type componentType = ((GenericArrayType) resultType).getGenericComponentType();
+          if (componentType instanceof Class) {
+            return Array.newInstance((Class<?>) componentType, 0).getClass();
+          }
+        }
+      }
+      return Object.class;
+    }
     
     /**
      * 根据paramType类型获取此类型参数在方法中的位置
@@ -363,7 +455,7 @@ public class MapperMethod {
     private String getMapKey(Method method) {
       String mapKey = null;
       //判断返回值类型是否是Map类型或者是Map的子类
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -19,6 +19,8 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.session.SqlSession;
@@ -39,7 +41,7 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
     this.methodCache = methodCache;
   }
 
-  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+  public Object invoke(Object proxy, Method method, final Object[] args) throws Throwable {
     if (Object.class.equals(method.getDeclaringClass())) {//如果执行的是Object类中的方法  则执行调用即可
       try {
         return method.invoke(this, args);
@@ -49,6 +51,16 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
     }
     //否则  从换成中去取改代理类的真实方法
     final MapperMethod mapperMethod = cachedMapperMethod(method);
+    if (mapperMethod.returnsFuture()) {
+      //普通会话中返回Future的方法在当前线程执行，返回已完成的Future
+      FutureTask<Object> future = new FutureTask<Object>(new Callable<Object>() {
+        public Object call() throws Exception {
+          return mapperMethod.execute(sqlSession, args);
+        }
+      });
+      future.run();
+      return future;
+    }
     //然后执行这个方法
     return mapperMethod.execute(sqlSession, args);
   }
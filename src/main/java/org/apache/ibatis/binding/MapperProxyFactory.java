@@ -19,8 +19,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 
 /**
  * 生产动态代理MapperProxy类的工厂类
@@ -58,4 +60,13 @@ public class MapperProxyFactory<T> {
     return newInstance(mapperProxy);
   }
 
+  /**
+   * 创建异步会话使用的代理类，每次调用使用独立的会话
+   */
+  @SuppressWarnings("unchecked")
+  public T newInstance(SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+    final AsyncMapperProxy<T> mapperProxy = new AsyncMapperProxy<T>(sqlSessionFactory, executorService, mapperInterface, methodCache);
+    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface }, mapperProxy);
+  }
+
 }
@@ -20,11 +20,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 
 /**
  * Mapper注册中心类
@@ -61,6 +63,25 @@ public class MapperRegistry {
     }
   }
   
+  /**
+   * 获取异步会话使用的代理类
+   * @param type
+   * @param sqlSessionFactory 每次调用从中打开独立的会话
+   * @param executorService 执行返回Future的方法
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getAsyncMapper(Class<T> type, SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+    final MapperProxyFactory<T> mapperProxyFactory = (MapperProxyFactory<T>) knownMappers.get(type);
+    if (mapperProxyFactory == null)
+      throw new BindingException("Type " + type + " is not known to the MapperRegistry.");
+    try {
+      return mapperProxyFactory.newInstance(sqlSessionFactory, executorService);
+    } catch (Exception e) {
+      throw new BindingException("Error getting mapper instance. Cause: " + e, e);
+    }
+  }
+
   /**
    * 判断此mapper接口是否在此注册中心缓存中
    * @param type
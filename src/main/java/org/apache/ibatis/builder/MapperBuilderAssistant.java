@@ -26,7 +26,11 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -150,14 +154,69 @@ public class MapperBuilderAssistant extends BaseBuilder {
       Integer size,
       boolean readWrite,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, null, false, props);
+  }
+
+  /**
+   * 同上 额外指定读写缓存使用的序列化器(为空时用全局的cacheSerializer)以及是否用结构化克隆代替序列化
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      CacheSerializer serializer,
+      boolean copyOnRead,
+      Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, serializer, copyOnRead, false, props);
+  }
+
+  /**
+   * 同上 blocking为true时 并发未命中同一个key的查询只有一个访问数据库 其余等待其结果
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      CacheSerializer serializer,
+      boolean copyOnRead,
+      boolean blocking,
+      Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, serializer, copyOnRead, blocking, null, null, props);
+  }
+
+  /**
+   * 同上 timeToLive/timeToIdle为每个缓存项放入/最后读取后的存活毫秒数 由后台时间轮逐项过期
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      CacheSerializer serializer,
+      boolean copyOnRead,
+      boolean blocking,
+      Long timeToLive,
+      Long timeToIdle,
+      Properties props) {
     typeClass = valueOrDefault(typeClass, PerpetualCache.class);
-    evictionClass = valueOrDefault(evictionClass, LruCache.class);
+    // 堆外缓存按字节容量整片淘汰 未指定eviction时不再套一层默认的LRU
+    if (!OffHeapCache.class.equals(typeClass)) {
+      evictionClass = valueOrDefault(evictionClass, LruCache.class);
+    }
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(typeClass)
         .addDecorator(evictionClass)
         .clearInterval(flushInterval)
         .size(size)
         .readWrite(readWrite)
+        .serializer(valueOrDefault(serializer, configuration.getCacheSerializer()))
+        .copyOnRead(copyOnRead)
+        .blocking(blocking)
+        .timeToLive(timeToLive)
+        .timeToIdle(timeToIdle)
+        .tableVersions(configuration.isTableCacheInvalidation() ? configuration.getTableVersions() : null)
         .properties(props)
         .build();
     configuration.addCache(cache);
@@ -352,11 +411,109 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String databaseId,
       LanguageDriver lang,
       String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      Integer batchFlushSize,
+      Long batchFlushBytes) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, batchFlushSize, batchFlushBytes, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      Integer batchFlushSize,
+      Long batchFlushBytes,
+      String tables) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, batchFlushSize, batchFlushBytes, tables, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      Integer batchFlushSize,
+      Long batchFlushBytes,
+      String tables,
+      Long cacheTimeToLive) {
     //如果缓存参数没有解决 则抛出异常
     if (unresolvedCacheRef) throw new IncompleteElementException("Cache-ref not yet resolved");
     
     id = applyCurrentNamespace(id, false);
     boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
+    //语句的缓存存活时间只有逐项过期的缓存才会执行 否则直接报错而不是静默忽略
+    if (cacheTimeToLive != null && currentCache != null && !isExpiring(currentCache)) {
+      throw new BuilderException("Statement " + id + " declares cacheTimeToLive but the cache " + currentCache.getId()
+          + " does not expire entries. Declare it in the namespace of the cache or set timeToLive on the cache.");
+    }
 
     MappedStatement.Builder statementBuilder = new MappedStatement.Builder(configuration, id, sqlSource, sqlCommandType);
     statementBuilder.resource(resource);
@@ -369,6 +526,10 @@ public class MapperBuilderAssistant extends BaseBuilder {
     statementBuilder.lang(lang);
     statementBuilder.resultOrdered(resultOrdered);
     statementBuilder.resulSets(resultSets);
+    statementBuilder.batchFlushSize(batchFlushSize);
+    statementBuilder.batchFlushBytes(batchFlushBytes);
+    statementBuilder.tables(tables);
+    statementBuilder.cacheTimeToLive(cacheTimeToLive);
     setStatementTimeout(timeout, statementBuilder);
 
     setStatementParameterMap(parameterMap, parameterType, statementBuilder);
@@ -380,6 +541,14 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return statement;
   }
 
+  private boolean isExpiring(Cache cache) {
+    // the blocking decorator is the only one built outside of the expiring one
+    if (cache instanceof BlockingCache) {
+      cache = ((BlockingCache) cache).getDelegate();
+    }
+    return cache instanceof ExpiringCache;
+  }
+
   private <T> T valueOrDefault(T value, T defaultValue) {
     return value == null ? defaultValue : value;
   }
@@ -512,6 +681,28 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String resultSet,
       String foreignColumn, 
       boolean lazy) {
+    return buildResultMapping(
+      resultType, property, column, javaType, jdbcType, nestedSelect,
+      nestedResultMap, notNullColumn, columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, null, null);
+  }
+
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn, 
+      boolean lazy,
+      String batchSelect,
+      String batchKeyProperty) {
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
     TypeHandler<?> typeHandlerInstance = resolveTypeHandler(javaTypeClass, typeHandler);
     List<ResultMapping> composites = parseCompositeColumnName(column);
@@ -528,6 +719,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
     builder.columnPrefix(columnPrefix);
     builder.foreignColumn(foreignColumn);
     builder.lazy(lazy);
+    builder.batchQueryId(applyCurrentNamespace(batchSelect, true));
+    builder.batchKeyProperty(batchKeyProperty);
     return builder.build();
   }
   
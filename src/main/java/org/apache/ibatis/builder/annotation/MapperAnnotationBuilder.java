@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -192,7 +193,8 @@ public class MapperAnnotationBuilder {
     CacheNamespace cacheDomain = type.getAnnotation(CacheNamespace.class);
     if (cacheDomain != null) {
     	//生成Cache并添加到configuration中
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), cacheDomain.flushInterval(), cacheDomain.size(), cacheDomain.readWrite(), null);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), cacheDomain.flushInterval(), cacheDomain.size(), cacheDomain.readWrite(), null, false, cacheDomain.blocking(),
+          cacheDomain.timeToLive() > 0 ? cacheDomain.timeToLive() : null, cacheDomain.timeToIdle() > 0 ? cacheDomain.timeToIdle() : null, null);
     }
   }
   
@@ -432,13 +434,19 @@ public class MapperAnnotationBuilder {
    */
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
+    Type genericReturnType = method.getGenericReturnType();
+    if (Future.class.equals(returnType)) {
+      // 异步方法按Future的类型参数处理
+      genericReturnType = getFutureResultType(genericReturnType);
+      returnType = Void.class.equals(toClass(genericReturnType)) ? void.class : toClass(genericReturnType);
+    }
     if (void.class.equals(returnType)) { // issue #508
       ResultType rt = method.getAnnotation(ResultType.class);
       if (rt != null) {
         returnType = rt.value();
       } 
     } else if (Collection.class.isAssignableFrom(returnType)) {
-      Type returnTypeParameter = method.getGenericReturnType();
+      Type returnTypeParameter = genericReturnType;
       if (returnTypeParameter instanceof ParameterizedType) {
         Type[] actualTypeArguments = ((ParameterizedType) returnTypeParameter).getActualTypeArguments();
         if (actualTypeArguments != null && actualTypeArguments.length == 1) {
@@ -455,7 +463,7 @@ public class MapperAnnotationBuilder {
       }
     } else if (method.isAnnotationPresent(MapKey.class) && Map.class.isAssignableFrom(returnType)) {
       // (issue 504) Do not look into Maps if there is not MapKey annotation
-      Type returnTypeParameter = method.getGenericReturnType();
+      Type returnTypeParameter = genericReturnType;
       if (returnTypeParameter instanceof ParameterizedType) {
         Type[] actualTypeArguments = ((ParameterizedType) returnTypeParameter).getActualTypeArguments();
         if (actualTypeArguments != null && actualTypeArguments.length == 2) {
@@ -471,6 +479,27 @@ public class MapperAnnotationBuilder {
 
     return returnType;
   }
+
+  private static Type getFutureResultType(Type futureType) {
+    if (futureType instanceof ParameterizedType) {
+      Type[] actualTypeArguments = ((ParameterizedType) futureType).getActualTypeArguments();
+      if (actualTypeArguments.length == 1) {
+        return actualTypeArguments[0];
+      }
+    }
+    return Object.class;
+  }
+
+  private static Class<?> toClass(Type type) {
+    if (type instanceof Class) {
+      return (Class<?>) type;
+    } else if (type instanceof ParameterizedType) {
+      return (Class<?>) ((ParameterizedType) type).getRawType();
+    } else if (type instanceof GenericArrayType) {
+      return Array.newInstance(toClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+    }
+    return Object.class;
+  }
   
   /**
    * 根据参数 去构建SqlSource对象
@@ -23,6 +23,7 @@ import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -245,6 +246,8 @@ public class XMLConfigBuilder extends BaseBuilder {
       configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
       //指定 Mybatis 创建具有延迟加载能力的对象所用到的代理工具
       configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
+      //指定读写(readOnly=false)二级缓存复制对象所用的序列化器
+      configuration.setCacheSerializer((CacheSerializer) createInstance(props.getProperty("cacheSerializer")));
       //延迟加载的全局开关。当开启时，所有关联对象都会延迟加载。 特定关联关系中可通过设置fetchType属性来覆盖该项的开关状态
       configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
       //当开启时，任何方法的调用都会加载该对象的所有属性
@@ -273,6 +276,46 @@ public class XMLConfigBuilder extends BaseBuilder {
       configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
       //指定动态 SQL 生成的默认语言
       configuration.setDefaultScriptingLanguage(resolveClass(props.getProperty("defaultScriptingLanguage")));
+      //动态 SQL 中 if/when 的 test 表达式是否预编译为直接访问器，不支持的表达式仍交给 OGNL
+      configuration.setCompileDynamicSql(booleanValueOf(props.getProperty("compileDynamicSql"), false));
+      //每个动态语句最多缓存多少种解析后的sql形状，0表示不缓存
+      configuration.setSqlShapeCacheSize(integerValueOf(props.getProperty("sqlShapeCacheSize"), 0));
+      //简单结果映射是否按结果集形状预编译为固定的列/类型处理器/setter计划
+      configuration.setPrecompileRowMappers(booleanValueOf(props.getProperty("precompileRowMappers"), false));
+      //是否为getter/setter生成访问器类，这是JVM全局的开关，没有配置时不改动
+      //在解析映射文件之前设置，映射用到的类首次反射时即生效，之前已缓存的Reflector不受影响
+      if (props.getProperty("accessorGenerationEnabled") != null) {
+        configuration.setAccessorGenerationEnabled(booleanValueOf(props.getProperty("accessorGenerationEnabled"), false));
+      }
+      //批量执行器积累到多少行/估算多少字节的参数时自动flush，0表示不自动flush
+      configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+      configuration.setBatchFlushBytes(Long.valueOf(props.getProperty("batchFlushBytes", "0")));
+      //批量执行后(主键回填完)是否释放BatchResult持有的参数对象
+      configuration.setBatchReleaseParameters(booleanValueOf(props.getProperty("batchReleaseParameters"), false));
+      //批量执行结果是否按语句汇总为BatchSummaryResult，而不保留每批的结果
+      configuration.setBatchSummaryResults(booleanValueOf(props.getProperty("batchSummaryResults"), false));
+      //批量执行时交替出现的语句是否各自保持一个打开的批次(按表的首次出现顺序执行)
+      configuration.setGroupBatchStatements(booleanValueOf(props.getProperty("groupBatchStatements"), false));
+      //异步会话默认线程池的线程数
+      configuration.setAsyncExecutorPoolSize(integerValueOf(props.getProperty("asyncExecutorPoolSize"), 10));
+      //按批嵌套查询时每条语句最多携带的关联值个数
+      configuration.setNestedSelectBatchSize(integerValueOf(props.getProperty("nestedSelectBatchSize"), 100));
+      //二级缓存是否按语句读写的表失效，而不是写语句清空整个命名空间的缓存
+      configuration.setTableCacheInvalidation(booleanValueOf(props.getProperty("tableCacheInvalidation"), false));
+      //多节点共用数据库时保持各节点二级缓存一致的版本表，未指定时不检查
+      configuration.setCacheVersionTable(props.getProperty("cacheVersionTable"));
+      //同一缓存两次检查版本表之间至少间隔的毫秒数
+      configuration.setCacheVersionCheckInterval(Long.valueOf(props.getProperty("cacheVersionCheckInterval", "1000")));
+      //简单结果映射并行转换和组装行的线程数，0表示在读取结果集的线程上逐行映射
+      configuration.setRowMappingThreads(integerValueOf(props.getProperty("rowMappingThreads"), 0));
+      //并行映射时每个任务包含的行数
+      configuration.setRowMappingBatchSize(integerValueOf(props.getProperty("rowMappingBatchSize"), 256));
+      //并行映射的结果是否按行序交付
+      configuration.setOrderedRowMapping(booleanValueOf(props.getProperty("orderedRowMapping"), true));
+      //映射为Reader/InputStream的LOB超过多少字符/字节时写入临时文件，0表示直接从驱动流式读取
+      configuration.setLobSpillThreshold(integerValueOf(props.getProperty("lobSpillThreshold"), 0));
+      //LOB临时文件所在的目录
+      configuration.setLobSpillDirectory(props.getProperty("lobSpillDirectory"));
       //指定当结果集中值为 null 的时候是否调用映射对象的 setter（map 对象时为 put）方法，这对于有 Map.keySet() 依赖或 null 值初始化的时候是有用的。注意基本类型（int、boolean等）是不能设置成 null 的
       configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
       //指定 MyBatis 增加到日志名称的前缀
@@ -118,10 +118,18 @@ public class XMLStatementBuilder extends BaseBuilder {
     
     //根据select|insert|update|delete节点的属性信息，构建MappedStatement  
     //并添加到configuration的mappedStatements的Map中，Map<id-nameSpace,MappedStatement>
+    //批量执行时该语句自动flush的阈值
+    Integer batchFlushSize = context.getIntAttribute("batchFlushSize");
+    String batchFlushBytes = context.getStringAttribute("batchFlushBytes");
+    //语句读写的表 按表失效二级缓存时使用 未指定时从sql中推断
+    String tables = context.getStringAttribute("tables");
+    //结果在二级缓存中的存活毫秒数 覆盖缓存的timeToLive
+    Long cacheTimeToLive = context.getLongAttribute("cacheTimeToLive");
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets,
+        batchFlushSize, batchFlushBytes == null ? null : Long.valueOf(batchFlushBytes), tables, cacheTimeToLive);
   }
   
   /**
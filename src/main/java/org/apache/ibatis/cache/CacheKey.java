@@ -17,32 +17,39 @@ package org.apache.ibatis.cache;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
+ * A key made of the objects it was updated with, compared element by element.
+ * <p>
+ * The elements are packed in an array and hashed incrementally into 64 bits, so keys that differ are
+ * almost always rejected by {@link #equals(Object)} before any element is compared. A key created from
+ * another one shares that key's elements instead of copying them. This is safe because keys only ever
+ * grow: the prefix is bound to the elements it had when the key was created.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1390390618522404581L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final long DEFAULT_HASH = 0x2545F4914F6CDD1DL;
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final Object[] EMPTY = new Object[0];
 
-  private int multiplier;
-  private int hashcode;
-  private long checksum;
+  private long hash;
   private int count;
-  private List<Object> updateList;
+  // elements shared with the key this one was created from, only the first prefixCount are part of this key
+  private Object[] prefix;
+  private int prefixCount;
+  private Object[] elements;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
-    this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.hash = DEFAULT_HASH;
+    this.prefix = EMPTY;
+    this.elements = EMPTY;
   }
 
   public CacheKey(Object[] objects) {
@@ -50,8 +57,26 @@ public class CacheKey implements Cloneable, Serializable {
     updateAll(objects);
   }
 
+  /**
+   * Creates a key that starts with the current elements of another key, without copying them. Later updates
+   * to either key do not affect the other.
+   */
+  public CacheKey(CacheKey prefixKey) {
+    this.hash = prefixKey.hash;
+    this.count = prefixKey.count;
+    this.elements = EMPTY;
+    if (prefixKey.prefixCount == 0) {
+      this.prefix = prefixKey.elements;
+      this.prefixCount = prefixKey.count;
+    } else {
+      // only one level of sharing, a key that is already derived is flattened
+      this.prefix = prefixKey.toArray();
+      this.prefixCount = prefixKey.count;
+    }
+  }
+
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
@@ -68,14 +93,16 @@ public class CacheKey implements Cloneable, Serializable {
 
   private void doUpdate(Object object) {
     int baseHashCode = object == null ? 1 : object.hashCode();
+    hash = (Long.rotateLeft(hash, 27) ^ mix(baseHashCode)) * HASH_MULTIPLIER;
 
+    int index = count - prefixCount;
+    if (index == elements.length) {
+      Object[] grown = new Object[elements.length == 0 ? DEFAULT_CAPACITY : elements.length << 1];
+      System.arraycopy(elements, 0, grown, 0, index);
+      elements = grown;
+    }
+    elements[index] = object;
     count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
   }
 
   public void updateAll(Object[] objects) {
@@ -84,6 +111,29 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  private Object get(int i) {
+    return i < prefixCount ? prefix[i] : elements[i - prefixCount];
+  }
+
+  private Object[] toArray() {
+    Object[] all = new Object[Math.max(count, DEFAULT_CAPACITY)];
+    System.arraycopy(prefix, 0, all, 0, prefixCount);
+    System.arraycopy(elements, 0, all, prefixCount, count - prefixCount);
+    return all;
+  }
+
+  /**
+   * The finalization step of MurmurHash3, spreads the 32 bit hash code of an element over 64 bits.
+   */
+  private static long mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return k;
+  }
+
   public boolean equals(Object object) {
     if (this == object)
       return true;
@@ -92,16 +142,14 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode)
-      return false;
-    if (checksum != cacheKey.checksum)
+    if (hash != cacheKey.hash)
       return false;
     if (count != cacheKey.count)
       return false;
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
+    for (int i = 0; i < count; i++) {
+      Object thisObject = get(i);
+      Object thatObject = cacheKey.get(i);
       if (thisObject == null) {
         if (thatObject != null)
           return false;
@@ -114,13 +162,13 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (int i = 0; i < updateList.size(); i++) {
-      returnValue.append(':').append(updateList.get(i));
+    StringBuilder returnValue = new StringBuilder().append(hashCode()).append(':').append(count);
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(get(i));
     }
 
     return returnValue.toString();
@@ -129,7 +177,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    // the shared prefix is never written to, only the own elements need a copy
+    clonedCacheKey.elements = elements.length == 0 ? EMPTY : elements.clone();
     return clonedCacheKey;
   }
 
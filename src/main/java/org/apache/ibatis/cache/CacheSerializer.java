@@ -0,0 +1,33 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * SPI for the codec used by read-write caches to copy cached objects.
+ * <p>
+ * It can be set globally with the <code>cacheSerializer</code> setting or per namespace with the
+ * <code>serializer</code> attribute of the <code>&lt;cache&gt;</code> element. Implementations must be
+ * thread safe and have a public no-arg constructor.
+ *
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ */
+public interface CacheSerializer {
+
+  byte[] serialize(Object object);
+
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Keeps the second level caches of several nodes coherent through a version table on the shared database.
+ * <p>
+ * The table has a row per cache id, {@code (cache_id varchar primary key, version bigint not null)}. A transaction
+ * that writes to a namespace increments its row before it commits, on the same connection, so the new version
+ * becomes visible exactly when the data does. Readers compare the row with the version they last saw, at most once
+ * per check interval and cache, and clear their local cache when it changed. Reads are therefore at most one interval
+ * behind the writes of other nodes.
+ * <p>
+ * Every local clear increments the cache's epoch. A transaction remembers the epoch it first saw for a cache and
+ * does not publish its results if it changed, as they may have been read before the other node's write.
+ */
+public class CacheVersions {
+
+  private final String table;
+  private final long checkIntervalNanos;
+  private final ConcurrentMap<String, LocalVersion> localVersions = new ConcurrentHashMap<String, LocalVersion>();
+
+  /**
+   * @param table the version table
+   * @param checkInterval milliseconds between two checks of the same cache, 0 checks before every query
+   */
+  public CacheVersions(String table, long checkInterval) {
+    this.table = table;
+    this.checkIntervalNanos = checkInterval * 1000000L;
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * Clears the cache when another node changed its version since the last check. The connection of the
+   * transaction is only fetched when a check is due.
+   *
+   * @return the cache's epoch once validated
+   */
+  public long validate(Transaction transaction, Cache cache) throws SQLException {
+    final LocalVersion local = localVersion(cache.getId());
+    final long now = System.nanoTime();
+    if (!local.stale && now - local.lastCheck < checkIntervalNanos) {
+      return local.epoch;
+    }
+    final long version = selectVersion(transaction.getConnection(), cache.getId());
+    synchronized (local) {
+      if (local.checked && local.version != version) {
+        local.epoch++;
+        cache.clear();
+      }
+      local.version = version;
+      local.lastCheck = now;
+      local.checked = true;
+      local.stale = false;
+      return local.epoch;
+    }
+  }
+
+  public long epoch(String cacheId) {
+    return localVersion(cacheId).epoch;
+  }
+
+  /**
+   * Increments the version of a cache in the current transaction of the connection.
+   *
+   * @return the new version
+   */
+  public long increment(Connection connection, String cacheId) throws SQLException {
+    if (executeUpdate(connection, "update " + table + " set version = version + 1 where cache_id = ?", cacheId) == 0) {
+      // the first write to the cache, rows can be inserted beforehand to avoid racing for the insert
+      executeUpdate(connection, "insert into " + table + " (cache_id, version) values (?, 1)", cacheId);
+      return 1;
+    }
+    return selectVersion(connection, cacheId);
+  }
+
+  /**
+   * Called after the transaction that incremented the version committed. Its own write is already reflected by the
+   * local cache, so the next check only has to clear it if another node wrote in the meantime.
+   */
+  public void committed(String cacheId, long version) {
+    final LocalVersion local = localVersion(cacheId);
+    synchronized (local) {
+      if (local.checked && local.version == version - 1) {
+        local.version = version;
+      } else {
+        local.stale = true;
+      }
+    }
+  }
+
+  private long selectVersion(Connection connection, String cacheId) throws SQLException {
+    final PreparedStatement ps = connection.prepareStatement("select version from " + table + " where cache_id = ?");
+    try {
+      ps.setString(1, cacheId);
+      final ResultSet rs = ps.executeQuery();
+      try {
+        return rs.next() ? rs.getLong(1) : 0;
+      } finally {
+        rs.close();
+      }
+    } finally {
+      ps.close();
+    }
+  }
+
+  private int executeUpdate(Connection connection, String sql, String cacheId) throws SQLException {
+    final PreparedStatement ps = connection.prepareStatement(sql);
+    try {
+      ps.setString(1, cacheId);
+      return ps.executeUpdate();
+    } finally {
+      ps.close();
+    }
+  }
+
+  private LocalVersion localVersion(String cacheId) {
+    LocalVersion local = localVersions.get(cacheId);
+    if (local == null) {
+      final LocalVersion created = new LocalVersion();
+      local = localVersions.putIfAbsent(cacheId, created);
+      if (local == null) {
+        local = created;
+      }
+    }
+    return local;
+  }
+
+  private static class LocalVersion {
+    // whether the version is known, the first check only records it
+    private boolean checked;
+    private volatile boolean stale = true;
+    private volatile long lastCheck;
+    private long version;
+    private volatile long epoch;
+  }
+
+}
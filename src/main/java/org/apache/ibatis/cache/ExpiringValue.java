@@ -0,0 +1,45 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+
+/**
+ * A value to cache with its own time to live, used by statements that override the one of their cache.
+ *
+ * @see org.apache.ibatis.cache.decorators.ExpiringCache
+ */
+public final class ExpiringValue implements Serializable {
+
+  private static final long serialVersionUID = -2719832587019834215L;
+
+  private final Object value;
+  private final long timeToLive;
+
+  public ExpiringValue(Object value, long timeToLive) {
+    this.value = value;
+    this.timeToLive = timeToLive;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+}
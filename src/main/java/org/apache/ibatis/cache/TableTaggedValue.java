@@ -0,0 +1,51 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+
+/**
+ * A cached query result together with the tables it was read from and their versions when it was queried.
+ *
+ * @see TableVersions
+ */
+public final class TableTaggedValue implements Serializable {
+
+  private static final long serialVersionUID = 7325472089384235478L;
+
+  private final Object value;
+  private final String[] tables;
+  private final long[] versions;
+
+  public TableTaggedValue(Object value, String[] tables, long[] versions) {
+    this.value = value;
+    this.tables = tables;
+    this.versions = versions;
+  }
+
+  public Object getValue() {
+    return value;
+  }
+
+  public String[] getTables() {
+    return tables;
+  }
+
+  public boolean isCurrent(TableVersions tableVersions) {
+    return tableVersions.isCurrent(tables, versions);
+  }
+
+}
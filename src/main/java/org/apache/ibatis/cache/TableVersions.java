@@ -0,0 +1,75 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version counter per table, used to invalidate cached results by the tables they were read from.
+ * <p>
+ * A cached result keeps the versions of its tables at the time it was queried, and committing a write
+ * increments the versions of the written tables, so every result that depends on them becomes stale in
+ * all namespaces at once. Results whose tables are unknown depend on {@link #ANY_TABLE}, which every
+ * write increments.
+ *
+ * @see TableTaggedValue
+ */
+public class TableVersions {
+
+  public static final String ANY_TABLE = "*";
+
+  private final ConcurrentMap<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+
+  public long[] snapshot(String[] tables) {
+    final long[] snapshot = new long[tables.length];
+    for (int i = 0; i < tables.length; i++) {
+      snapshot[i] = version(tables[i]);
+    }
+    return snapshot;
+  }
+
+  public boolean isCurrent(String[] tables, long[] snapshot) {
+    for (int i = 0; i < tables.length; i++) {
+      if (version(tables[i]) != snapshot[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void increment(Collection<String> tables) {
+    for (String table : tables) {
+      AtomicLong version = versions.get(table);
+      if (version == null) {
+        final AtomicLong created = new AtomicLong();
+        version = versions.putIfAbsent(table, created);
+        if (version == null) {
+          version = created;
+        }
+      }
+      version.incrementAndGet();
+    }
+  }
+
+  public long version(String table) {
+    final AtomicLong version = versions.get(table);
+    return version == null ? 0 : version.get();
+  }
+
+}
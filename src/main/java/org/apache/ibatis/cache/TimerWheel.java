@@ -0,0 +1,270 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A hierarchical timer wheel that expires cache entries in the background.
+ * <p>
+ * Timeouts are kept in {@value #LEVELS} levels of {@value #SLOTS} slots, a level's slot spanning all the slots of the
+ * level below. Scheduling and cancelling are constant time, and each tick only visits the timeouts due in it plus
+ * those cascading down from a higher level, so many entries with spread out deadlines are cheap to keep. Timeouts
+ * further away than the wheel covers wait in the highest level and are placed again when they cascade. A cancelled
+ * timeout is unlinked from its slot on the next tick, so it does not stay referenced until its deadline.
+ * <p>
+ * Timeouts may be scheduled from any thread, the wheel itself is only advanced by a single thread.
+ */
+public class TimerWheel {
+
+  private static final Log log = LogFactory.getLog(TimerWheel.class);
+
+  static final int LEVELS = 4;
+  static final int SLOTS = 64;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOT_MASK = SLOTS - 1;
+
+  private static TimerWheel shared;
+
+  private final long tickMillis;
+  private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];
+  private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<Timeout>();
+  private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<Timeout>();
+  private long currentTick = -1;
+  private int placed;
+  private Thread thread;
+
+  /**
+   * @param tickMillis the resolution, timeouts fire at most one tick late
+   */
+  public TimerWheel(long tickMillis) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("The tick must be positive but was " + tickMillis);
+    }
+    this.tickMillis = tickMillis;
+  }
+
+  /**
+   * @return the wheel shared by all caches, its daemon thread ticks every 100 milliseconds
+   */
+  public static synchronized TimerWheel getShared() {
+    if (shared == null) {
+      shared = new TimerWheel(100);
+      shared.start();
+    }
+    return shared;
+  }
+
+  public long currentTime() {
+    return System.currentTimeMillis();
+  }
+
+  public void schedule(Timeout timeout) {
+    timeout.wheel = this;
+    scheduled.add(timeout);
+  }
+
+  public synchronized void start() {
+    if (thread == null) {
+      thread = new Thread(new Runnable() {
+        public void run() {
+          try {
+            while (!Thread.currentThread().isInterrupted()) {
+              Thread.sleep(tickMillis);
+              advance(currentTime());
+            }
+          } catch (InterruptedException e) {
+            // stopped
+          }
+        }
+      }, "mybatis-cache-expiry");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  public synchronized void stop() {
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  /**
+   * Fires the timeouts due until the given time, called by the wheel's thread or directly when it is not started.
+   */
+  public void advance(long now) {
+    final long targetTick = now / tickMillis;
+    if (currentTick < 0) {
+      currentTick = targetTick;
+    }
+    Timeout timeout;
+    while ((timeout = scheduled.poll()) != null) {
+      place(timeout);
+    }
+    while ((timeout = cancelled.poll()) != null) {
+      unlink(timeout);
+    }
+    while (currentTick < targetTick) {
+      currentTick++;
+      for (int level = 1; level < LEVELS; level++) {
+        if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+          break;
+        }
+        final int slot = (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        Timeout cascaded = detach(level, slot);
+        while (cascaded != null) {
+          final Timeout next = cascaded.next;
+          cascaded.next = null;
+          place(cascaded);
+          cascaded = next;
+        }
+      }
+      final int slot = (int) currentTick & SLOT_MASK;
+      Timeout due = detach(0, slot);
+      while (due != null) {
+        final Timeout next = due.next;
+        due.next = null;
+        if (deadlineTick(due) > currentTick) {
+          // the deadline moved since it was placed
+          place(due);
+        } else {
+          fire(due);
+        }
+        due = next;
+      }
+    }
+  }
+
+  /**
+   * @return the number of timeouts placed in the wheel
+   */
+  int size() {
+    return placed;
+  }
+
+  private void place(Timeout timeout) {
+    if (timeout.cancelled) {
+      return;
+    }
+    final long deadlineTick = deadlineTick(timeout);
+    if (deadlineTick <= currentTick) {
+      fire(timeout);
+      return;
+    }
+    for (int level = 0; level < LEVELS; level++) {
+      final int shift = SLOT_BITS * level;
+      final long distance = (deadlineTick >>> shift) - (currentTick >>> shift);
+      if (distance < SLOTS || level == LEVELS - 1) {
+        final long placedTick = distance < SLOTS ? deadlineTick : ((currentTick >>> shift) + SLOT_MASK) << shift;
+        final int slot = (int) (placedTick >>> shift) & SLOT_MASK;
+        final Timeout head = wheel[level][slot];
+        timeout.next = head;
+        if (head != null) {
+          head.prev = timeout;
+        }
+        wheel[level][slot] = timeout;
+        timeout.level = level;
+        timeout.slot = slot;
+        placed++;
+        return;
+      }
+    }
+  }
+
+  // takes the whole list of a slot, its timeouts are placed again or fired
+  private Timeout detach(int level, int slot) {
+    final Timeout head = wheel[level][slot];
+    wheel[level][slot] = null;
+    for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+      timeout.prev = null;
+      timeout.level = -1;
+      placed--;
+    }
+    return head;
+  }
+
+  private void unlink(Timeout timeout) {
+    if (timeout.level < 0) {
+      // not placed yet, already fired or placed again later
+      return;
+    }
+    if (timeout.prev != null) {
+      timeout.prev.next = timeout.next;
+    } else {
+      wheel[timeout.level][timeout.slot] = timeout.next;
+    }
+    if (timeout.next != null) {
+      timeout.next.prev = timeout.prev;
+    }
+    timeout.prev = null;
+    timeout.next = null;
+    timeout.level = -1;
+    placed--;
+  }
+
+  private long deadlineTick(Timeout timeout) {
+    // rounded up, a timeout never fires early
+    return (timeout.getDeadline() + tickMillis - 1) / tickMillis;
+  }
+
+  private void fire(Timeout timeout) {
+    if (!timeout.cancelled) {
+      try {
+        timeout.expire();
+      } catch (RuntimeException e) {
+        log.warn("Expiring a cache entry failed.  Cause: " + e);
+      }
+    }
+  }
+
+  /**
+   * A deadline in milliseconds. It may be moved later after scheduling, the wheel checks it again when it is due.
+   */
+  public abstract static class Timeout {
+
+    private volatile boolean cancelled;
+    private volatile TimerWheel wheel;
+    // the slot list, only touched by the thread advancing the wheel
+    private Timeout prev;
+    private Timeout next;
+    private int level = -1;
+    private int slot;
+
+    public abstract long getDeadline();
+
+    protected abstract void expire();
+
+    public void cancel() {
+      if (!cancelled) {
+        cancelled = true;
+        final TimerWheel scheduledOn = wheel;
+        if (scheduledOn != null) {
+          // unlinked by the thread advancing the wheel
+          scheduledOn.cancelled.add(this);
+        }
+      }
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+}
@@ -39,6 +39,10 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  public void discardPuts(Cache cache) {
+    getTransactionalCache(cache).discardPuts();
+  }
+
   public void commit() {
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
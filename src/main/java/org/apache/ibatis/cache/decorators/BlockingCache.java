@@ -0,0 +1,199 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.TableTaggedValue;
+import org.apache.ibatis.cache.TableVersions;
+
+/**
+ * Single-flight decorator: when a lookup misses, the caller owns the key until it puts the value, removes the key
+ * or calls {@link #releaseLock(Object, Object)}. Other callers asking for the same key wait for it instead of all
+ * querying the database.
+ * <p>
+ * The owner is the {@link TransactionalCache} of the session for the methods taking an owner, and the calling thread
+ * for the plain {@link Cache} methods. An owner may look up a key it already owns again without blocking, and a put
+ * or remove only gives up a key the owner holds. With a positive timeout (in milliseconds) a caller that waits
+ * longer gets a {@link CacheException}, the default waits as long as it takes. {@link TransactionalCache} releases
+ * the keys its session missed on commit and rollback, on whatever thread that happens.
+ * <p>
+ * With table versions set, a {@link TableTaggedValue} whose tables changed counts as a miss too, so a stale
+ * result is reloaded once as well.
+ */
+public class BlockingCache implements Cache {
+
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, KeyLock> locks = new ConcurrentHashMap<Object, KeyLock>();
+  private long timeout;
+  private TableVersions tableVersions;
+
+  public BlockingCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    putObject(Thread.currentThread(), key, object);
+  }
+
+  /**
+   * Puts the value and gives up the key if the owner holds it.
+   */
+  public void putObject(Object owner, Object key, Object object) {
+    try {
+      delegate.putObject(key, object);
+    } finally {
+      releaseLock(owner, key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return getObject(Thread.currentThread(), key);
+  }
+
+  /**
+   * On a miss the owner keeps the key, waiting first while another owner holds it.
+   */
+  public Object getObject(Object owner, Object key) {
+    acquireLock(owner, key);
+    Object value = delegate.getObject(key);
+    if (value instanceof TableTaggedValue && tableVersions != null && !((TableTaggedValue) value).isCurrent(tableVersions)) {
+      value = null;
+    }
+    if (value != null) {
+      releaseLock(owner, key);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return removeObject(Thread.currentThread(), key);
+  }
+
+  /**
+   * Removes the value and gives up the key if the owner holds it.
+   */
+  public Object removeObject(Object owner, Object key) {
+    try {
+      return delegate.removeObject(key);
+    } finally {
+      releaseLock(owner, key);
+    }
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public Cache getDelegate() {
+    return delegate;
+  }
+
+  public long getTimeout() {
+    return timeout;
+  }
+
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public void setTableVersions(TableVersions tableVersions) {
+    this.tableVersions = tableVersions;
+  }
+
+  private void acquireLock(Object owner, Object key) {
+    final KeyLock lock = new KeyLock(owner);
+    while (true) {
+      final KeyLock current = locks.putIfAbsent(key, lock);
+      if (current == null || current.owner == owner) {
+        return;
+      }
+      try {
+        if (timeout > 0) {
+          if (!current.latch.await(timeout, TimeUnit.MILLISECONDS)) {
+            throw new CacheException("Couldn't get a lock in " + timeout + " ms for the key " + key + " at the cache " + delegate.getId());
+          }
+        } else {
+          current.latch.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CacheException("Interrupted while waiting for the key " + key + " at the cache " + delegate.getId(), e);
+      }
+    }
+  }
+
+  /**
+   * Gives up the key if the calling thread owns it, the cached value is left alone.
+   */
+  public void releaseLock(Object key) {
+    releaseLock(Thread.currentThread(), key);
+  }
+
+  /**
+   * Gives up the key if the owner holds it, the cached value is left alone.
+   */
+  public void releaseLock(Object owner, Object key) {
+    final KeyLock lock = locks.get(key);
+    if (lock != null && lock.owner == owner && locks.remove(key, lock)) {
+      lock.latch.countDown();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private static class KeyLock {
+    private final Object owner;
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    KeyLock(Object owner) {
+      this.owner = owner;
+    }
+  }
+
+}
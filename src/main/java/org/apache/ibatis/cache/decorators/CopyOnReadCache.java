@@ -0,0 +1,96 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.cache.serializer.StructuralCloner;
+
+/**
+ * Read-write cache decorator that keeps private object copies instead of bytes.
+ * A copy is stored on put and another copy is returned on every hit, so callers never share instances.
+ *
+ * @see StructuralCloner
+ */
+public class CopyOnReadCache implements Cache {
+
+  private final Cache delegate;
+  private final StructuralCloner cloner;
+
+  public CopyOnReadCache(Cache delegate) {
+    this(delegate, new JavaCacheSerializer());
+  }
+
+  public CopyOnReadCache(Cache delegate, CacheSerializer fallback) {
+    this.delegate = delegate;
+    this.cloner = new StructuralCloner(fallback);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object object) {
+    if (object == null || object instanceof Serializable) {
+      delegate.putObject(key, cloner.copy(object));
+    } else {
+      throw new CacheException("CopyOnReadCache failed to make a copy of a non-serializable object: " + object);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return cloner.copy(delegate.getObject(key));
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+}
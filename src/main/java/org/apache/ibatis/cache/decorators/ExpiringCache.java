@@ -0,0 +1,185 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.ExpiringValue;
+import org.apache.ibatis.cache.TimerWheel;
+
+/**
+ * Expires each entry on its own, a time to live after it was put and a time to idle after it was last read.
+ * <p>
+ * The entries are removed by a {@link TimerWheel}, so the expirations of a cache spread over time instead of
+ * clearing it at once as {@link ScheduledCache} does, and the memory of idle caches is reclaimed as well. A read
+ * of an entry past its deadline that the wheel did not remove yet is a miss.
+ * <p>
+ * The removals come from the wheel's thread, so this decorator has to be outside of the synchronized ones.
+ */
+public class ExpiringCache implements Cache {
+
+  private final Cache delegate;
+  private final ConcurrentMap<Object, Expiry> expiries = new ConcurrentHashMap<Object, Expiry>();
+  private long timeToLive;
+  private long timeToIdle;
+  private TimerWheel timerWheel;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @param timeToLive milliseconds, 0 for none
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * @param timeToIdle milliseconds, 0 for none
+   */
+  public void setTimeToIdle(long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+  }
+
+  public void setTimerWheel(TimerWheel timerWheel) {
+    this.timerWheel = timerWheel;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long entryTimeToLive = timeToLive;
+    if (value instanceof ExpiringValue) {
+      entryTimeToLive = ((ExpiringValue) value).getTimeToLive();
+      value = ((ExpiringValue) value).getValue();
+    }
+    final Expiry previous;
+    if (entryTimeToLive > 0 || timeToIdle > 0) {
+      final Expiry expiry = new Expiry(key, getTimerWheel().currentTime(), entryTimeToLive, timeToIdle);
+      previous = expiries.put(key, expiry);
+      getTimerWheel().schedule(expiry);
+    } else {
+      previous = expiries.remove(key);
+    }
+    if (previous != null) {
+      previous.cancel();
+    }
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    final Object value = delegate.getObject(key);
+    if (value != null) {
+      final Expiry expiry = expiries.get(key);
+      if (expiry != null) {
+        final long now = getTimerWheel().currentTime();
+        if (expiry.getDeadline() <= now) {
+          return null;
+        }
+        expiry.touch(now);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    final Expiry expiry = expiries.remove(key);
+    if (expiry != null) {
+      expiry.cancel();
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    for (Expiry expiry : expiries.values()) {
+      expiry.cancel();
+    }
+    expiries.clear();
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private TimerWheel getTimerWheel() {
+    if (timerWheel == null) {
+      timerWheel = TimerWheel.getShared();
+    }
+    return timerWheel;
+  }
+
+  private class Expiry extends TimerWheel.Timeout {
+
+    private final Object key;
+    private final long liveDeadline;
+    private final long timeToIdle;
+    private volatile long lastAccess;
+
+    Expiry(Object key, long now, long timeToLive, long timeToIdle) {
+      this.key = key;
+      this.liveDeadline = timeToLive > 0 ? now + timeToLive : Long.MAX_VALUE;
+      this.timeToIdle = timeToIdle;
+      this.lastAccess = now;
+    }
+
+    void touch(long now) {
+      if (timeToIdle > 0) {
+        lastAccess = now;
+      }
+    }
+
+    @Override
+    public long getDeadline() {
+      return timeToIdle > 0 ? Math.min(liveDeadline, lastAccess + timeToIdle) : liveDeadline;
+    }
+
+    @Override
+    protected void expire() {
+      if (expiries.remove(key, this)) {
+        delegate.removeObject(key);
+      }
+    }
+  }
+
+}
@@ -16,7 +16,9 @@
 package org.apache.ibatis.cache.decorators;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -30,12 +32,17 @@ public class TransactionalCache implements Cache {
   private boolean clearOnCommit;
   private Map<Object, AddEntry> entriesToAddOnCommit;
   private Map<Object, RemoveEntry> entriesToRemoveOnCommit;
+  // keys this session missed on a blocking cache, they stay locked by this object until they are put or released
+  private final BlockingCache blocking;
+  private Set<Object> entriesMissedInSession;
 
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<Object, AddEntry>();
     this.entriesToRemoveOnCommit = new HashMap<Object, RemoveEntry>();
+    this.blocking = delegate instanceof BlockingCache ? (BlockingCache) delegate : null;
+    this.entriesMissedInSession = new HashSet<Object>();
   }
 
   @Override
@@ -51,7 +58,14 @@ public class TransactionalCache implements Cache {
   @Override
   public Object getObject(Object key) {
     if (clearOnCommit) return null; // issue #146
-    return delegate.getObject(key);
+    if (blocking == null) {
+      return delegate.getObject(key);
+    }
+    Object object = blocking.getObject(this, key);
+    if (object == null) {
+      entriesMissedInSession.add(key);
+    }
+    return object;
   }
 
   @Override
@@ -62,14 +76,21 @@ public class TransactionalCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     entriesToRemoveOnCommit.remove(key);
-    entriesToAddOnCommit.put(key, new AddEntry(delegate, key, object));
+    entriesToAddOnCommit.put(key, new AddEntry(key, object));
   }
 
   @Override
   public Object removeObject(Object key) {
     entriesToAddOnCommit.remove(key);
-    entriesToRemoveOnCommit.put(key, new RemoveEntry(delegate, key));
-    return delegate.getObject(key);
+    entriesToRemoveOnCommit.put(key, new RemoveEntry(key));
+    if (blocking == null) {
+      return delegate.getObject(key);
+    }
+    Object object = blocking.getObject(this, key);
+    if (object == null) {
+      entriesMissedInSession.add(key);
+    }
+    return object;
   }
 
   @Override
@@ -78,24 +99,45 @@ public class TransactionalCache implements Cache {
     clearOnCommit = true;
   }
 
+  /**
+   * Drops the results this transaction would put, its removals and clear are still committed.
+   */
+  public void discardPuts() {
+    entriesToAddOnCommit.clear();
+  }
+
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
     } else {
       for (RemoveEntry entry : entriesToRemoveOnCommit.values()) {
-        entry.commit();
+        entry.commit(this);
       }
     }
     for (AddEntry entry : entriesToAddOnCommit.values()) {
-      entry.commit();
+      entry.commit(this);
     }
+    unlockMissedEntries();
     reset();
   }
 
   public void rollback() {
+    entriesToAddOnCommit.clear();
+    unlockMissedEntries();
     reset();
   }
 
+  private void unlockMissedEntries() {
+    if (blocking != null) {
+      for (Object key : entriesMissedInSession) {
+        if (!entriesToAddOnCommit.containsKey(key)) {
+          blocking.releaseLock(this, key);
+        }
+      }
+    }
+    entriesMissedInSession.clear();
+  }
+
   private void reset() {
     clearOnCommit = false;
     entriesToRemoveOnCommit.clear();
@@ -103,32 +145,36 @@ public class TransactionalCache implements Cache {
   }
 
   private static class AddEntry {
-    private Cache cache;
     private Object key;
     private Object value;
 
-    public AddEntry(Cache cache, Object key, Object value) {
-      this.cache = cache;
+    public AddEntry(Object key, Object value) {
       this.key = key;
       this.value = value;
     }
 
-    public void commit() {
-      cache.putObject(key, value);
+    public void commit(TransactionalCache owner) {
+      if (owner.blocking != null) {
+        owner.blocking.putObject(owner, key, value);
+      } else {
+        owner.delegate.putObject(key, value);
+      }
     }
   }
 
   private static class RemoveEntry {
-    private Cache cache;
     private Object key;
 
-    public RemoveEntry(Cache cache, Object key) {
-      this.cache = cache;
+    public RemoveEntry(Object key) {
       this.key = key;
     }
 
-    public void commit() {
-      cache.removeObject(key);
+    public void commit(TransactionalCache owner) {
+      if (owner.blocking != null) {
+        owner.blocking.removeObject(owner, key);
+      } else {
+        owner.delegate.removeObject(key);
+      }
     }
   }
 
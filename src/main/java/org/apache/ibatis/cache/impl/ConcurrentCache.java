@@ -0,0 +1,282 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Thread safe, bounded cache that does not need a {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ * <p>
+ * Entries are spread over segments backed by a {@link ConcurrentHashMap}. Reads never lock, they only mark the
+ * entry as referenced. Writes lock a single segment and evict with the CLOCK (second chance) algorithm, an
+ * approximation of LRU. With the FIFO policy the referenced mark is ignored.
+ * <p>
+ * The size and the clear interval are handled here instead of by decorators, so that the whole chain stays
+ * free of locks on the read path.
+ *
+ * @see org.apache.ibatis.mapping.CacheBuilder
+ */
+public class ConcurrentCache implements Cache {
+
+  public static final String EVICTION_LRU = "LRU";
+  public static final String EVICTION_FIFO = "FIFO";
+
+  private static final int DEFAULT_SIZE = 1024;
+  private static final int MAX_SEGMENTS = 16;
+
+  private final String id;
+
+  private volatile Segment[] segments;
+  private volatile int size;
+  private volatile boolean fifo;
+
+  private volatile long clearInterval;
+  private volatile long lastClear;
+
+  public ConcurrentCache(String id) {
+    this.id = id;
+    this.lastClear = System.currentTimeMillis();
+    setSize(DEFAULT_SIZE);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setSize(int size) {
+    if (size <= 0) {
+      throw new CacheException("Cache size must be greater than zero but was " + size + " for cache " + id);
+    }
+    int segmentCount = 1;
+    while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= size / 8) {
+      segmentCount *= 2;
+    }
+    Segment[] newSegments = new Segment[segmentCount];
+    int remaining = size;
+    for (int i = 0; i < segmentCount; i++) {
+      int capacity = remaining / (segmentCount - i);
+      newSegments[i] = new Segment(capacity);
+      remaining -= capacity;
+    }
+    this.size = size;
+    this.segments = newSegments;
+  }
+
+  public void setEviction(String eviction) {
+    if (EVICTION_LRU.equalsIgnoreCase(eviction)) {
+      this.fifo = false;
+    } else if (EVICTION_FIFO.equalsIgnoreCase(eviction)) {
+      this.fifo = true;
+    } else {
+      throw new CacheException("Unsupported eviction policy '" + eviction + "' for cache " + id + ", expected LRU or FIFO");
+    }
+  }
+
+  public String getEviction() {
+    return fifo ? EVICTION_FIFO : EVICTION_LRU;
+  }
+
+  public void setClearInterval(long clearInterval) {
+    this.clearInterval = clearInterval;
+  }
+
+  public int getCapacity() {
+    return size;
+  }
+
+  public int getSize() {
+    clearWhenStale();
+    int count = 0;
+    for (Segment segment : segments) {
+      count += segment.map.size();
+    }
+    return count;
+  }
+
+  public void putObject(Object key, Object value) {
+    clearWhenStale();
+    segmentFor(key).put(key, value, fifo);
+  }
+
+  public Object getObject(Object key) {
+    if (clearWhenStale()) {
+      return null;
+    }
+    Entry entry = segmentFor(key).map.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.referenced) {
+      // avoid writing to a shared cache line when the entry is already marked
+      entry.referenced = true;
+    }
+    return entry.value;
+  }
+
+  public Object removeObject(Object key) {
+    return segmentFor(key).remove(key);
+  }
+
+  public void clear() {
+    lastClear = System.currentTimeMillis();
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private boolean clearWhenStale() {
+    long interval = clearInterval;
+    if (interval > 0 && System.currentTimeMillis() - lastClear > interval) {
+      clear();
+      return true;
+    }
+    return false;
+  }
+
+  private Segment segmentFor(Object key) {
+    Segment[] current = segments;
+    int h = key == null ? 0 : key.hashCode();
+    // spread the bits so that poor hash codes still use every segment
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return current[h & (current.length - 1)];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) throw new CacheException("Cache instances require an ID.");
+    if (this == o) return true;
+    if (!(o instanceof Cache)) return false;
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) throw new CacheException("Cache instances require an ID.");
+    return getId().hashCode();
+  }
+
+  private static class Entry {
+    private final Object key;
+    private volatile Object value;
+    private volatile boolean referenced;
+
+    Entry(Object key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private static class Segment {
+    private final int capacity;
+    private final ConcurrentHashMap<Object, Entry> map = new ConcurrentHashMap<Object, Entry>();
+    // eviction order, only touched while holding the lock
+    private final LinkedList<Entry> clock = new LinkedList<Entry>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Segment(int capacity) {
+      this.capacity = Math.max(capacity, 1);
+    }
+
+    void put(Object key, Object value, boolean fifo) {
+      lock.lock();
+      try {
+        Entry existing = map.get(key);
+        if (existing != null) {
+          existing.value = value;
+          existing.referenced = true;
+          return;
+        }
+        Entry entry = new Entry(key, value);
+        map.put(key, entry);
+        clock.addLast(entry);
+        while (map.size() > capacity && evict(fifo)) {
+          // keep sweeping
+        }
+        if (clock.size() > capacity * 2 + 16) {
+          purgeRemoved();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    Object remove(Object key) {
+      lock.lock();
+      try {
+        // the entry stays in the clock until it is swept or purged
+        Entry removed = map.remove(key);
+        return removed == null ? null : removed.value;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void clear() {
+      lock.lock();
+      try {
+        map.clear();
+        clock.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean evict(boolean fifo) {
+      while (true) {
+        Entry candidate = clock.poll();
+        if (candidate == null) {
+          return false;
+        }
+        if (map.get(candidate.key) != candidate) {
+          // already removed
+          continue;
+        }
+        if (!fifo && candidate.referenced) {
+          candidate.referenced = false;
+          clock.addLast(candidate);
+          continue;
+        }
+        map.remove(candidate.key);
+        return true;
+      }
+    }
+
+    private void purgeRemoved() {
+      Iterator<Entry> it = clock.iterator();
+      while (it.hasNext()) {
+        Entry entry = it.next();
+        if (map.get(entry.key) != entry) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,249 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Cache that keeps serialized values outside of the Java heap.
+ * <p>
+ * Values must be <code>byte[]</code>, as produced by {@link org.apache.ibatis.cache.decorators.SerializedCache}
+ * which {@link org.apache.ibatis.mapping.CacheBuilder} always puts on top of this cache. The bytes are appended
+ * to a ring of fixed size slabs allocated with {@link ByteBuffer#allocateDirect(int)}. When the ring wraps, the
+ * slab about to be overwritten is evicted as a whole, so the oldest entries go first. Only the key and a packed
+ * slab/offset location stay on the heap, along with the keys of each slab so that evicting one does not scan the
+ * whole cache.
+ * <p>
+ * The ring has at least two slabs, so a wrap never evicts everything. A slab size above half the capacity is
+ * reduced to half of it, and the slab count is rounded up.
+ * <p>
+ * The byte count is bounded by <code>capacity</code>. No eviction decorator is added unless the cache declares
+ * one, in which case it also bounds the entry count. The methods are synchronized, so without such a decorator
+ * {@link org.apache.ibatis.mapping.CacheBuilder} does not add a {@link org.apache.ibatis.cache.decorators.SynchronizedCache}.
+ */
+public class OffHeapCache implements Cache {
+
+  private static final int HEADER_BYTES = 4;
+
+  private final String id;
+
+  private long capacity = 64L * 1024 * 1024;
+  private int slabSize = 1024 * 1024;
+  private boolean direct = true;
+
+  private final Map<Object, Long> index = new HashMap<Object, Long>();
+  private ByteBuffer[] slabs;
+  private List<Set<Object>> slabKeys;
+  private int slabBytes;
+  private int currentSlab;
+  private int currentOffset;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public synchronized void setCapacity(long capacity) {
+    if (capacity <= 2 * HEADER_BYTES) {
+      throw new CacheException("Cache capacity must be greater than " + 2 * HEADER_BYTES + " but was " + capacity + " for cache " + id);
+    }
+    this.capacity = capacity;
+    reset();
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public synchronized void setSlabSize(int slabSize) {
+    if (slabSize <= HEADER_BYTES) {
+      throw new CacheException("Cache slab size must be greater than " + HEADER_BYTES + " but was " + slabSize + " for cache " + id);
+    }
+    this.slabSize = slabSize;
+    reset();
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public synchronized void setDirect(boolean direct) {
+    this.direct = direct;
+    reset();
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  public synchronized int getSize() {
+    return index.size();
+  }
+
+  public synchronized void putObject(Object key, Object value) {
+    if (value != null && !(value instanceof byte[])) {
+      throw new CacheException("OffHeapCache " + id + " only stores serialized values but got " + value.getClass().getName());
+    }
+    if (slabs == null) {
+      initialize();
+    }
+    release(key, index.remove(key));
+    byte[] bytes = (byte[]) value;
+    int length = bytes == null ? -1 : bytes.length;
+    int recordSize = HEADER_BYTES + Math.max(length, 0);
+    if (recordSize > slabBytes) {
+      // too large to be cached, the stale value is gone already
+      return;
+    }
+    if (currentOffset + recordSize > slabBytes) {
+      advanceSlab();
+    }
+    ByteBuffer slab = slab(currentSlab);
+    slab.position(currentOffset);
+    slab.putInt(length);
+    if (bytes != null) {
+      slab.put(bytes);
+    }
+    index.put(key, location(currentSlab, currentOffset));
+    slabKeys.get(currentSlab).add(key);
+    currentOffset += recordSize;
+  }
+
+  public synchronized Object getObject(Object key) {
+    Long location = index.get(key);
+    return location == null ? null : read(location);
+  }
+
+  public synchronized Object removeObject(Object key) {
+    // the removed value is not returned, reading it back would copy the bytes for nothing
+    release(key, index.remove(key));
+    return null;
+  }
+
+  public synchronized void clear() {
+    index.clear();
+    if (slabKeys != null) {
+      for (Set<Object> keys : slabKeys) {
+        keys.clear();
+      }
+    }
+    currentSlab = 0;
+    currentOffset = 0;
+  }
+
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void initialize() {
+    slabBytes = (int) Math.min(slabSize, capacity / 2);
+    int slabCount = (int) Math.min(Integer.MAX_VALUE, (capacity + slabBytes - 1) / slabBytes);
+    slabs = new ByteBuffer[slabCount];
+    slabKeys = new ArrayList<Set<Object>>(slabCount);
+    for (int i = 0; i < slabCount; i++) {
+      slabKeys.add(new HashSet<Object>());
+    }
+    currentSlab = 0;
+    currentOffset = 0;
+  }
+
+  private void reset() {
+    index.clear();
+    slabs = null;
+    slabKeys = null;
+  }
+
+  private void advanceSlab() {
+    currentSlab = (currentSlab + 1) % slabs.length;
+    currentOffset = 0;
+    // evict whatever still lives in the slab that is about to be overwritten
+    Set<Object> keys = slabKeys.get(currentSlab);
+    for (Object key : keys) {
+      index.remove(key);
+    }
+    keys.clear();
+  }
+
+  private void release(Object key, Long location) {
+    if (location != null) {
+      slabKeys.get(slabOf(location)).remove(key);
+    }
+  }
+
+  private ByteBuffer slab(int i) {
+    ByteBuffer slab = slabs[i];
+    if (slab == null) {
+      // allocated on first use so that a large capacity does not reserve memory up front
+      slab = direct ? ByteBuffer.allocateDirect(slabBytes) : ByteBuffer.allocate(slabBytes);
+      slabs[i] = slab;
+    }
+    return slab;
+  }
+
+  private byte[] read(long location) {
+    ByteBuffer slab = slabs[slabOf(location)];
+    slab.position(offsetOf(location));
+    int length = slab.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    slab.get(bytes);
+    return bytes;
+  }
+
+  private static long location(int slab, int offset) {
+    return ((long) slab << 32) | (offset & 0xFFFFFFFFL);
+  }
+
+  private static int slabOf(long location) {
+    return (int) (location >>> 32);
+  }
+
+  private static int offsetOf(long location) {
+    return (int) location;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) throw new CacheException("Cache instances require an ID.");
+    if (this == o) return true;
+    if (!(o instanceof Cache)) return false;
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) throw new CacheException("Cache instances require an ID.");
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Precomputed property layout of a bean, built once per class from its {@link Reflector}.
+ * <p>
+ * A class only gets a layout when copying its properties is guaranteed to copy its whole state: it is
+ * serializable, has a default constructor, does not customize its serialization and every non transient field
+ * has both a getter and a setter. Other classes are handed to Java serialization.
+ */
+final class BeanLayout {
+
+  private static final ConcurrentMap<Class<?>, BeanLayout> LAYOUTS = new ConcurrentHashMap<Class<?>, BeanLayout>();
+  private static final BeanLayout UNSUPPORTED = new BeanLayout(null, new String[0], new Invoker[0], new Invoker[0]);
+  private static final String[] SERIALIZATION_METHODS = { "writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve" };
+
+  private final Constructor<?> constructor;
+  private final String[] names;
+  private final Invoker[] getters;
+  private final Invoker[] setters;
+
+  private BeanLayout(Constructor<?> constructor, String[] names, Invoker[] getters, Invoker[] setters) {
+    this.constructor = constructor;
+    this.names = names;
+    this.getters = getters;
+    this.setters = setters;
+  }
+
+  /**
+   * @return the layout or null if the class must be copied with Java serialization
+   */
+  static BeanLayout forClass(Class<?> type) {
+    BeanLayout layout = LAYOUTS.get(type);
+    if (layout == null) {
+      layout = build(type);
+      LAYOUTS.put(type, layout);
+    }
+    return layout == UNSUPPORTED ? null : layout;
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  Object newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error creating instance of " + constructor.getDeclaringClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  Object get(Object bean, int i) {
+    try {
+      return getters[i].invoke(bean, null);
+    } catch (Exception e) {
+      throw new CacheException("Error reading property '" + names[i] + "' of " + bean.getClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  void set(Object bean, int i, Object value) {
+    try {
+      setters[i].invoke(bean, new Object[] { value });
+    } catch (Exception e) {
+      throw new CacheException("Error writing property '" + names[i] + "' of " + bean.getClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  private static BeanLayout build(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type)
+        || Externalizable.class.isAssignableFrom(type)
+        || type.isInterface()
+        || Modifier.isAbstract(type.getModifiers())) {
+      return UNSUPPORTED;
+    }
+    try {
+      Reflector reflector = Reflector.forClass(type);
+      Constructor<?> constructor = reflector.getDefaultConstructor();
+      List<String> names = new ArrayList<String>();
+      Set<String> seen = new HashSet<String>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        if (declaresSerializationMethod(c)) {
+          return UNSUPPORTED;
+        }
+        for (Field field : c.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+            continue;
+          }
+          String name = field.getName();
+          if (!seen.add(name) || !reflector.hasGetter(name) || !reflector.hasSetter(name)) {
+            // shadowed or not reachable through the reflector, a property copy would lose state
+            return UNSUPPORTED;
+          }
+          names.add(name);
+        }
+      }
+      int size = names.size();
+      Invoker[] getters = new Invoker[size];
+      Invoker[] setters = new Invoker[size];
+      for (int i = 0; i < size; i++) {
+        getters[i] = reflector.getGetInvoker(names.get(i));
+        setters[i] = reflector.getSetInvoker(names.get(i));
+      }
+      return new BeanLayout(constructor, names.toArray(new String[size]), getters, setters);
+    } catch (RuntimeException e) {
+      return UNSUPPORTED;
+    }
+  }
+
+  private static boolean declaresSerializationMethod(Class<?> c) {
+    for (Method method : c.getDeclaredMethods()) {
+      for (String name : SERIALIZATION_METHODS) {
+        if (name.equals(method.getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,418 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Compact binary {@link CacheSerializer}.
+ * <p>
+ * Beans are written as the values of their properties, in the order of a {@link BeanLayout} computed once per
+ * class, so no class descriptors are written besides the class name the first time it appears. Strings, boxed
+ * primitives, big numbers, dates, enums, arrays and the common <code>java.util</code> lists, sets and maps have
+ * their own encoding. Shared references and cycles are preserved. Any other object, including lazy loading
+ * proxies, is written with Java serialization.
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte TRUE = 7;
+  private static final byte FALSE = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte FLOAT = 10;
+  private static final byte DOUBLE = 11;
+  private static final byte BIG_DECIMAL = 12;
+  private static final byte BIG_INTEGER = 13;
+  private static final byte DATE = 14;
+  private static final byte SQL_DATE = 15;
+  private static final byte SQL_TIME = 16;
+  private static final byte SQL_TIMESTAMP = 17;
+  private static final byte ENUM = 18;
+  private static final byte CLASS = 19;
+  private static final byte BYTES = 20;
+  private static final byte ARRAY = 21;
+  private static final byte COLLECTION = 22;
+  private static final byte MAP = 23;
+  private static final byte BEAN = 24;
+  private static final byte JAVA = 25;
+
+  private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+  static {
+    Class<?>[] primitives = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class };
+    for (Class<?> primitive : primitives) {
+      PRIMITIVE_TYPES.put(primitive.getName(), primitive);
+    }
+  }
+
+  private final CacheSerializer fallback;
+
+  public CompactCacheSerializer() {
+    this(new JavaCacheSerializer());
+  }
+
+  public CompactCacheSerializer(CacheSerializer fallback) {
+    this.fallback = fallback;
+  }
+
+  public byte[] serialize(Object object) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+      new Writer(new DataOutputStream(bos)).write(object);
+      return bos.toByteArray();
+    } catch (IOException e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(new DataInputStream(new ByteArrayInputStream(bytes))).read();
+    } catch (IOException e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    } catch (ClassNotFoundException e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  static boolean isSupportedCollection(Class<?> type) {
+    return type == ArrayList.class || type == LinkedList.class || type == HashSet.class || type == LinkedHashSet.class;
+  }
+
+  static boolean isSupportedMap(Class<?> type) {
+    return type == HashMap.class || type == LinkedHashMap.class;
+  }
+
+  private class Writer {
+    private final DataOutputStream out;
+    private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+    private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+
+    Writer(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (type == Long.class) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (type == Boolean.class) {
+        out.writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Short.class) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (type == Byte.class) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (type == Character.class) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (type == Float.class) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (type == Double.class) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (type == BigDecimal.class) {
+        out.writeByte(BIG_DECIMAL);
+        BigDecimal decimal = (BigDecimal) value;
+        writeBytes(decimal.unscaledValue().toByteArray());
+        out.writeInt(decimal.scale());
+      } else if (type == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (type == Class.class) {
+        out.writeByte(CLASS);
+        writeClass((Class<?>) value);
+      } else if (!writeReference(value)) {
+        writeMutable(type, value);
+      }
+    }
+
+    private void writeMutable(Class<?> type, Object value) throws IOException {
+      if (type == Date.class) {
+        out.writeByte(DATE);
+        out.writeLong(((Date) value).getTime());
+      } else if (type == java.sql.Date.class) {
+        out.writeByte(SQL_DATE);
+        out.writeLong(((Date) value).getTime());
+      } else if (type == java.sql.Time.class) {
+        out.writeByte(SQL_TIME);
+        out.writeLong(((Date) value).getTime());
+      } else if (type == java.sql.Timestamp.class) {
+        out.writeByte(SQL_TIMESTAMP);
+        out.writeLong(((Date) value).getTime());
+        out.writeInt(((java.sql.Timestamp) value).getNanos());
+      } else if (type == byte[].class) {
+        out.writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (type.isArray()) {
+        out.writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        int length = Array.getLength(value);
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+          write(Array.get(value, i));
+        }
+      } else if (isSupportedCollection(type)) {
+        out.writeByte(COLLECTION);
+        writeClass(type);
+        Collection<?> collection = (Collection<?>) value;
+        out.writeInt(collection.size());
+        for (Object element : collection) {
+          write(element);
+        }
+      } else if (isSupportedMap(type)) {
+        out.writeByte(MAP);
+        writeClass(type);
+        Map<?, ?> map = (Map<?, ?>) value;
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(entry.getKey());
+          write(entry.getValue());
+        }
+      } else {
+        BeanLayout layout = BeanLayout.forClass(type);
+        if (layout != null) {
+          out.writeByte(BEAN);
+          writeClass(type);
+          for (int i = 0; i < layout.size(); i++) {
+            write(layout.get(value, i));
+          }
+        } else {
+          out.writeByte(JAVA);
+          writeBytes(fallback.serialize(value));
+        }
+      }
+    }
+
+    private boolean writeReference(Object value) throws IOException {
+      Integer handle = handles.get(value);
+      if (handle != null) {
+        out.writeByte(REFERENCE);
+        out.writeInt(handle);
+        return true;
+      }
+      handles.put(value, handles.size());
+      return false;
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+      Integer id = classes.get(type);
+      if (id != null) {
+        out.writeInt(id);
+      } else {
+        classes.put(type, classes.size());
+        out.writeInt(-1);
+        writeString(type.getName());
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes("UTF-8"));
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private class Reader {
+    private final DataInputStream in;
+    private final List<Object> handles = new ArrayList<Object>();
+    private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+    Reader(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object read() throws IOException, ClassNotFoundException {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return handles.get(in.readInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case CHARACTER:
+          return in.readChar();
+        case FLOAT:
+          return in.readFloat();
+        case DOUBLE:
+          return in.readDouble();
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), in.readInt());
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case ENUM:
+          return Enum.valueOf((Class<Enum>) readClass(), readString());
+        case CLASS:
+          return readClass();
+        case DATE:
+          return register(new Date(in.readLong()));
+        case SQL_DATE:
+          return register(new java.sql.Date(in.readLong()));
+        case SQL_TIME:
+          return register(new java.sql.Time(in.readLong()));
+        case SQL_TIMESTAMP: {
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+          timestamp.setNanos(in.readInt());
+          return register(timestamp);
+        }
+        case BYTES:
+          return register(readBytes());
+        case ARRAY: {
+          Class<?> componentType = readClass();
+          int length = in.readInt();
+          Object array = register(Array.newInstance(componentType, length));
+          for (int i = 0; i < length; i++) {
+            Array.set(array, i, read());
+          }
+          return array;
+        }
+        case COLLECTION: {
+          Collection collection = (Collection) register(newInstance(readClass()));
+          int size = in.readInt();
+          for (int i = 0; i < size; i++) {
+            collection.add(read());
+          }
+          return collection;
+        }
+        case MAP: {
+          Map map = (Map) register(newInstance(readClass()));
+          int size = in.readInt();
+          for (int i = 0; i < size; i++) {
+            Object key = read();
+            map.put(key, read());
+          }
+          return map;
+        }
+        case BEAN: {
+          Class<?> type = readClass();
+          BeanLayout layout = BeanLayout.forClass(type);
+          if (layout == null) {
+            throw new CacheException("Class " + type.getName() + " no longer has a compact layout");
+          }
+          Object bean = register(layout.newInstance());
+          for (int i = 0; i < layout.size(); i++) {
+            layout.set(bean, i, read());
+          }
+          return bean;
+        }
+        case JAVA:
+          return register(fallback.deserialize(readBytes()));
+        default:
+          throw new CacheException("Unknown type tag " + tag + " in serialized cache entry");
+      }
+    }
+
+    private Object register(Object value) {
+      handles.add(value);
+      return value;
+    }
+
+    private Object newInstance(Class<?> type) {
+      try {
+        return type.newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Error creating instance of " + type + ".  Cause: " + e, e);
+      }
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int id = in.readInt();
+      if (id >= 0) {
+        return classes.get(id);
+      }
+      String name = readString();
+      Class<?> type = PRIMITIVE_TYPES.get(name);
+      if (type == null) {
+        type = Resources.classForName(name);
+      }
+      classes.add(type);
+      return type;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), "UTF-8");
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return bytes;
+    }
+  }
+
+}
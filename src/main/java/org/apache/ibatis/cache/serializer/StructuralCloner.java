@@ -0,0 +1,127 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+
+/**
+ * Deep copies an object graph without going through bytes.
+ * <p>
+ * Immutable values are shared, dates and arrays are cloned, the collections supported by
+ * {@link CompactCacheSerializer} are rebuilt and beans are copied property by property following their
+ * {@link BeanLayout}. Anything else is copied through the fallback serializer.
+ */
+public class StructuralCloner {
+
+  private final CacheSerializer fallback;
+
+  public StructuralCloner(CacheSerializer fallback) {
+    this.fallback = fallback;
+  }
+
+  public Object copy(Object value) {
+    return copy(value, new IdentityHashMap<Object, Object>());
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null || isImmutable(value)) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    if (copy != null) {
+      return copy;
+    }
+    Class<?> type = value.getClass();
+    if (type == Date.class || type == java.sql.Date.class || type == java.sql.Time.class || type == java.sql.Timestamp.class) {
+      copy = ((Date) value).clone();
+      copies.put(value, copy);
+    } else if (type.isArray()) {
+      int length = Array.getLength(value);
+      copy = Array.newInstance(type.getComponentType(), length);
+      copies.put(value, copy);
+      if (type.getComponentType().isPrimitive()) {
+        System.arraycopy(value, 0, copy, 0, length);
+      } else {
+        for (int i = 0; i < length; i++) {
+          Array.set(copy, i, copy(Array.get(value, i), copies));
+        }
+      }
+    } else if (CompactCacheSerializer.isSupportedCollection(type)) {
+      Collection collection = (Collection) newInstance(type);
+      copies.put(value, collection);
+      for (Object element : (Collection<?>) value) {
+        collection.add(copy(element, copies));
+      }
+      copy = collection;
+    } else if (CompactCacheSerializer.isSupportedMap(type)) {
+      Map map = (Map) newInstance(type);
+      copies.put(value, map);
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+      }
+      copy = map;
+    } else {
+      BeanLayout layout = BeanLayout.forClass(type);
+      if (layout != null) {
+        copy = layout.newInstance();
+        copies.put(value, copy);
+        for (int i = 0; i < layout.size(); i++) {
+          layout.set(copy, i, copy(layout.get(value, i), copies));
+        }
+      } else {
+        copy = fallback.deserialize(fallback.serialize(value));
+        copies.put(value, copy);
+      }
+    }
+    return copy;
+  }
+
+  private boolean isImmutable(Object value) {
+    Class<?> type = value.getClass();
+    return type == String.class
+        || type == Integer.class
+        || type == Long.class
+        || type == Boolean.class
+        || type == Short.class
+        || type == Byte.class
+        || type == Character.class
+        || type == Float.class
+        || type == Double.class
+        || type == BigDecimal.class
+        || type == BigInteger.class
+        || type == Class.class
+        || value instanceof Enum;
+  }
+
+  private Object newInstance(Class<?> type) {
+    try {
+      return type.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error creating instance of " + type + ".  Cause: " + e, e);
+    }
+  }
+
+}
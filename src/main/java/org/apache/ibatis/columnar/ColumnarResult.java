@@ -0,0 +1,295 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The rows of a query stored column by column.
+ * <p>
+ * Integer columns (TINYINT, SMALLINT, INTEGER) are read into an {@code int[]}, BIGINT columns into a {@code long[]}
+ * and REAL, FLOAT and DOUBLE columns into a {@code double[]}, straight from the {@link ResultSet} and without an
+ * object per value. Null values read as 0 and are flagged in the column's null bitmap. All other columns are read
+ * by their type handler into an {@code Object[]}.
+ *
+ * @see org.apache.ibatis.session.SqlSession#selectColumns(String, Object)
+ */
+public class ColumnarResult {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final List<String> columnNames;
+  private final Column[] columns;
+  private int rowCount;
+
+  ColumnarResult(List<String> columnNames, Column[] columns) {
+    this.columnNames = Collections.unmodifiableList(new ArrayList<String>(columnNames));
+    this.columns = columns;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  /**
+   * @return {@code int.class}, {@code long.class}, {@code double.class} or {@code Object.class}
+   */
+  public Class<?> getColumnType(String column) {
+    return getColumn(column).getType();
+  }
+
+  public int[] getIntColumn(String column) {
+    return ((IntColumn) getColumn(column, int.class)).values;
+  }
+
+  public long[] getLongColumn(String column) {
+    return ((LongColumn) getColumn(column, long.class)).values;
+  }
+
+  public double[] getDoubleColumn(String column) {
+    return ((DoubleColumn) getColumn(column, double.class)).values;
+  }
+
+  public Object[] getObjectColumn(String column) {
+    return ((ObjectColumn) getColumn(column, Object.class)).values;
+  }
+
+  /**
+   * @return the rows where the column is null
+   */
+  public BitSet getNulls(String column) {
+    return getColumn(column).nulls;
+  }
+
+  public boolean isNull(String column, int row) {
+    return getColumn(column).nulls.get(row);
+  }
+
+  void readRow(ResultSet rs) throws SQLException {
+    for (int i = 0; i < columns.length; i++) {
+      columns[i].read(rs, rowCount);
+    }
+    rowCount++;
+  }
+
+  void finish() {
+    for (Column column : columns) {
+      column.trim(rowCount);
+    }
+  }
+
+  private Column getColumn(String column, Class<?> type) {
+    final Column found = getColumn(column);
+    if (found.getType() != type) {
+      throw new ExecutorException("Column '" + column + "' was read as " + found.getType().getName() + ", not as " + type.getName());
+    }
+    return found;
+  }
+
+  private Column getColumn(String column) {
+    for (int i = 0; i < columns.length; i++) {
+      if (columnNames.get(i).equalsIgnoreCase(column)) {
+        return columns[i];
+      }
+    }
+    throw new ExecutorException("The result has no column '" + column + "', its columns are " + columnNames);
+  }
+
+  static int grow(int capacity, int row) {
+    return row < capacity ? capacity : Math.max(INITIAL_CAPACITY, capacity + (capacity >> 1));
+  }
+
+  abstract static class Column {
+    protected final int index;
+    protected final BitSet nulls = new BitSet();
+
+    Column(int index) {
+      this.index = index;
+    }
+
+    abstract Class<?> getType();
+
+    abstract void read(ResultSet rs, int row) throws SQLException;
+
+    abstract void trim(int rowCount);
+  }
+
+  static class IntColumn extends Column {
+    private int[] values = new int[0];
+
+    IntColumn(int index) {
+      super(index);
+    }
+
+    @Override
+    Class<?> getType() {
+      return int.class;
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = resize(values, grow(values.length, row));
+      }
+      values[row] = rs.getInt(index);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int rowCount) {
+      if (values.length != rowCount) {
+        values = resize(values, rowCount);
+      }
+    }
+
+    private static int[] resize(int[] values, int length) {
+      final int[] resized = new int[length];
+      System.arraycopy(values, 0, resized, 0, Math.min(values.length, length));
+      return resized;
+    }
+  }
+
+  static class LongColumn extends Column {
+    private long[] values = new long[0];
+
+    LongColumn(int index) {
+      super(index);
+    }
+
+    @Override
+    Class<?> getType() {
+      return long.class;
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = resize(values, grow(values.length, row));
+      }
+      values[row] = rs.getLong(index);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int rowCount) {
+      if (values.length != rowCount) {
+        values = resize(values, rowCount);
+      }
+    }
+
+    private static long[] resize(long[] values, int length) {
+      final long[] resized = new long[length];
+      System.arraycopy(values, 0, resized, 0, Math.min(values.length, length));
+      return resized;
+    }
+  }
+
+  static class DoubleColumn extends Column {
+    private double[] values = new double[0];
+
+    DoubleColumn(int index) {
+      super(index);
+    }
+
+    @Override
+    Class<?> getType() {
+      return double.class;
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = resize(values, grow(values.length, row));
+      }
+      values[row] = rs.getDouble(index);
+      if (values[row] == 0 && rs.wasNull()) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int rowCount) {
+      if (values.length != rowCount) {
+        values = resize(values, rowCount);
+      }
+    }
+
+    private static double[] resize(double[] values, int length) {
+      final double[] resized = new double[length];
+      System.arraycopy(values, 0, resized, 0, Math.min(values.length, length));
+      return resized;
+    }
+  }
+
+  static class ObjectColumn extends Column {
+    private final TypeHandler<?> typeHandler;
+    // null to read the column by index
+    private final String name;
+    private Object[] values = new Object[0];
+
+    ObjectColumn(int index, TypeHandler<?> typeHandler, String name) {
+      super(index);
+      this.typeHandler = typeHandler;
+      this.name = name;
+    }
+
+    @Override
+    Class<?> getType() {
+      return Object.class;
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = resize(values, grow(values.length, row));
+      }
+      values[row] = name == null ? typeHandler.getResult(rs, index) : typeHandler.getResult(rs, name);
+      if (values[row] == null) {
+        nulls.set(row);
+      }
+    }
+
+    @Override
+    void trim(int rowCount) {
+      if (values.length != rowCount) {
+        values = resize(values, rowCount);
+      }
+    }
+
+    private static Object[] resize(Object[] values, int length) {
+      final Object[] resized = new Object[length];
+      System.arraycopy(values, 0, resized, 0, Math.min(values.length, length));
+      return resized;
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.columnar;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.resultset.ResultSetWrapper;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Collects the first result set of a query into a {@link ColumnarResult}.
+ * <p>
+ * It is passed through the executor like any other result handler, but the
+ * {@link org.apache.ibatis.executor.resultset.DefaultResultSetHandler} hands it the result set instead of mapped rows.
+ */
+public class ColumnarResultHandler implements ResultHandler {
+
+  private ColumnarResult result;
+
+  public void handleResult(ResultContext context) {
+    throw new ExecutorException("Columnar results are read from the result set directly, "
+        + "they are not supported by a result set handler other than DefaultResultSetHandler.");
+  }
+
+  /**
+   * Reads the remaining rows, at most {@code limit}.
+   */
+  public void handleResultSet(ResultSetWrapper rsw, int limit) throws SQLException {
+    final List<String> columnNames = rsw.getColumnNames();
+    final List<JdbcType> jdbcTypes = rsw.getJdbcTypes();
+    final ColumnarResult.Column[] columns = new ColumnarResult.Column[columnNames.size()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = newColumn(rsw, i + 1, columnNames.get(i), jdbcTypes.get(i));
+    }
+    final ColumnarResult result = new ColumnarResult(columnNames, columns);
+    final ResultSet rs = rsw.getResultSet();
+    while (result.getRowCount() < limit && rs.next()) {
+      result.readRow(rs);
+    }
+    result.finish();
+    this.result = result;
+  }
+
+  /**
+   * @return the result, empty if the statement returned no result set
+   */
+  public ColumnarResult getResult() {
+    if (result == null) {
+      result = new ColumnarResult(Collections.<String>emptyList(), new ColumnarResult.Column[0]);
+    }
+    return result;
+  }
+
+  private ColumnarResult.Column newColumn(ResultSetWrapper rsw, int index, String name, JdbcType jdbcType) {
+    if (jdbcType == JdbcType.TINYINT || jdbcType == JdbcType.SMALLINT || jdbcType == JdbcType.INTEGER) {
+      return new ColumnarResult.IntColumn(index);
+    } else if (jdbcType == JdbcType.BIGINT) {
+      return new ColumnarResult.LongColumn(index);
+    } else if (jdbcType == JdbcType.REAL || jdbcType == JdbcType.FLOAT || jdbcType == JdbcType.DOUBLE) {
+      return new ColumnarResult.DoubleColumn(index);
+    }
+    final TypeHandler<?> typeHandler = rsw.getTypeHandler(Object.class, name);
+    // custom type handlers may implement just the by-name variant, a repeated label is still read by index
+    final boolean byName = !rsw.getTypeHandlerRegistry().isBuiltInTypeHandler(typeHandler)
+        && rsw.getColumnNames().indexOf(name) == index - 1;
+    return new ColumnarResult.ObjectColumn(index, typeHandler, byName ? name : null);
+  }
+
+}
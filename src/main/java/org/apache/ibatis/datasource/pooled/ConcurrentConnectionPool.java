@@ -0,0 +1,372 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Non-blocking checkout/return engine for {@link PooledDataSource}.
+ * <p>
+ * Active connections are bounded by a fair semaphore, so waiting threads are served in FIFO order.
+ * Each physical connection is tracked by an entry whose state is changed with compare-and-set, and
+ * a thread first tries the entry it returned last. Physical connections are opened and closed
+ * without holding any lock.
+ */
+class ConcurrentConnectionPool {
+
+  private static final Log log = LogFactory.getLog(ConcurrentConnectionPool.class);
+
+  private static final int IDLE = 0;
+  private static final int IN_USE = 1;
+  private static final int REMOVED = 2;
+
+  private final PooledDataSource pooledDataSource;
+  private final UnpooledDataSource dataSource;
+  private final PoolState state;
+
+  private final int maximumActiveConnections;
+  private final Semaphore activePermits;
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final ConcurrentMap<Connection, PoolEntry> entries = new ConcurrentHashMap<Connection, PoolEntry>();
+  private final ThreadLocal<WeakReference<PoolEntry>> lastReturnedEntry = new ThreadLocal<WeakReference<PoolEntry>>();
+
+  public ConcurrentConnectionPool(PooledDataSource pooledDataSource, UnpooledDataSource dataSource, PoolState state) {
+    this.pooledDataSource = pooledDataSource;
+    this.dataSource = dataSource;
+    this.state = state;
+    this.maximumActiveConnections = pooledDataSource.poolMaximumActiveConnections;
+    this.activePermits = new Semaphore(maximumActiveConnections, true);
+  }
+
+  public int getIdleConnectionCount() {
+    return idleCount.get();
+  }
+
+  public int getActiveConnectionCount() {
+    return maximumActiveConnections - activePermits.availablePermits();
+  }
+
+  public PooledConnection popConnection(String username, String password) throws SQLException {
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+    // either a permit was acquired or an overdue connection was claimed together with its permit
+    PoolEntry entry = acquirePermit();
+    try {
+      while (true) {
+        PooledConnection conn;
+        if (entry == null) {
+          entry = borrowIdleEntry();
+          if (entry != null) {
+            conn = checkout(entry);
+            if (log.isDebugEnabled()) {
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+            }
+          } else {
+            entry = createEntry();
+            conn = checkout(entry);
+            if (log.isDebugEnabled()) {
+              log.debug("Created connection " + conn.getRealHashCode() + ".");
+            }
+          }
+        } else {
+          conn = entry.holder.get();
+        }
+        if (conn != null && conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(pooledDataSource.assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.addRequest(System.currentTimeMillis() - t);
+          return conn;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + (conn == null ? 0 : conn.getRealHashCode()) + ") was returned from the pool, getting another connection.");
+        }
+        state.addBadConnection();
+        localBadConnectionCount++;
+        discard(entry);
+        entry = null;
+        if (localBadConnectionCount > (pooledDataSource.poolMaximumIdleConnections + 3)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    } catch (SQLException e) {
+      releaseOnFailure(entry);
+      throw e;
+    } catch (RuntimeException e) {
+      releaseOnFailure(entry);
+      throw e;
+    }
+  }
+
+  public void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = entries.get(conn.getRealConnection());
+    if (entry == null || !entry.holder.compareAndSet(conn, null)) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.addBadConnection();
+      return;
+    }
+    try {
+      state.addCheckoutTime(conn.getCheckoutTime());
+      entry.lastUsedTimestamp = conn.getLastUsedTimestamp();
+      boolean valid = conn.isValid();
+      conn.invalidate();
+      if (!valid) {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+        }
+        state.addBadConnection();
+        discard(entry);
+      } else if (conn.getConnectionTypeCode() == pooledDataSource.getExpectedConnectionTypeCode() && reserveIdleSlot()) {
+        try {
+          if (!entry.realConnection.getAutoCommit()) {
+            entry.realConnection.rollback();
+          }
+        } catch (SQLException e) {
+          releaseIdleSlotOnFailure(entry);
+          throw e;
+        } catch (RuntimeException e) {
+          releaseIdleSlotOnFailure(entry);
+          throw e;
+        }
+        if (entry.state.compareAndSet(IN_USE, IDLE)) {
+          lastReturnedEntry.set(new WeakReference<PoolEntry>(entry));
+          if (log.isDebugEnabled()) {
+            log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+          }
+        } else {
+          // closed by forceCloseAll() while being returned
+          idleCount.decrementAndGet();
+        }
+      } else {
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    } finally {
+      activePermits.release();
+    }
+  }
+
+  public void forceCloseAll() {
+    for (PoolEntry entry : entries.values()) {
+      int previousState = entry.state.getAndSet(REMOVED);
+      if (previousState == IDLE) {
+        idleCount.decrementAndGet();
+      }
+      PooledConnection holder = entry.holder.getAndSet(null);
+      if (holder != null) {
+        holder.invalidate();
+        activePermits.release();
+      }
+      entries.remove(entry.realConnection, entry);
+      closeQuietly(entry);
+    }
+  }
+
+  private PoolEntry acquirePermit() throws SQLException {
+    boolean countedWait = false;
+    try {
+      // the timed variant honours fairness, tryAcquire() would barge ahead of waiting threads
+      if (activePermits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+        return null;
+      }
+      while (true) {
+        PoolEntry claimed = claimOverdueEntry();
+        if (claimed != null) {
+          return claimed;
+        }
+        if (!countedWait) {
+          state.addHadToWait();
+          countedWait = true;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + pooledDataSource.poolTimeToWait + " milliseconds for connection.");
+        }
+        long wt = System.currentTimeMillis();
+        boolean acquired = activePermits.tryAcquire(pooledDataSource.poolTimeToWait, TimeUnit.MILLISECONDS);
+        state.addWaitTime(System.currentTimeMillis() - wt);
+        if (acquired) {
+          return null;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("PooledDataSource: Interrupted while waiting for a connection.");
+    }
+  }
+
+  private PoolEntry claimOverdueEntry() throws SQLException {
+    PoolEntry oldestEntry = null;
+    PooledConnection oldestConnection = null;
+    long longestCheckoutTime = pooledDataSource.poolMaximumCheckoutTime;
+    for (PoolEntry entry : entries.values()) {
+      PooledConnection holder = entry.holder.get();
+      if (holder != null && holder.getCheckoutTime() > longestCheckoutTime) {
+        oldestEntry = entry;
+        oldestConnection = holder;
+        longestCheckoutTime = holder.getCheckoutTime();
+      }
+    }
+    if (oldestEntry == null) {
+      return null;
+    }
+    PooledConnection conn = new PooledConnection(oldestEntry.realConnection, pooledDataSource, oldestEntry.statementCache);
+    conn.setCreatedTimestamp(oldestEntry.createdTimestamp);
+    conn.setLastUsedTimestamp(oldestConnection.getLastUsedTimestamp());
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    if (!oldestEntry.holder.compareAndSet(oldestConnection, conn)) {
+      // returned or claimed by someone else in the meantime
+      return null;
+    }
+    oldestConnection.invalidate();
+    state.addOverdueConnection(longestCheckoutTime);
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return oldestEntry;
+  }
+
+  private PoolEntry borrowIdleEntry() {
+    WeakReference<PoolEntry> reference = lastReturnedEntry.get();
+    if (reference != null) {
+      PoolEntry entry = reference.get();
+      if (entry != null && entry.state.compareAndSet(IDLE, IN_USE)) {
+        idleCount.decrementAndGet();
+        return entry;
+      }
+    }
+    for (PoolEntry entry : entries.values()) {
+      if (entry.state.compareAndSet(IDLE, IN_USE)) {
+        idleCount.decrementAndGet();
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private PoolEntry createEntry() throws SQLException {
+    PoolEntry entry = new PoolEntry(dataSource.getConnection(), pooledDataSource.newStatementCache());
+    entries.put(entry.realConnection, entry);
+    return entry;
+  }
+
+  private PooledConnection checkout(PoolEntry entry) {
+    PooledConnection conn = new PooledConnection(entry.realConnection, pooledDataSource, entry.statementCache);
+    conn.setCreatedTimestamp(entry.createdTimestamp);
+    conn.setLastUsedTimestamp(entry.lastUsedTimestamp);
+    // must be set before the holder is published, otherwise other threads see it as overdue
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    entry.holder.set(conn);
+    return conn;
+  }
+
+  private boolean reserveIdleSlot() {
+    while (true) {
+      int current = idleCount.get();
+      if (current >= pooledDataSource.poolMaximumIdleConnections) {
+        return false;
+      }
+      if (idleCount.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void discard(PoolEntry entry) {
+    if (entry == null) {
+      return;
+    }
+    entry.state.set(REMOVED);
+    PooledConnection holder = entry.holder.getAndSet(null);
+    if (holder != null) {
+      holder.invalidate();
+    }
+    entries.remove(entry.realConnection, entry);
+    closeQuietly(entry);
+  }
+
+  private void releaseOnFailure(PoolEntry entry) {
+    discard(entry);
+    activePermits.release();
+  }
+
+  // the connection failed while being returned, it gives up the reserved idle slot and is closed
+  private void releaseIdleSlotOnFailure(PoolEntry entry) {
+    idleCount.decrementAndGet();
+    state.addBadConnection();
+    discard(entry);
+  }
+
+  private void closeQuietly(PoolEntry entry) {
+    if (entry.statementCache != null) {
+      entry.statementCache.clear();
+    }
+    Connection realConnection = entry.realConnection;
+    try {
+      if (!realConnection.getAutoCommit()) {
+        realConnection.rollback();
+      }
+    } catch (Exception e) {
+      // ignore, closed anyway
+    }
+    try {
+      realConnection.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private static class PoolEntry {
+
+    private final Connection realConnection;
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    private final AtomicInteger state = new AtomicInteger(IN_USE);
+    // the proxy currently handed out for this connection, null while idle
+    private final AtomicReference<PooledConnection> holder = new AtomicReference<PooledConnection>();
+    // prepared statements of the physical connection, shared by the proxies handed out for it
+    private final PooledStatementCache statementCache;
+
+    public PoolEntry(Connection realConnection, PooledStatementCache statementCache) {
+      this.realConnection = realConnection;
+      this.statementCache = statementCache;
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+  }
+
+}
@@ -17,72 +17,145 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * @author Clinton Begin
  */
 public class PoolState {
 
+  // counters are updated atomically so that the concurrent pool engine does not need the state monitor
+  private static final AtomicLongFieldUpdater<PoolState> REQUEST_COUNT =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "requestCount");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_REQUEST_TIME =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedRequestTime");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_CHECKOUT_TIME =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedCheckoutTime");
+  private static final AtomicLongFieldUpdater<PoolState> CLAIMED_OVERDUE_CONNECTION_COUNT =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "claimedOverdueConnectionCount");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_CHECKOUT_TIME_OF_OVERDUE_CONNECTIONS =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedCheckoutTimeOfOverdueConnections");
+  private static final AtomicLongFieldUpdater<PoolState> ACCUMULATED_WAIT_TIME =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "accumulatedWaitTime");
+  private static final AtomicLongFieldUpdater<PoolState> HAD_TO_WAIT_COUNT =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "hadToWaitCount");
+  private static final AtomicLongFieldUpdater<PoolState> BAD_CONNECTION_COUNT =
+      AtomicLongFieldUpdater.newUpdater(PoolState.class, "badConnectionCount");
+
   protected PooledDataSource dataSource;
 
   protected final List<PooledConnection> idleConnections = new ArrayList<PooledConnection>();
   protected final List<PooledConnection> activeConnections = new ArrayList<PooledConnection>();
-  protected long requestCount = 0;
-  protected long accumulatedRequestTime = 0;
-  protected long accumulatedCheckoutTime = 0;
-  protected long claimedOverdueConnectionCount = 0;
-  protected long accumulatedCheckoutTimeOfOverdueConnections = 0;
-  protected long accumulatedWaitTime = 0;
-  protected long hadToWaitCount = 0;
-  protected long badConnectionCount = 0;
+  protected volatile long requestCount = 0;
+  protected volatile long accumulatedRequestTime = 0;
+  protected volatile long accumulatedCheckoutTime = 0;
+  protected volatile long claimedOverdueConnectionCount = 0;
+  protected volatile long accumulatedCheckoutTimeOfOverdueConnections = 0;
+  protected volatile long accumulatedWaitTime = 0;
+  protected volatile long hadToWaitCount = 0;
+  protected volatile long badConnectionCount = 0;
+  protected final AtomicLong statementCacheHitCount = new AtomicLong();
+  protected final AtomicLong statementCacheMissCount = new AtomicLong();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
+  void addRequest(long requestTime) {
+    REQUEST_COUNT.incrementAndGet(this);
+    ACCUMULATED_REQUEST_TIME.addAndGet(this, requestTime);
+  }
+
+  void addCheckoutTime(long checkoutTime) {
+    ACCUMULATED_CHECKOUT_TIME.addAndGet(this, checkoutTime);
+  }
+
+  void addOverdueConnection(long checkoutTime) {
+    CLAIMED_OVERDUE_CONNECTION_COUNT.incrementAndGet(this);
+    ACCUMULATED_CHECKOUT_TIME_OF_OVERDUE_CONNECTIONS.addAndGet(this, checkoutTime);
+    ACCUMULATED_CHECKOUT_TIME.addAndGet(this, checkoutTime);
+  }
+
+  void addHadToWait() {
+    HAD_TO_WAIT_COUNT.incrementAndGet(this);
+  }
+
+  void addWaitTime(long waitTime) {
+    ACCUMULATED_WAIT_TIME.addAndGet(this, waitTime);
+  }
+
+  void addBadConnection() {
+    BAD_CONNECTION_COUNT.incrementAndGet(this);
+  }
+
+  public long getRequestCount() {
     return requestCount;
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long requests = requestCount;
+    return requests == 0 ? 0 : accumulatedRequestTime / requests;
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount;
+    return waits == 0 ? 0 : accumulatedWaitTime / waits;
 
   }
 
-  public synchronized long getHadToWaitCount() {
+  public long getHadToWaitCount() {
     return hadToWaitCount;
   }
 
-  public synchronized long getBadConnectionCount() {
+  public long getBadConnectionCount() {
     return badConnectionCount;
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
+  public long getClaimedOverdueConnectionCount() {
     return claimedOverdueConnectionCount;
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCount;
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimed;
+  }
+
+  public long getStatementCacheHitCount() {
+    return statementCacheHitCount.get();
+  }
+
+  public long getStatementCacheMissCount() {
+    return statementCacheMissCount.get();
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long requests = requestCount;
+    return requests == 0 ? 0 : accumulatedCheckoutTime / requests;
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    ConcurrentConnectionPool concurrentPool = dataSource.getConcurrentPool();
+    if (concurrentPool != null) {
+      return concurrentPool.getIdleConnectionCount();
+    }
+    synchronized (this) {
+      return idleConnections.size();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    ConcurrentConnectionPool concurrentPool = dataSource.getConcurrentPool();
+    if (concurrentPool != null) {
+      return concurrentPool.getActiveConnectionCount();
+    }
+    synchronized (this) {
+      return activeConnections.size();
+    }
   }
 
-  public synchronized String toString() {
+  public String toString() {
     StringBuffer buffer = new StringBuffer();
     buffer.append("\n===CONFINGURATION==============================================");
     buffer.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -96,6 +169,8 @@ public class PoolState {
     buffer.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     buffer.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     buffer.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    buffer.append("\n poolConcurrentEnabled          ").append(dataSource.poolConcurrentEnabled);
+    buffer.append("\n poolStatementCacheSize         ").append(dataSource.poolStatementCacheSize);
     buffer.append("\n ---STATUS-----------------------------------------------------");
     buffer.append("\n activeConnections              ").append(getActiveConnectionCount());
     buffer.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -107,6 +182,8 @@ public class PoolState {
     buffer.append("\n hadToWait                      ").append(getHadToWaitCount());
     buffer.append("\n averageWaitTime                ").append(getAverageWaitTime());
     buffer.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    buffer.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    buffer.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
     buffer.append("\n===============================================================");
     return buffer.toString();
   }
@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
@@ -29,6 +30,7 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private int hashCode = 0;
@@ -40,6 +42,7 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private PooledStatementCache statementCache;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -48,6 +51,18 @@ class PooledConnection implements InvocationHandler {
    * @param dataSource - the dataSource that the connection is from
    */
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, dataSource.newStatementCache());
+  }
+
+  /*
+   * Constructor for a new proxy of a connection that was already pooled
+   *
+   * @param connection - the connection that is to be presented as a pooled connection
+   * @param dataSource - the dataSource that the connection is from
+   * @param statementCache - the prepared statements of the connection (or null if they are not cached)
+   */
+  PooledConnection(Connection connection, PooledDataSource dataSource, PooledStatementCache statementCache) {
+    this.statementCache = statementCache;
     this.hashCode = connection.hashCode();
     this.realConnection = connection;
     this.dataSource = dataSource;
@@ -91,6 +106,24 @@ class PooledConnection implements InvocationHandler {
     return proxyConnection;
   }
 
+  /*
+   * Getter for the prepared statements cached for the real connection
+   *
+   * @return The cache (or null if statements are not cached)
+   */
+  PooledStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /*
+   * Closes the cached prepared statements, called before the real connection is closed
+   */
+  void closeStatements() {
+    if (statementCache != null) {
+      statementCache.clear();
+    }
+  }
+
   /*
    * Gets the hashcode of the real connection (or 0 if it is null)
    *
@@ -243,6 +276,9 @@ class PooledConnection implements InvocationHandler {
           // throw an SQLException instead of a Runtime
           checkConnection();
         }
+        if (statementCache != null && PREPARE_STATEMENT.equals(methodName)) {
+          return prepareStatement(method, args);
+        }
         return method.invoke(realConnection, args);
       } catch (Throwable t) {
         throw ExceptionUtil.unwrapThrowable(t);
@@ -250,6 +286,18 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
+  private Object prepareStatement(Method method, Object[] args) throws Throwable {
+    PooledStatementCache.Key key = PooledStatementCache.keyFor(args);
+    if (key == null) {
+      return method.invoke(realConnection, args);
+    }
+    PreparedStatement statement = statementCache.take(key);
+    if (statement == null) {
+      statement = (PreparedStatement) method.invoke(realConnection, args);
+    }
+    return new PooledStatement(statement, key, statementCache, proxyConnection).getProxyStatement();
+  }
+
   private void checkConnection() throws SQLException {
     if (!valid) {
       throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
@@ -34,6 +34,8 @@ import org.apache.ibatis.logging.LogFactory;
 
 /**
  * This is a simple, synchronous, thread-safe database connection pool.
+ * Setting poolConcurrentEnabled switches checkout and return to a non-blocking engine
+ * (see {@link ConcurrentConnectionPool}) that keeps the same configuration and {@link PoolState} statistics.
  *
  * @author Clinton Begin
  */
@@ -53,8 +55,13 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled = false;
   protected int poolPingConnectionsNotUsedFor = 0;
+  protected boolean poolConcurrentEnabled = false;
+  protected int poolStatementCacheSize = 0;
 
-  private int expectedConnectionTypeCode;
+  private volatile int expectedConnectionTypeCode;
+
+  // non-blocking engine used instead of the synchronized idle/active lists when poolConcurrentEnabled is set
+  private volatile ConcurrentConnectionPool concurrentPool;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -147,6 +154,7 @@ public class PooledDataSource implements DataSource {
   public void setPoolMaximumActiveConnections(int poolMaximumActiveConnections) {
     this.poolMaximumActiveConnections = poolMaximumActiveConnections;
     forceCloseAll();
+    resetConcurrentPool();
   }
 
   /*
@@ -211,6 +219,29 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * Determines if connections are checked out and returned through the
+   * non-blocking pool engine instead of the synchronized one.
+   *
+   * @param poolConcurrentEnabled True to use the concurrent pool engine
+   */
+  public void setPoolConcurrentEnabled(boolean poolConcurrentEnabled) {
+    this.poolConcurrentEnabled = poolConcurrentEnabled;
+    forceCloseAll();
+    resetConcurrentPool();
+  }
+
+  /*
+   * The number of prepared statements cached for each connection; they are
+   * reused across sessions until the connection is closed. 0 disables the cache.
+   *
+   * @param poolStatementCacheSize The number of statements per connection
+   */
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -267,16 +298,29 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public boolean isPoolConcurrentEnabled() {
+    return poolConcurrentEnabled;
+  }
+
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
   public void forceCloseAll() {
     synchronized (state) {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+      ConcurrentConnectionPool pool = concurrentPool;
+      if (pool != null) {
+        pool.forceCloseAll();
+      }
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
           conn.invalidate();
+          conn.closeStatements();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -291,6 +335,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.idleConnections.remove(i - 1);
           conn.invalidate();
+          conn.closeStatements();
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -311,21 +356,42 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  ConcurrentConnectionPool getConcurrentPool() {
+    return concurrentPool;
+  }
+
+  int getExpectedConnectionTypeCode() {
+    return expectedConnectionTypeCode;
+  }
+
+  private void resetConcurrentPool() {
+    concurrentPool = poolConcurrentEnabled ? new ConcurrentConnectionPool(this, dataSource, state) : null;
+  }
+
+  PooledStatementCache newStatementCache() {
+    return poolStatementCacheSize > 0 ? new PooledStatementCache(poolStatementCacheSize, state) : null;
+  }
+
+  int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    ConcurrentConnectionPool pool = concurrentPool;
+    if (pool != null) {
+      pool.pushConnection(conn);
+      return;
+    }
 
     synchronized (state) {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
         if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.addCheckoutTime(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -335,10 +401,11 @@ public class PooledDataSource implements DataSource {
           }
           state.notifyAll();
         } else {
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.addCheckoutTime(conn.getCheckoutTime());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
+          conn.closeStatements();
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
@@ -349,12 +416,16 @@ public class PooledDataSource implements DataSource {
         if (log.isDebugEnabled()) {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
-        state.badConnectionCount++;
+        state.addBadConnection();
       }
     }
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    ConcurrentConnectionPool pool = concurrentPool;
+    if (pool != null) {
+      return pool.popConnection(username, password);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
@@ -385,14 +456,12 @@ public class PooledDataSource implements DataSource {
             long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
             if (longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.addOverdueConnection(longestCheckoutTime);
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 oldestActiveConnection.getRealConnection().rollback();
               }
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this, oldestActiveConnection.getStatementCache());
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -401,7 +470,7 @@ public class PooledDataSource implements DataSource {
               // Must wait
               try {
                 if (!countedWait) {
-                  state.hadToWaitCount++;
+                  state.addHadToWait();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -409,7 +478,7 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.addWaitTime(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 break;
               }
@@ -425,13 +494,12 @@ public class PooledDataSource implements DataSource {
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.addRequest(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
-            state.badConnectionCount++;
+            state.addBadConnection();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + 3)) {
@@ -496,6 +564,7 @@ public class PooledDataSource implements DataSource {
           } catch (Exception e) {
             log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
             try {
+              conn.closeStatements();
               conn.getRealConnection().close();
             } catch (Exception e2) {
               //ignore
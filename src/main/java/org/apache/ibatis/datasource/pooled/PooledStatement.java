@@ -0,0 +1,166 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Proxy of a prepared statement from a {@link PooledStatementCache}. Closing it resets the statement and
+ * returns it to the cache instead of closing it.
+ */
+class PooledStatement implements InvocationHandler {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  // properties the statement handlers may change, restored before the statement is reused
+  private static final int QUERY_TIMEOUT = 0;
+  private static final int FETCH_SIZE = 1;
+  private static final int MAX_ROWS = 2;
+  private static final int MAX_FIELD_SIZE = 3;
+  private static final int FETCH_DIRECTION = 4;
+
+  private final PreparedStatement realStatement;
+  private final PooledStatementCache.Key key;
+  private final PooledStatementCache cache;
+  private final Connection connection;
+  private final PreparedStatement proxyStatement;
+  private int[] originalValues;
+  private boolean[] changed;
+  private boolean closed;
+
+  PooledStatement(PreparedStatement realStatement, PooledStatementCache.Key key, PooledStatementCache cache, Connection connection) {
+    this.realStatement = realStatement;
+    this.key = key;
+    this.cache = cache;
+    this.connection = connection;
+    this.proxyStatement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES, this);
+  }
+
+  PreparedStatement getProxyStatement() {
+    return proxyStatement;
+  }
+
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if ("close".equals(methodName)) {
+      if (!closed) {
+        closed = true;
+        release();
+      }
+      return null;
+    } else if ("isClosed".equals(methodName)) {
+      return closed;
+    } else if ("getConnection".equals(methodName)) {
+      // the pooled proxy, never the physical connection
+      return connection;
+    } else if ("equals".equals(methodName) && args != null && args.length == 1) {
+      return proxy == args[0];
+    } else if ("hashCode".equals(methodName) && args == null) {
+      return System.identityHashCode(proxy);
+    }
+    try {
+      if (!Object.class.equals(method.getDeclaringClass())) {
+        if (closed) {
+          throw new SQLException("Statement is closed.");
+        }
+        if (args != null && args.length == 1 && methodName.startsWith("set")) {
+          rememberOriginalValue(methodName);
+        }
+      }
+      return method.invoke(realStatement, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private void rememberOriginalValue(String methodName) throws SQLException {
+    int property;
+    if ("setQueryTimeout".equals(methodName)) {
+      property = QUERY_TIMEOUT;
+    } else if ("setFetchSize".equals(methodName)) {
+      property = FETCH_SIZE;
+    } else if ("setMaxRows".equals(methodName)) {
+      property = MAX_ROWS;
+    } else if ("setMaxFieldSize".equals(methodName)) {
+      property = MAX_FIELD_SIZE;
+    } else if ("setFetchDirection".equals(methodName)) {
+      property = FETCH_DIRECTION;
+    } else {
+      return;
+    }
+    if (changed == null) {
+      originalValues = new int[5];
+      changed = new boolean[5];
+    }
+    if (!changed[property]) {
+      switch (property) {
+        case QUERY_TIMEOUT: originalValues[property] = realStatement.getQueryTimeout(); break;
+        case FETCH_SIZE: originalValues[property] = realStatement.getFetchSize(); break;
+        case MAX_ROWS: originalValues[property] = realStatement.getMaxRows(); break;
+        case MAX_FIELD_SIZE: originalValues[property] = realStatement.getMaxFieldSize(); break;
+        default: originalValues[property] = realStatement.getFetchDirection(); break;
+      }
+      changed[property] = true;
+    }
+  }
+
+  private void release() {
+    try {
+      ResultSet rs = realStatement.getResultSet();
+      if (rs != null) {
+        rs.close();
+      }
+      realStatement.clearParameters();
+      realStatement.clearBatch();
+      realStatement.clearWarnings();
+      if (changed != null) {
+        if (changed[QUERY_TIMEOUT]) {
+          realStatement.setQueryTimeout(originalValues[QUERY_TIMEOUT]);
+        }
+        if (changed[FETCH_SIZE]) {
+          realStatement.setFetchSize(originalValues[FETCH_SIZE]);
+        }
+        if (changed[MAX_ROWS]) {
+          realStatement.setMaxRows(originalValues[MAX_ROWS]);
+        }
+        if (changed[MAX_FIELD_SIZE]) {
+          realStatement.setMaxFieldSize(originalValues[MAX_FIELD_SIZE]);
+        }
+        if (changed[FETCH_DIRECTION]) {
+          realStatement.setFetchDirection(originalValues[FETCH_DIRECTION]);
+        }
+      }
+    } catch (Exception e) {
+      // a statement that cannot be reset is not reused
+      try {
+        realStatement.close();
+      } catch (Exception e2) {
+        // ignore
+      }
+      return;
+    }
+    cache.release(key, realStatement);
+  }
+
+}
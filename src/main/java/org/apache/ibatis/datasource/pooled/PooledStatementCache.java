@@ -0,0 +1,163 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the idle prepared statements of one physical connection.
+ * <p>
+ * A statement handed out by {@link PooledConnection} is removed from the cache and put back when it is closed,
+ * so the same SQL can be open more than once and every statement has at most one user. The cache belongs to
+ * the physical connection: it is handed from one {@link PooledConnection} to the next and cleared when the
+ * physical connection is closed.
+ */
+final class PooledStatementCache {
+
+  private final int size;
+  private final PoolState state;
+  private final Map<Key, PreparedStatement> statements;
+  private boolean closed;
+
+  PooledStatementCache(int size, PoolState state) {
+    this.size = size;
+    this.state = state;
+    this.statements = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true);
+  }
+
+  /**
+   * @return the key of a {@code prepareStatement} call or null if such statements are not cached
+   */
+  static Key keyFor(Object[] args) {
+    String sql = (String) args[0];
+    if (args.length == 1) {
+      return new Key(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1, null);
+    } else if (args.length == 2 && args[1] instanceof Integer) {
+      return new Key(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, (Integer) args[1], null);
+    } else if (args.length == 2 && args[1] instanceof String[]) {
+      return new Key(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1, (String[]) args[1]);
+    } else if (args.length == 3) {
+      return new Key(sql, (Integer) args[1], (Integer) args[2], -1, null);
+    }
+    return null;
+  }
+
+  synchronized PreparedStatement take(Key key) {
+    PreparedStatement statement = statements.remove(key);
+    if (statement == null) {
+      state.statementCacheMissCount.incrementAndGet();
+    } else {
+      state.statementCacheHitCount.incrementAndGet();
+    }
+    return statement;
+  }
+
+  /**
+   * Puts a closed statement back, or closes it if the cache is gone or already holds one for the same key.
+   */
+  void release(Key key, PreparedStatement statement) {
+    PreparedStatement evicted = statement;
+    synchronized (this) {
+      if (!closed && !statements.containsKey(key)) {
+        statements.put(key, statement);
+        evicted = null;
+        if (statements.size() > size) {
+          Iterator<PreparedStatement> eldest = statements.values().iterator();
+          evicted = eldest.next();
+          eldest.remove();
+        }
+      }
+    }
+    closeQuietly(evicted);
+  }
+
+  synchronized int size() {
+    return statements.size();
+  }
+
+  /**
+   * Closes every cached statement, called before the physical connection is closed.
+   */
+  synchronized void clear() {
+    closed = true;
+    for (PreparedStatement statement : statements.values()) {
+      closeQuietly(statement);
+    }
+    statements.clear();
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+  }
+
+  static final class Key {
+
+    private final String sql;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int autoGeneratedKeys;
+    private final String[] columnNames;
+    private final int hashCode;
+
+    Key(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys, String[] columnNames) {
+      this.sql = sql;
+      this.resultSetType = resultSetType;
+      this.resultSetConcurrency = resultSetConcurrency;
+      this.autoGeneratedKeys = autoGeneratedKeys;
+      this.columnNames = columnNames;
+      int hash = sql.hashCode();
+      hash = 31 * hash + resultSetType;
+      hash = 31 * hash + resultSetConcurrency;
+      hash = 31 * hash + autoGeneratedKeys;
+      hash = 31 * hash + Arrays.hashCode(columnNames);
+      this.hashCode = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode
+          && resultSetType == other.resultSetType
+          && resultSetConcurrency == other.resultSetConcurrency
+          && autoGeneratedKeys == other.autoGeneratedKeys
+          && sql.equals(other.sql)
+          && Arrays.equals(columnNames, other.columnNames);
+    }
+  }
+
+}
@@ -21,14 +21,22 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.BatchFlushPolicy;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -43,23 +51,49 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<Statement>();
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
+  //每个批次写入的表(无法识别时为null)，用于语句分组时判断能否并入之前的批次
+  private final List<String> tableList = new ArrayList<String>();
+  //表在本次flush窗口中首次出现的顺序
+  private final Map<String, Integer> tableOrder = new HashMap<String, Integer>();
   private String currentSql;
   private MappedStatement currentStatement;
 
+  private BatchFlushPolicy flushPolicy = BatchFlushPolicy.NONE;
+  //自动flush之后保留下来的结果(或汇总)，等待下一次flushStatements一起返回
+  private final List<BatchResult> flushedResults = new ArrayList<BatchResult>();
+  private final Map<String, BatchSummaryResult> summaries = new LinkedHashMap<String, BatchSummaryResult>();
+  private int pendingRows;
+  private long pendingBytes;
+
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
   }
 
+  public BatchExecutor(Configuration configuration, Transaction transaction, BatchFlushPolicy flushPolicy) {
+    super(configuration, transaction);
+    this.flushPolicy = flushPolicy == null ? BatchFlushPolicy.NONE : flushPolicy;
+  }
+
+  public BatchFlushPolicy getFlushPolicy() {
+    return flushPolicy;
+  }
+
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
     final Configuration configuration = ms.getConfiguration();
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
+    updating(boundSql);
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      BatchResult batchResult = batchResultList.get(last);
+    final int index;
+    if (configuration.isGroupBatchStatements()) {
+      index = findGroup(ms, sql);
+    } else {
+      index = sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+    }
+    if (index >= 0) {
+      stmt = statementList.get(index);
+      BatchResult batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
@@ -68,12 +102,118 @@ public class BatchExecutor extends BaseExecutor {
       currentStatement = ms;
       statementList.add(stmt);
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      String table = SqlTables.writtenTable(sql);
+      if (table != null && !tableOrder.containsKey(table)) {
+        tableOrder.put(table, tableOrder.size());
+      }
+      tableList.add(table);
     }
     handler.parameterize(stmt);
     handler.batch(stmt);
+    autoFlush(ms, boundSql, parameterObject);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /**
+   * 找到可以并入的已打开批次：同一语句同一SQL，并且之后打开的批次写的都是另一张已识别的、首次出现更晚的表。
+   * 这样同一张表上的修改保持原来的顺序，先出现的表(如主表)的修改也总在后出现的表(如子表)之前执行
+   *
+   * @return 批次的下标，没有则返回-1
+   */
+  private int findGroup(MappedStatement ms, String sql) {
+    final String table = SqlTables.writtenTable(sql);
+    final Integer order = table == null ? null : tableOrder.get(table);
+    for (int i = statementList.size() - 1; i >= 0; i--) {
+      BatchResult batchResult = batchResultList.get(i);
+      if (sql.equals(batchResult.getSql()) && ms.equals(batchResult.getMappedStatement())) {
+        return i;
+      }
+      String other = tableList.get(i);
+      if (order == null || other == null || tableOrder.get(other) <= order) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 达到行数或估算的内存阈值时自动执行已积累的批次，语句上的阈值优先于会话上的
+   */
+  private void autoFlush(MappedStatement ms, BoundSql boundSql, Object parameterObject) throws SQLException {
+    final int flushSize = threshold(ms.getBatchFlushSize(), flushPolicy.getFlushSize());
+    final long flushBytes = threshold(ms.getBatchFlushBytes(), flushPolicy.getFlushBytes());
+    pendingRows++;
+    if (flushBytes > 0) {
+      pendingBytes += estimateSize(ms, boundSql, parameterObject);
+    }
+    if ((flushSize > 0 && pendingRows >= flushSize) || (flushBytes > 0 && pendingBytes >= flushBytes)) {
+      List<BatchResult> results = doFlushStatements(false);
+      if (!flushPolicy.isSummaryResults()) {
+        flushedResults.addAll(results);
+      }
+    }
+  }
+
+  private static int threshold(Integer statementValue, int sessionValue) {
+    if (statementValue == null || statementValue <= 0) {
+      return sessionValue;
+    }
+    return sessionValue <= 0 ? statementValue : Math.min(statementValue, sessionValue);
+  }
+
+  private static long threshold(Long statementValue, long sessionValue) {
+    if (statementValue == null || statementValue <= 0) {
+      return sessionValue;
+    }
+    return sessionValue <= 0 ? statementValue : Math.min(statementValue, sessionValue);
+  }
+
+  /**
+   * 粗略估算一行参数值占用的字节数，取值方式与DefaultParameterHandler相同
+   */
+  private long estimateSize(MappedStatement ms, BoundSql boundSql, Object parameterObject) {
+    long size = 16;
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null) {
+      return size;
+    }
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = ms.getConfiguration().newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += estimateSize(value);
+    }
+    return size;
+  }
+
+  private static long estimateSize(Object value) {
+    if (value == null) {
+      return 8;
+    } else if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    } else if (value instanceof byte[]) {
+      return 16 + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 16 + 2L * ((char[]) value).length;
+    }
+    return 24;
+  }
+
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
     Statement stmt = null;
@@ -90,10 +230,22 @@ public class BatchExecutor extends BaseExecutor {
     }
   }
 
+  public <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    flushStatements();
+    Configuration configuration = ms.getConfiguration();
+    StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
+    Connection connection = getConnection(ms.getStatementLog());
+    Statement stmt = handler.prepare(connection);
+    handler.parameterize(stmt);
+    return handler.<E>queryCursor(stmt);
+  }
+
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
       List<BatchResult> results = new ArrayList<BatchResult>();
       if (isRollback) {
+        flushedResults.clear();
+        summaries.clear();
         return Collections.emptyList();
       } else {
         for (int i = 0, n = statementList.size(); i < n; i++) {
@@ -113,20 +265,34 @@ public class BatchExecutor extends BaseExecutor {
               }
             }
           } catch (BatchUpdateException e) {
+            //之前自动flush已执行的批次(或汇总)也一并报告为成功
+            List<BatchResult> successfulResults = new ArrayList<BatchResult>(flushedResults);
+            successfulResults.addAll(results);
+            successfulResults.addAll(summaries.values());
+            flushedResults.clear();
+            summaries.clear();
             StringBuffer message = new StringBuffer();
             message.append(batchResult.getMappedStatement().getId())
                 .append(" (batch index #")
                 .append(i + 1)
                 .append(")")
                 .append(" failed.");
-            if (i > 0) {
+            if (!successfulResults.isEmpty()) {
               message.append(" ")
-                  .append(i)
+                  .append(successfulResults.size())
                   .append(" prior sub executor(s) completed successfully, but will be rolled back.");
             }
-            throw new BatchExecutorException(message.toString(), e, results, batchResult);
+            throw new BatchExecutorException(message.toString(), e, successfulResults, batchResult);
+          }
+          if (flushPolicy.isReleaseParameters()) {
+            //主键已经回填，不再持有参数对象
+            batchResult.clearParameterObjects();
+          }
+          if (flushPolicy.isSummaryResults()) {
+            summarize(batchResult);
+          } else {
+            results.add(batchResult);
           }
-          results.add(batchResult);
         }
         return results;
       }
@@ -137,7 +303,38 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      tableList.clear();
+      tableOrder.clear();
+      pendingRows = 0;
+      pendingBytes = 0;
+    }
+  }
+
+  /**
+   * 用户调用flushStatements时，把自动flush期间积累的结果(或汇总)一起返回
+   */
+  @Override
+  public List<BatchResult> flushStatements(boolean isRollBack) throws SQLException {
+    List<BatchResult> results = super.flushStatements(isRollBack);
+    if (isRollBack || (flushedResults.isEmpty() && summaries.isEmpty())) {
+      return results;
+    }
+    List<BatchResult> allResults = new ArrayList<BatchResult>(flushedResults);
+    allResults.addAll(results);
+    allResults.addAll(summaries.values());
+    flushedResults.clear();
+    summaries.clear();
+    return allResults;
+  }
+
+  private void summarize(BatchResult batchResult) {
+    String key = batchResult.getMappedStatement().getId() + ":" + batchResult.getSql();
+    BatchSummaryResult summary = summaries.get(key);
+    if (summary == null) {
+      summary = new BatchSummaryResult(batchResult.getMappedStatement(), batchResult.getSql());
+      summaries.put(key, summary);
     }
+    summary.add(batchResult);
   }
 
 }
@@ -72,4 +72,8 @@ public class BatchResult {
     this.parameterObjects.add(parameterObject);
   }
 
+  public void clearParameterObjects() {
+    this.parameterObjects.clear();
+  }
+
 }
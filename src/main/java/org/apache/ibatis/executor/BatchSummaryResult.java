@@ -0,0 +1,82 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * Totals of every batch executed for one statement and SQL, kept instead of the individual results when
+ * the session's {@link org.apache.ibatis.session.BatchFlushPolicy} asks for summary results.
+ * It holds no parameter objects and its update counts are empty, so its size does not grow with the rows.
+ */
+public class BatchSummaryResult extends BatchResult {
+
+  private static final int[] NO_UPDATE_COUNTS = new int[0];
+
+  private long rowCount;
+  private long updateCount;
+  private long noInfoCount;
+  private int batchCount;
+
+  public BatchSummaryResult(MappedStatement mappedStatement, String sql) {
+    super(mappedStatement, sql);
+    setUpdateCounts(NO_UPDATE_COUNTS);
+  }
+
+  public void add(BatchResult batchResult) {
+    int[] updateCounts = batchResult.getUpdateCounts();
+    if (updateCounts != null) {
+      rowCount += updateCounts.length;
+      for (int count : updateCounts) {
+        if (count >= 0) {
+          updateCount += count;
+        } else {
+          noInfoCount++;
+        }
+      }
+    }
+    batchCount++;
+  }
+
+  /**
+   * @return rows executed
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return sum of the update counts reported by the driver
+   */
+  public long getUpdateCount() {
+    return updateCount;
+  }
+
+  /**
+   * @return rows the driver reported as SUCCESS_NO_INFO (or EXECUTE_FAILED)
+   */
+  public long getNoInfoCount() {
+    return noInfoCount;
+  }
+
+  /**
+   * @return JDBC batches executed
+   */
+  public int getBatchCount() {
+    return batchCount;
+  }
+
+}
@@ -15,12 +15,25 @@
  */
 package org.apache.ibatis.executor;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheVersions;
+import org.apache.ibatis.cache.ExpiringValue;
+import org.apache.ibatis.cache.TableTaggedValue;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
@@ -37,8 +50,18 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class CachingExecutor implements Executor {
 
+  private static final String[] ANY_TABLE = { TableVersions.ANY_TABLE };
+  private static final String[] UNKNOWN_TABLES = {};
+
   private Executor delegate;
   private TransactionalCacheManager tcm = new TransactionalCacheManager();
+  // tables written in this transaction, their versions are incremented on commit
+  private final Set<String> writtenTables = new HashSet<String>();
+  private TableVersions tableVersions;
+  // caches written in this transaction and the epochs of the caches it read, kept with a cache version table
+  private final Set<Cache> writtenCaches = new HashSet<Cache>();
+  private final Map<Cache, Long> readEpochs = new HashMap<Cache, Long>();
+  private CacheVersions cacheVersions;
 
   public CachingExecutor(Executor delegate) {
     this.delegate = delegate;
@@ -53,9 +76,20 @@ public class CachingExecutor implements Executor {
     try {
       //issues #499, #524 and #573
       if (forceRollback) { 
+        writtenTables.clear();
+        writtenCaches.clear();
+        readEpochs.clear();
         tcm.rollback();
       } else {
-        tcm.commit();
+        // only auto-commit sessions can have written caches here, the versions are committed right away
+        Map<String, Long> versions;
+        try {
+          versions = incrementCacheVersions();
+        } catch (SQLException e) {
+          throw new CacheException("Error incrementing the cache versions.  Cause: " + e, e);
+        }
+        incrementWrittenTables();
+        commitTransactionalCaches(versions);
       }
     } finally {
       delegate.close(forceRollback);
@@ -67,8 +101,20 @@ public class CachingExecutor implements Executor {
   }
 
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
-    return delegate.update(ms, parameterObject);
+    final CacheVersions cacheVersions = ms.getConfiguration().getCacheVersions();
+    if (cacheVersions != null && ms.getCache() != null && ms.isFlushCacheRequired()) {
+      this.cacheVersions = cacheVersions;
+      writtenCaches.add(ms.getCache());
+    }
+    if (!ms.getConfiguration().isTableCacheInvalidation()) {
+      flushCacheIfRequired(ms);
+      return delegate.update(ms, parameterObject);
+    }
+    try {
+      return delegate.update(ms, parameterObject);
+    } finally {
+      invalidateWrittenTables(ms, parameterObject);
+    }
   }
 
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
@@ -77,6 +123,11 @@ public class CachingExecutor implements Executor {
     return query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    flushCacheIfRequired(ms);
+    return delegate.queryCursor(ms, parameter, rowBounds);
+  }
+
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
       throws SQLException {
     Cache cache = ms.getCache();
@@ -84,11 +135,15 @@ public class CachingExecutor implements Executor {
       flushCacheIfRequired(ms);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, parameterObject, boundSql);
+        validateCacheVersion(ms, cache);
+        if (ms.getConfiguration().isTableCacheInvalidation()) {
+          return queryTableTagged(cache, ms, parameterObject, rowBounds, key, boundSql);
+        }
         @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
+        List<E> list = (List<E>) getObject(cache, key);
         if (list == null) {
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578. Query must be not synchronized to prevent deadlocks
+          putObject(ms, cache, key, list); // issue #578. Query must be not synchronized to prevent deadlocks
         }
         return list;
       }
@@ -96,13 +151,179 @@ public class CachingExecutor implements Executor {
     return delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  private Object getObject(Cache cache, CacheKey key) {
+    final Object value = tcm.getObject(cache, key);
+    // only an expiring cache unwraps the value itself
+    return value instanceof ExpiringValue ? ((ExpiringValue) value).getValue() : value;
+  }
+
+  /**
+   * 语句指定了缓存存活时间时 与结果一起放入 由ExpiringCache按此时间过期
+   */
+  private void putObject(MappedStatement ms, Cache cache, CacheKey key, Object value) {
+    final Long timeToLive = ms.getCacheTimeToLive();
+    tcm.putObject(cache, key, timeToLive == null ? value : new ExpiringValue(value, timeToLive));
+  }
+
+  /**
+   * 有缓存版本表时 查询前按间隔检查其他节点是否修改了该缓存 并记录本事务首次读到的缓存纪元
+   */
+  private void validateCacheVersion(MappedStatement ms, Cache cache) throws SQLException {
+    final CacheVersions cacheVersions = ms.getConfiguration().getCacheVersions();
+    if (cacheVersions != null) {
+      this.cacheVersions = cacheVersions;
+      final long epoch = cacheVersions.validate(delegate.getTransaction(), cache);
+      if (!readEpochs.containsKey(cache)) {
+        readEpochs.put(cache, epoch);
+      }
+    }
+  }
+
+  /**
+   * 在提交前用同一个连接增加本事务写过的缓存的版本
+   *
+   * @return 各缓存的新版本
+   */
+  private Map<String, Long> incrementCacheVersions() throws SQLException {
+    if (writtenCaches.isEmpty()) {
+      return null;
+    }
+    final Connection connection = delegate.getTransaction().getConnection();
+    final Map<String, Long> versions = new HashMap<String, Long>();
+    for (Cache cache : writtenCaches) {
+      versions.put(cache.getId(), cacheVersions.increment(connection, cache.getId()));
+    }
+    writtenCaches.clear();
+    return versions;
+  }
+
+  /**
+   * 事务期间被其他节点的写清空过的缓存不再放入本事务的结果 它们可能是在写之前读到的
+   */
+  private void commitTransactionalCaches(Map<String, Long> versions) {
+    if (readEpochs.isEmpty()) {
+      tcm.commit();
+    } else {
+      for (Iterator<Map.Entry<Cache, Long>> it = readEpochs.entrySet().iterator(); it.hasNext();) {
+        final Map.Entry<Cache, Long> entry = it.next();
+        if (cacheVersions.epoch(entry.getKey().getId()) != entry.getValue()) {
+          tcm.discardPuts(entry.getKey());
+          it.remove();
+        }
+      }
+      tcm.commit();
+      // cleared while the results were being put
+      for (Map.Entry<Cache, Long> entry : readEpochs.entrySet()) {
+        if (cacheVersions.epoch(entry.getKey().getId()) != entry.getValue()) {
+          entry.getKey().clear();
+        }
+      }
+      readEpochs.clear();
+    }
+    if (versions != null) {
+      for (Map.Entry<String, Long> version : versions.entrySet()) {
+        cacheVersions.committed(version.getKey(), version.getValue());
+      }
+    }
+  }
+
+  /**
+   * 按表失效时 缓存结果与其读取的表的版本一起保存 这些表被提交的写语句修改后结果即失效
+   */
+  private <E> List<E> queryTableTagged(Cache cache, MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql)
+      throws SQLException {
+    final TableVersions tableVersions = ms.getConfiguration().getTableVersions();
+    final Object cached = getObject(cache, key);
+    if (cached instanceof TableTaggedValue) {
+      final TableTaggedValue tagged = (TableTaggedValue) cached;
+      if (tagged.isCurrent(tableVersions) && !isWrittenInTransaction(tagged.getTables())) {
+        @SuppressWarnings("unchecked")
+        List<E> list = (List<E>) tagged.getValue();
+        return list;
+      }
+    }
+    String[] tables = ms.getTables();
+    if (tables == null) {
+      tables = inferTables(ms, boundSql.getSql(), true);
+    }
+    if (tables == null) {
+      tables = ANY_TABLE;
+    }
+    // the versions are taken before querying, a write committed in the meantime makes the result stale
+    final long[] versions = tableVersions.snapshot(tables);
+    List<E> list = delegate.<E> query(ms, parameterObject, rowBounds, null, key, boundSql);
+    putObject(ms, cache, key, new TableTaggedValue(list, tables, versions));
+    return list;
+  }
+
+  /**
+   * 写语句执行后只记录其修改的表 提交时再增加这些表的版本 无法确定表时退回到清空本命名空间的缓存
+   * 表名取自语句处理器已生成的sql 不再重复执行动态sql
+   */
+  private void invalidateWrittenTables(MappedStatement ms, Object parameterObject) {
+    if (!ms.isFlushCacheRequired()) {
+      return;
+    }
+    String[] tables = ms.getTables();
+    if (tables == null) {
+      final String sql = delegate instanceof BaseExecutor
+          ? ((BaseExecutor) delegate).getUpdatedSql()
+          : ms.getBoundSql(parameterObject).getSql();
+      tables = sql == null ? null : inferTables(ms, sql, false);
+    }
+    tableVersions = ms.getConfiguration().getTableVersions();
+    if (tables != null) {
+      writtenTables.addAll(Arrays.asList(tables));
+    } else if (ms.getCache() != null) {
+      tcm.clear(ms.getCache());
+    }
+    writtenTables.add(TableVersions.ANY_TABLE);
+  }
+
+  private boolean isWrittenInTransaction(String[] tables) {
+    if (!writtenTables.isEmpty()) {
+      for (String table : tables) {
+        if (writtenTables.contains(table)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void incrementWrittenTables() {
+    if (!writtenTables.isEmpty()) {
+      tableVersions.increment(writtenTables);
+      writtenTables.clear();
+    }
+  }
+
+  private String[] inferTables(MappedStatement ms, String sql, boolean read) {
+    String[] tables = ms.getSqlTables().get(sql);
+    if (tables == null) {
+      if (read) {
+        tables = SqlTables.readTables(sql);
+      } else {
+        String table = SqlTables.writtenTable(sql);
+        tables = table == null ? null : new String[] { table };
+      }
+      if (tables == null) {
+        tables = UNKNOWN_TABLES;
+      }
+      ms.getSqlTables().put(sql, tables);
+    }
+    return tables == UNKNOWN_TABLES ? null : tables;
+  }
+
   public List<BatchResult> flushStatements() throws SQLException {
     return delegate.flushStatements();
   }
 
   public void commit(boolean required) throws SQLException {
+    final Map<String, Long> versions = incrementCacheVersions();
     delegate.commit(required);
-    tcm.commit();
+    incrementWrittenTables();
+    commitTransactionalCaches(versions);
   }
 
   public void rollback(boolean required) throws SQLException {
@@ -110,6 +331,9 @@ public class CachingExecutor implements Executor {
       delegate.rollback(required);
     } finally {
       if (required) {
+        writtenTables.clear();
+        writtenCaches.clear();
+        readEpochs.clear();
         tcm.rollback();
       }
     }
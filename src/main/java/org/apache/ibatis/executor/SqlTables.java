@@ -0,0 +1,182 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a SQL statement reads or writes without a full parser.
+ * <p>
+ * Names are lower cased, unquoted and stripped of their schema, so the same table always gives the same
+ * name. Anything the scan cannot tell for sure, like a table function, gives null, and callers treat the
+ * statement as touching every table.
+ */
+final class SqlTables {
+
+  private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "where", "group", "order", "having", "union", "intersect", "except", "minus", "join", "inner", "left",
+      "right", "full", "cross", "outer", "natural", "on", "using", "limit", "offset", "fetch", "for", "window",
+      "connect", "start", "with"));
+
+  private SqlTables() {
+    // utility class
+  }
+
+  /**
+   * @return the table of an insert into, update, delete from or merge into statement, null for others
+   */
+  static String writtenTable(String sql) {
+    String[] tokens = sql.trim().split("\\s+", 4);
+    if (tokens.length < 2) {
+      return null;
+    }
+    String command = tokens[0].toLowerCase(Locale.ENGLISH);
+    String table;
+    if ("update".equals(command)) {
+      table = tokens[1];
+    } else if (tokens.length >= 3
+        && (("insert".equals(command) || "merge".equals(command)) && "into".equalsIgnoreCase(tokens[1])
+        || "delete".equals(command) && "from".equalsIgnoreCase(tokens[1]))) {
+      table = tokens[2];
+    } else {
+      return null;
+    }
+    int paren = table.indexOf('(');
+    if (paren == 0) {
+      return null;
+    } else if (paren > 0) {
+      table = table.substring(0, paren);
+    }
+    return normalize(table);
+  }
+
+  /**
+   * @return the tables after every from and join, including those of sub queries, or null if unsure
+   */
+  static String[] readTables(String sql) {
+    final List<String> tokens = tokenize(sql);
+    final Set<String> tables = new LinkedHashSet<String>();
+    final int size = tokens.size();
+    for (int i = 0; i < size; i++) {
+      final String token = tokens.get(i);
+      final boolean from = "from".equals(token);
+      if (!from && !"join".equals(token)) {
+        continue;
+      }
+      int j = i + 1;
+      while (j < size) {
+        final String name = tokens.get(j);
+        if ("(".equals(name)) {
+          // a sub query, its own from clause comes next
+          break;
+        }
+        if (!isIdentifier(name) || (j + 1 < size && "(".equals(tokens.get(j + 1)))) {
+          // a parameter, a literal or a table function
+          return null;
+        }
+        tables.add(normalize(name));
+        j++;
+        if (!from) {
+          break;
+        }
+        if (j < size && "as".equals(tokens.get(j))) {
+          j++;
+        }
+        if (j < size && isIdentifier(tokens.get(j)) && !CLAUSE_KEYWORDS.contains(tokens.get(j))) {
+          j++;
+        }
+        if (j < size && ",".equals(tokens.get(j))) {
+          j++;
+        } else {
+          break;
+        }
+      }
+    }
+    return tables.isEmpty() ? null : tables.toArray(new String[tables.size()]);
+  }
+
+  private static List<String> tokenize(String sql) {
+    final List<String> tokens = new ArrayList<String>();
+    final String text = sql.toLowerCase(Locale.ENGLISH);
+    final int length = text.length();
+    int i = 0;
+    while (i < length) {
+      final char c = text.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        i = skipQuoted(text, i, '\'');
+        tokens.add("'");
+      } else if (c == '-' && i + 1 < length && text.charAt(i + 1) == '-') {
+        final int end = text.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+        final int end = text.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (isNameChar(c) || isQuote(c)) {
+        final int start = i;
+        while (i < length && (isNameChar(text.charAt(i)) || isQuote(text.charAt(i)))) {
+          final char q = text.charAt(i);
+          i = isQuote(q) ? skipQuoted(text, i, q == '[' ? ']' : q) : i + 1;
+        }
+        tokens.add(text.substring(start, i));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static int skipQuoted(String text, int start, char close) {
+    final int end = text.indexOf(close, start + 1);
+    return end < 0 ? text.length() : end + 1;
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '.';
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '`' || c == '[';
+  }
+
+  private static boolean isIdentifier(String token) {
+    final char c = token.charAt(0);
+    return Character.isLetter(c) || c == '_' || isQuote(c);
+  }
+
+  private static String normalize(String name) {
+    final StringBuilder table = new StringBuilder(name.length());
+    for (int i = name.length() - 1; i >= 0; i--) {
+      final char c = name.charAt(i);
+      if (c == '.') {
+        break;
+      }
+      if (!isQuote(c) && c != ']') {
+        table.append(c);
+      }
+    }
+    return table.reverse().toString().toLowerCase(Locale.ENGLISH);
+  }
+
+}
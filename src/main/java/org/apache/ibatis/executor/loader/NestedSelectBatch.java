@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Collects the keys of a nested select for a whole result set and loads them with a statement that takes the
+ * list of keys, so n parents cost one query per chunk instead of n queries.
+ * <p>
+ * The batch statement receives the keys as <code>list</code> (and <code>collection</code>) and each returned
+ * object is assigned back by the value of its key property. Integral keys are compared as longs, so an
+ * INTEGER foreign key matches a BIGINT child column.
+ *
+ * @see BatchResultLoader
+ */
+public class NestedSelectBatch {
+
+  private final Configuration configuration;
+  private final MappedStatement mappedStatement;
+  private final String keyProperty;
+  private final int batchSize;
+
+  private final Set<Object> pendingKeys = new LinkedHashSet<Object>();
+  private final Map<Object, List<Object>> results = new HashMap<Object, List<Object>>();
+
+  public NestedSelectBatch(Configuration configuration, MappedStatement mappedStatement, String keyProperty) {
+    this.configuration = configuration;
+    this.mappedStatement = mappedStatement;
+    this.keyProperty = keyProperty;
+    this.batchSize = configuration.getNestedSelectBatchSize();
+  }
+
+  public synchronized void addKey(Object key) {
+    final Object normalized = normalize(key);
+    if (!results.containsKey(normalized)) {
+      pendingKeys.add(normalized);
+    }
+  }
+
+  /**
+   * Runs the batch statement for the keys that were not loaded yet. The keys of a chunk whose query fails stay
+   * pending, so the next load runs it again.
+   */
+  public synchronized void load(Executor executor) throws SQLException {
+    while (!pendingKeys.isEmpty()) {
+      final Map<Object, List<Object>> chunk = new HashMap<Object, List<Object>>();
+      final List<Object> chunkKeys = new ArrayList<Object>();
+      final Iterator<Object> keys = pendingKeys.iterator();
+      while (keys.hasNext() && (batchSize <= 0 || chunkKeys.size() < batchSize)) {
+        final Object key = keys.next();
+        keys.remove();
+        chunkKeys.add(key);
+        chunk.put(key, new ArrayList<Object>());
+      }
+      boolean loaded = false;
+      try {
+        final Map<String, Object> parameter = new HashMap<String, Object>();
+        parameter.put("list", chunkKeys);
+        parameter.put("collection", chunkKeys);
+        final List<Object> rows = executor.query(mappedStatement, parameter, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        for (Object row : rows) {
+          final MetaObject metaObject = configuration.newMetaObject(row);
+          final List<Object> list = chunk.get(normalize(metaObject.getValue(keyProperty)));
+          if (list != null) {
+            list.add(row);
+          }
+        }
+        loaded = true;
+      } finally {
+        if (loaded) {
+          results.putAll(chunk);
+        } else {
+          pendingKeys.addAll(chunkKeys);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the objects loaded for this key, empty if there were none or the key was not loaded yet
+   */
+  public synchronized List<Object> getResults(Object key) {
+    final List<Object> list = results.get(normalize(key));
+    return list == null ? Collections.<Object>emptyList() : list;
+  }
+
+  public MappedStatement getMappedStatement() {
+    return mappedStatement;
+  }
+
+  private static Object normalize(Object key) {
+    if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+      return Long.valueOf(((Number) key).longValue());
+    } else if (key instanceof BigInteger && ((BigInteger) key).bitLength() < 64) {
+      return Long.valueOf(((BigInteger) key).longValue());
+    } else if (key instanceof BigDecimal) {
+      try {
+        return Long.valueOf(((BigDecimal) key).longValueExact());
+      } catch (ArithmeticException e) {
+        return key;
+      }
+    }
+    return key;
+  }
+
+}
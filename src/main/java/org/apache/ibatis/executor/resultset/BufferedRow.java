@@ -0,0 +1,221 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * A read only {@link ResultSet} over one row of column values copied with <code>getObject</code>, so type
+ * handlers can run on another thread than the one that owns the JDBC result set.
+ * <p>
+ * Getters convert the copied value the way common drivers do, the <code>Calendar</code> variants read a
+ * timestamp without time zone as wall clock time in the zone of the calendar. Binary columns are not buffered,
+ * since their text form differs between drivers (see {@link #canBuffer}). Blobs, clobs and other locators are
+ * handed out as copied, so they must stay readable after the cursor moved on, which is the case until the end
+ * of the transaction for most drivers.
+ */
+final class BufferedRow implements InvocationHandler {
+
+  private final Map<String, Integer> columnIndexes;
+  private final ResultSetMetaData metaData;
+  private Object[] values;
+  private boolean wasNull;
+
+  BufferedRow(Map<String, Integer> columnIndexes, ResultSetMetaData metaData) {
+    this.columnIndexes = columnIndexes;
+    this.metaData = metaData;
+  }
+
+  ResultSet newResultSet() {
+    return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, this);
+  }
+
+  void setValues(Object[] values) {
+    this.values = values;
+    this.wasNull = false;
+  }
+
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    final String name = method.getName();
+    if (Object.class.equals(method.getDeclaringClass())) {
+      try {
+        return method.invoke(this, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } else if ("wasNull".equals(name)) {
+      return wasNull;
+    } else if ("getMetaData".equals(name)) {
+      return metaData;
+    } else if ("findColumn".equals(name)) {
+      return columnIndex(params[0]);
+    } else if (name.startsWith("get") && params != null && params.length > 0
+        && (params[0] instanceof Integer || params[0] instanceof String)) {
+      final Object value = values[columnIndex(params[0]) - 1];
+      wasNull = value == null;
+      final Object converted = convert(value, method.getReturnType(), name);
+      if (params.length > 1 && params[1] instanceof Calendar && converted instanceof Date) {
+        return inZone((Date) converted, (Calendar) params[1]);
+      } else if (params.length > 1 && params[1] instanceof Integer && converted instanceof BigDecimal) {
+        // the deprecated getBigDecimal with a scale
+        return ((BigDecimal) converted).setScale((Integer) params[1], BigDecimal.ROUND_HALF_UP);
+      }
+      return converted;
+    }
+    throw new SQLException("Method " + name + " is not supported on a buffered row");
+  }
+
+  /**
+   * @return false if a column of the result set cannot be converted from its buffered value like the driver would
+   */
+  static boolean canBuffer(List<JdbcType> jdbcTypes) {
+    for (JdbcType jdbcType : jdbcTypes) {
+      if (jdbcType == JdbcType.BINARY || jdbcType == JdbcType.VARBINARY || jdbcType == JdbcType.LONGVARBINARY) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Date inZone(Date value, Calendar calendar) {
+    final Calendar local = Calendar.getInstance();
+    local.setTime(value);
+    final Calendar zoned = (Calendar) calendar.clone();
+    zoned.clear();
+    zoned.set(local.get(Calendar.YEAR), local.get(Calendar.MONTH), local.get(Calendar.DAY_OF_MONTH),
+        local.get(Calendar.HOUR_OF_DAY), local.get(Calendar.MINUTE), local.get(Calendar.SECOND));
+    zoned.set(Calendar.MILLISECOND, local.get(Calendar.MILLISECOND));
+    final long time = zoned.getTimeInMillis();
+    if (value instanceof Timestamp) {
+      final Timestamp timestamp = new Timestamp(time);
+      timestamp.setNanos(((Timestamp) value).getNanos());
+      return timestamp;
+    } else if (value instanceof Time) {
+      return new Time(time);
+    }
+    return new java.sql.Date(time);
+  }
+
+  private int columnIndex(Object column) throws SQLException {
+    if (column instanceof Integer) {
+      final int index = (Integer) column;
+      if (index < 1 || index > values.length) {
+        throw new SQLException("Invalid column index " + index);
+      }
+      return index;
+    }
+    final Integer index = columnIndexes.get(((String) column).toUpperCase(Locale.ENGLISH));
+    if (index == null) {
+      throw new SQLException("Column '" + column + "' not found");
+    }
+    return index;
+  }
+
+  private static Object convert(Object value, Class<?> type, String getter) throws SQLException {
+    if (type.isPrimitive()) {
+      return convertPrimitive(value, type);
+    } else if (value == null || type.isInstance(value)) {
+      return value;
+    } else if (type == String.class) {
+      return value instanceof Clob ? ((Clob) value).getSubString(1, (int) ((Clob) value).length()) : value.toString();
+    } else if (type == BigDecimal.class) {
+      return value instanceof BigInteger ? new BigDecimal((BigInteger) value) : new BigDecimal(value.toString());
+    } else if (type == byte[].class && value instanceof Blob) {
+      return ((Blob) value).getBytes(1, (int) ((Blob) value).length());
+    } else if (type == Timestamp.class && value instanceof Date) {
+      return new Timestamp(((Date) value).getTime());
+    } else if (type == java.sql.Date.class && value instanceof Date) {
+      return new java.sql.Date(((Date) value).getTime());
+    } else if (type == Time.class && value instanceof Date) {
+      return new Time(((Date) value).getTime());
+    } else if (type == Reader.class) {
+      return value instanceof Clob ? ((Clob) value).getCharacterStream() : new StringReader(value.toString());
+    } else if (type == InputStream.class) {
+      if (value instanceof Blob) {
+        return ((Blob) value).getBinaryStream();
+      } else if (value instanceof byte[]) {
+        return new ByteArrayInputStream((byte[]) value);
+      }
+    }
+    throw new SQLException("Cannot convert " + value.getClass().getName() + " to " + type.getName() + " in " + getter);
+  }
+
+  private static Object convertPrimitive(Object value, Class<?> type) throws SQLException {
+    if (type == boolean.class) {
+      if (value == null) {
+        return Boolean.FALSE;
+      } else if (value instanceof Boolean) {
+        return value;
+      } else if (value instanceof Number) {
+        return ((Number) value).intValue() != 0;
+      }
+      final String text = value.toString().trim();
+      return "1".equals(text) || "true".equalsIgnoreCase(text);
+    }
+    final Number number;
+    if (value == null) {
+      number = 0;
+    } else if (value instanceof Number) {
+      number = (Number) value;
+    } else if (value instanceof Boolean) {
+      number = (Boolean) value ? 1 : 0;
+    } else {
+      try {
+        number = new BigDecimal(value.toString().trim());
+      } catch (NumberFormatException e) {
+        throw new SQLException("Cannot convert '" + value + "' to " + type.getName());
+      }
+    }
+    if (type == int.class) {
+      return number.intValue();
+    } else if (type == long.class) {
+      return number.longValue();
+    } else if (type == double.class) {
+      return number.doubleValue();
+    } else if (type == float.class) {
+      return number.floatValue();
+    } else if (type == short.class) {
+      return number.shortValue();
+    } else if (type == byte.class) {
+      return number.byteValue();
+    }
+    throw new SQLException("Cannot convert to " + type.getName());
+  }
+
+}
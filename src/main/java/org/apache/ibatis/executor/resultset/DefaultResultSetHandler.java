@@ -22,15 +22,22 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.columnar.ColumnarResultHandler;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
+import org.apache.ibatis.executor.loader.NestedSelectBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -62,6 +69,10 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object NO_VALUE = new Object();
+  private static final Object DEFERRED_VALUE = new Object();
+  private static final int MAX_ROW_MAPPING_PLANS = 64;
+  // a cleared HashMap keeps its table, the one of a bigger aggregate is dropped instead
+  private static final int MAX_RETAINED_NESTED_OBJECTS = 256;
   
   private final Executor executor;
   private final Configuration configuration;
@@ -74,9 +85,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ObjectFactory objectFactory;
 
   // nested resultmaps 嵌套结果
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
+  private Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
   private final Map<CacheKey, Object> ancestorObjects = new HashMap<CacheKey, Object>();
   private final Map<String, String> ancestorColumnPrefix = new HashMap<String, String>();
+  // 游标逐行读取时 暂存尚未交付的嵌套结果对象
+  private Object previousRowValue;
+  // 按顺序流式组装嵌套结果 主对象的key变化时交付上一个对象并释放其所有行key
+  private boolean streamingNestedResults;
+  // 简单结果映射是否交给线程池并行映射 游标逐行读取时关闭
+  private boolean pipelinedRows;
 
   // multiple resultsets 多个结果集
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
@@ -86,6 +103,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public MetaObject metaObject;
     public ResultMapping propertyMapping;
   }
+
+  // nested selects loaded in batches 按批加载的嵌套查询 立即加载的属性在整个结果集处理完后统一赋值
+  private final Map<ResultMapping, NestedSelectBatch> nestedSelectBatches = new IdentityHashMap<ResultMapping, NestedSelectBatch>();
+  private final List<PendingBatchLoad> pendingBatchLoads = new ArrayList<PendingBatchLoad>();
+  private boolean deferBatchLoads;
+
+  private static class PendingBatchLoad {
+    public MetaObject metaObject;
+    public String property;
+    public Object key;
+    public Class<?> targetType;
+    public NestedSelectBatch batch;
+  }
   
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler resultHandler, BoundSql boundSql,
       RowBounds rowBounds) {
@@ -98,6 +128,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
     this.resultHandler = resultHandler;
+    this.streamingNestedResults = mappedStatement.isResultOrdered();
+    this.pipelinedRows = configuration.getRowMappingThreads() > 0;
   }
 
   //
@@ -140,8 +172,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   public List<Object> handleResultSets(Statement stmt) throws SQLException {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+    if (resultHandler instanceof ColumnarResultHandler) {
+      return handleColumnarResultSet(stmt, (ColumnarResultHandler) resultHandler);
+    }
     
     final List<Object> multipleResults = new ArrayList<Object>();//创建一个新的并且为空的多个结果集对象
+    deferBatchLoads = resultHandler == null;//结果全部返回给调用者时 按批的嵌套查询才能推迟到最后执行
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);//获取第一个结果集 并返回ResultSetWrapper包装类 此类 把需要用到的字段等等之类的信息 进行了解析和保存  方便以后使用
@@ -171,10 +207,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         resultSetCount++;
       }
     }
+    loadPendingBatches();
     //返回结果  一般都是一个
     return collapseSingleResultList(multipleResults);
   }
 
+  /**
+   * 按列读取第一个结果集 不经过结果映射 也不为每行创建对象
+   */
+  private List<Object> handleColumnarResultSet(Statement stmt, ColumnarResultHandler columnarResultHandler) throws SQLException {
+    final ResultSetWrapper rsw = getFirstResultSet(stmt);
+    if (rsw != null) {
+      try {
+        skipRows(rsw.getResultSet(), rowBounds);
+        columnarResultHandler.handleResultSet(rsw, rowBounds.getLimit());
+      } finally {
+        closeResultSet(rsw.getResultSet());
+      }
+    }
+    return new ArrayList<Object>();
+  }
+
+  public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
+    ErrorContext.instance().activity("handling cursor results").object(mappedStatement.getId());
+
+    ResultSetWrapper rsw = getFirstResultSet(stmt);
+
+    List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+
+    int resultMapCount = resultMaps.size();
+    validateResultMapsCount(rsw, resultMapCount);
+    if (resultMapCount != 1) {
+      throw new ExecutorException("Cursor results cannot be mapped to multiple resultMaps");
+    }
+
+    ResultMap resultMap = resultMaps.get(0);
+    // a cursor hands out each aggregate once, so it can only be completed from ordered rows
+    streamingNestedResults = true;
+    // a cursor maps one row per call, reading ahead for the workers would lose rows
+    pipelinedRows = false;
+    return new DefaultCursor<E>(this, resultMap, rsw, rowBounds);
+  }
+
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
     ResultSet rs = stmt.getResultSet();
     while (rs == null) {
@@ -225,8 +299,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private void cleanUpAfterHandlingResultSet() {
-    nestedResultObjects.clear();
+    releaseNestedResultObjects();
     ancestorColumnPrefix.clear();
+    previousRowValue = null;
   }
   
   /**
@@ -289,7 +364,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @param parentMapping
    * @throws SQLException
    */
-  private void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
+  public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     if (resultMap.hasNestedResultMaps()) {//判断是否有多个结果集
       ensureNoRowBounds();
       checkResultHandler();
@@ -327,13 +402,68 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       throws SQLException {
     DefaultResultContext resultContext = new DefaultResultContext();//创建结果上下文对象
     skipRows(rsw.getResultSet(), rowBounds);
+    final boolean pipelined = pipelinedRows && parentMapping == null;
+    RowMappingPlan plan = configuration.isPrecompileRowMappers() || pipelined ? getRowMappingPlan(rsw, resultMap) : null;
+    if (pipelined && plan != null) {
+      if (canMapOnWorkers(resultMap, plan) && BufferedRow.canBuffer(rsw.getJdbcTypes())) {
+        new RowPipeline(rsw, plan, configuration).handleRows(resultHandler, resultContext, rowBounds);
+        return;
+      }
+      plan = configuration.isPrecompileRowMappers() ? plan : null;
+    }
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {//判断上下文情况 和数据库结果集是否还有数据
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap);
+      Object rowValue;
+      if (plan != null) {
+        rowValue = getRowValue(rsw, resultMap, plan);
+      } else {
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
+        rowValue = getRowValue(rsw, discriminatedResultMap);
+      }
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
     }
   }
 
+  /**
+   * 取得(或构建)该结果集形状下的行映射计划，不支持时返回null
+   * 解析结果记在ResultSetWrapper上，游标每行调用时直接复用
+   */
+  private RowMappingPlan getRowMappingPlan(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    RowMappingPlan plan = rsw.getRowMappingPlan(resultMap);
+    if (plan == null) {
+      final Map<String, RowMappingPlan> plans = mappedStatement.getRowMappingPlans();
+      final String shape = rsw.getShapeKey(resultMap);
+      plan = plans.get(shape);
+      if (plan == null) {
+        boolean autoMapping = shouldApplyAutomaticMappings(resultMap, !AutoMappingBehavior.NONE.equals(configuration.getAutoMappingBehavior()));
+        plan = RowMappingPlan.build(rsw, resultMap, configuration, autoMapping);
+        if (plans.size() < MAX_ROW_MAPPING_PLANS) {
+          plans.put(shape, plan);
+        }
+      }
+      rsw.setRowMappingPlan(resultMap, plan);
+    }
+    return plan == RowMappingPlan.UNSUPPORTED ? null : plan;
+  }
+
+  /**
+   * 工作线程只能按计划映射，ObjectFactory创建的对象类型须与计划一致且不需要包装
+   */
+  private boolean canMapOnWorkers(ResultMap resultMap, RowMappingPlan plan) {
+    final Object resultObject = objectFactory.create(resultMap.getType());
+    return resultObject != null && resultObject.getClass() == plan.getType() && !configuration.getObjectWrapperFactory().hasWrapperFor(resultObject);
+  }
+
+  /**
+   * 按预先编译好的计划映射一行，对象类型与计划不一致(如自定义ObjectFactory)时走普通流程
+   */
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowMappingPlan plan) throws SQLException {
+    final Object resultObject = objectFactory.create(resultMap.getType());
+    if (resultObject == null || resultObject.getClass() != plan.getType() || configuration.getObjectWrapperFactory().hasWrapperFor(resultObject)) {
+      return getRowValue(rsw, resultMap);
+    }
+    return plan.apply(rsw.getResultSet(), resultObject, configuration.isCallSettersOnNulls()) ? resultObject : null;
+  }
+
   private void storeObject(ResultHandler resultHandler, DefaultResultContext resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
@@ -435,7 +565,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     	  //获取字段的值
         Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
         final String property = propertyMapping.getProperty(); // issue #541 make property optional
-        if (value != NO_VALUE && property != null && (value != null || configuration.isCallSettersOnNulls())) { // issue #377, call setter on nulls
+        if (value == DEFERRED_VALUE) {//按批加载 处理完结果集后再赋值
+          foundValues = true;
+        } else if (value != NO_VALUE && property != null && (value != null || configuration.isCallSettersOnNulls())) { // issue #377, call setter on nulls
           if (value != null || !metaObject.getSetterType(property).isPrimitive()) {
             metaObject.setValue(property, value);//给匹配的字段 设置值
           }
@@ -735,6 +867,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final Class<?> targetType = propertyMapping.getJavaType();
       if (executor.isCached(nestedQuery, key)) {
         executor.deferLoad(nestedQuery, metaResultObject, property, key, targetType);
+      } else if (propertyMapping.getBatchQueryId() != null && (propertyMapping.isLazy() || deferBatchLoads)) {
+        final NestedSelectBatch batch = getNestedSelectBatch(propertyMapping);
+        if (propertyMapping.isLazy()) {
+          lazyLoader.addLoader(property, metaResultObject, new BatchResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql, batch));
+        } else {
+          addPendingBatchLoad(metaResultObject, property, nestedQueryParameterObject, targetType, batch);
+          value = DEFERRED_VALUE;
+        }
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
@@ -747,6 +887,51 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  //
+  // BATCHED NESTED QUERIES 按批执行的嵌套查询
+  //
+
+  private NestedSelectBatch getNestedSelectBatch(ResultMapping propertyMapping) {
+    NestedSelectBatch batch = nestedSelectBatches.get(propertyMapping);
+    if (batch == null) {
+      final MappedStatement batchQuery = configuration.getMappedStatement(propertyMapping.getBatchQueryId());
+      batch = new NestedSelectBatch(configuration, batchQuery, propertyMapping.getBatchKeyProperty());
+      nestedSelectBatches.put(propertyMapping, batch);
+    }
+    return batch;
+  }
+
+  private void addPendingBatchLoad(MetaObject metaObject, String property, Object key, Class<?> targetType, NestedSelectBatch batch) {
+    batch.addKey(key);
+    final PendingBatchLoad pending = new PendingBatchLoad();
+    pending.metaObject = metaObject;
+    pending.property = property;
+    pending.key = key;
+    pending.targetType = targetType;
+    pending.batch = batch;
+    pendingBatchLoads.add(pending);
+  }
+
+  /**
+   * 每个批次对所有父对象的关联值只执行一次(按nestedSelectBatchSize分段)，再把结果按关联值分配给父对象
+   */
+  private void loadPendingBatches() throws SQLException {
+    if (pendingBatchLoads.isEmpty()) {
+      return;
+    }
+    final ResultExtractor resultExtractor = new ResultExtractor(configuration, objectFactory);
+    for (PendingBatchLoad pending : pendingBatchLoads) {
+      pending.batch.load(executor);
+      final Object value = resultExtractor.extractObjectFromList(pending.batch.getResults(pending.key), pending.targetType);
+      if (value != null || configuration.isCallSettersOnNulls()) {
+        if (value != null || !pending.metaObject.getSetterType(pending.property).isPrimitive()) {
+          pending.metaObject.setValue(pending.property, value);
+        }
+      }
+    }
+    pendingBatchLoads.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -858,15 +1043,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void handleRowValuesForNestedResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
     final DefaultResultContext resultContext = new DefaultResultContext();
     skipRows(rsw.getResultSet(), rowBounds);
-    Object rowValue = null;
+    Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
-      if (mappedStatement.isResultOrdered()) { // issue #577 && #542
-        if (partialObject == null && rowValue != null) {
-          nestedResultObjects.clear();
-          storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+      if (streamingNestedResults) { // issue #577 && #542
+        if (partialObject == null) {
+          releaseNestedResultObjects();
+          if (rowValue != null) {
+            storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+          }
         }
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, rowKey, null, partialObject);
       } else {
@@ -876,8 +1063,22 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && streamingNestedResults && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+      previousRowValue = null;
+    } else if (rowValue != null && streamingNestedResults) {
+      previousRowValue = rowValue;
+    }
+  }
+
+  /**
+   * 释放已交付的嵌套结果的行key 使内存只与单个聚合对象相关
+   */
+  private void releaseNestedResultObjects() {
+    if (nestedResultObjects.size() > MAX_RETAINED_NESTED_OBJECTS) {
+      nestedResultObjects = new HashMap<CacheKey, Object>();
+    } else {
+      nestedResultObjects.clear();
     }
   }
   
@@ -1020,12 +1221,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
     if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
+      //与rowKey共享前缀 不复制其元素
+      CacheKey combinedKey = new CacheKey(rowKey);
       combinedKey.update(parentRowKey);
       return combinedKey;
     }
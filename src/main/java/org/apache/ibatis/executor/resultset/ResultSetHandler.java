@@ -20,6 +20,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 
+import org.apache.ibatis.cursor.Cursor;
+
 /**
  * 结果处理类
  * @author Clinton Begin
@@ -32,6 +34,14 @@ public interface ResultSetHandler {
 	 * @throws SQLException
 	 */
   <E> List<E> handleResultSets(Statement stmt) throws SQLException;
+
+  /**
+   * 处理结果集 返回游标 逐行映射
+   * @param stmt
+   * @return
+   * @throws SQLException
+   */
+  <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException;
   
   /**
    * 处理输出参数
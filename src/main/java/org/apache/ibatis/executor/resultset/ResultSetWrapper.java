@@ -39,7 +39,7 @@ import org.apache.ibatis.type.UnknownTypeHandler;
  * 看名字 顾名思义  结果集的包装类
  * @author Iwao AVE!
  */
-class ResultSetWrapper {
+public class ResultSetWrapper {
 	
 	/**
 	 * 原ResultSet对象
@@ -64,6 +64,10 @@ class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  /**
+   * 已解析的行映射计划，游标逐行映射时不必每行重新拼接形状key
+   */
+  private final Map<String, RowMappingPlan> rowMappingPlans = new HashMap<String, RowMappingPlan>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -86,6 +90,14 @@ class ResultSetWrapper {
     return this.columnNames;
   }
 
+  public TypeHandlerRegistry getTypeHandlerRegistry() {
+    return typeHandlerRegistry;
+  }
+
+  public List<JdbcType> getJdbcTypes() {
+    return this.jdbcTypes;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -172,6 +184,25 @@ class ResultSetWrapper {
     return unMappedColumnNames;
   }
 
+  /**
+   * 结果映射id加上各列的名称、jdbc类型与java类名，用作行映射计划的缓存key
+   */
+  public String getShapeKey(ResultMap resultMap) {
+    StringBuilder key = new StringBuilder(resultMap.getId());
+    for (int i = 0; i < columnNames.size(); i++) {
+      key.append('|').append(columnNames.get(i)).append(':').append(jdbcTypes.get(i)).append(':').append(classNames.get(i));
+    }
+    return key.toString();
+  }
+
+  RowMappingPlan getRowMappingPlan(ResultMap resultMap) {
+    return rowMappingPlans.get(resultMap.getId());
+  }
+
+  void setRowMappingPlan(ResultMap resultMap, RowMappingPlan plan) {
+    rowMappingPlans.put(resultMap.getId(), plan);
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
@@ -0,0 +1,327 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.PrimitiveBooleanTypeHandler;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandlers;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * The column to property assignments of a simple result map, resolved once for a given result set shape.
+ * <p>
+ * Each step holds the column, its {@link TypeHandler} and the setter {@link Invoker}, so mapping a row needs
+ * no property name parsing, column list or type handler lookups. Plans are only built for result maps without
+ * constructor args, discriminators, nested maps or selects, and for bean types without a type handler.
+ * <p>
+ * A primitive property whose type handler reads that primitive (see {@link PrimitiveTypeHandlers}) and whose
+ * setter is a {@link PrimitiveSetter} is copied without boxing the value.
+ *
+ * @see DefaultResultSetHandler
+ */
+public final class RowMappingPlan {
+
+  /**
+   * Marks a result map and shape the plans do not support.
+   */
+  static final RowMappingPlan UNSUPPORTED = new RowMappingPlan(null, new ArrayList<Step>());
+
+  private static final int BOXED = 0;
+  private static final int INT = 1;
+  private static final int LONG = 2;
+  private static final int DOUBLE = 3;
+  private static final int BOOLEAN = 4;
+
+  private final Class<?> type;
+  private final String[] columns;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final Invoker[] setters;
+  private final String[] properties;
+  private final boolean[] primitives;
+  private final int[] kinds;
+
+  private RowMappingPlan(Class<?> type, List<Step> steps) {
+    this.type = type;
+    int size = steps.size();
+    this.columns = new String[size];
+    this.columnIndexes = new int[size];
+    this.typeHandlers = new TypeHandler<?>[size];
+    this.setters = new Invoker[size];
+    this.properties = new String[size];
+    this.primitives = new boolean[size];
+    this.kinds = new int[size];
+    for (int i = 0; i < size; i++) {
+      Step step = steps.get(i);
+      columns[i] = step.column;
+      columnIndexes[i] = step.columnIndex;
+      typeHandlers[i] = step.typeHandler;
+      setters[i] = step.setter;
+      properties[i] = step.property;
+      primitives[i] = step.primitive;
+      kinds[i] = step.kind;
+    }
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  int size() {
+    return columns.length;
+  }
+
+  /**
+   * Same rules as the automatic and property mappings of {@link DefaultResultSetHandler}.
+   *
+   * @return true if at least one value was found
+   */
+  boolean apply(ResultSet rs, Object target, boolean callSettersOnNulls) throws SQLException {
+    boolean foundValues = false;
+    for (int i = 0; i < columns.length; i++) {
+      if (kinds[i] != BOXED) {
+        if (applyPrimitive(rs, target, i)) {
+          foundValues = true;
+        } else if (callSettersOnNulls) {
+          // a primitive property is never set to null
+          foundValues = true;
+        }
+        continue;
+      }
+      final Object value = columnIndexes[i] > 0
+          ? typeHandlers[i].getResult(rs, columnIndexes[i])
+          : typeHandlers[i].getResult(rs, columns[i]);
+      if (value != null || callSettersOnNulls) {
+        if (value != null || !primitives[i]) {
+          set(target, i, value);
+        }
+        foundValues = true;
+      }
+    }
+    return foundValues;
+  }
+
+  /**
+   * @return false if the column was null and the property was left alone
+   */
+  private boolean applyPrimitive(ResultSet rs, Object target, int i) throws SQLException {
+    final int columnIndex = columnIndexes[i];
+    final PrimitiveSetter setter = (PrimitiveSetter) setters[i];
+    try {
+      switch (kinds[i]) {
+        case INT: {
+          final PrimitiveIntTypeHandler typeHandler = (PrimitiveIntTypeHandler) typeHandlers[i];
+          final int value = columnIndex > 0 ? typeHandler.getInt(rs, columnIndex) : typeHandler.getInt(rs, columns[i]);
+          if (rs.wasNull()) {
+            return false;
+          }
+          setter.setInt(target, value);
+          return true;
+        }
+        case LONG: {
+          final PrimitiveLongTypeHandler typeHandler = (PrimitiveLongTypeHandler) typeHandlers[i];
+          final long value = columnIndex > 0 ? typeHandler.getLong(rs, columnIndex) : typeHandler.getLong(rs, columns[i]);
+          if (rs.wasNull()) {
+            return false;
+          }
+          setter.setLong(target, value);
+          return true;
+        }
+        case DOUBLE: {
+          final PrimitiveDoubleTypeHandler typeHandler = (PrimitiveDoubleTypeHandler) typeHandlers[i];
+          final double value = columnIndex > 0 ? typeHandler.getDouble(rs, columnIndex) : typeHandler.getDouble(rs, columns[i]);
+          if (rs.wasNull()) {
+            return false;
+          }
+          setter.setDouble(target, value);
+          return true;
+        }
+        default: {
+          final PrimitiveBooleanTypeHandler typeHandler = (PrimitiveBooleanTypeHandler) typeHandlers[i];
+          final boolean value = columnIndex > 0 ? typeHandler.getBoolean(rs, columnIndex) : typeHandler.getBoolean(rs, columns[i]);
+          if (rs.wasNull()) {
+            return false;
+          }
+          setter.setBoolean(target, value);
+          return true;
+        }
+      }
+    } catch (SQLException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + target.getClass() + "' Cause: " + t.toString(), ExceptionUtil.unwrapThrowable(t));
+    }
+  }
+
+  private void set(Object target, int i, Object value) {
+    try {
+      try {
+        setters[i].invoke(target, new Object[] { value });
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  /**
+   * @return the plan or {@link #UNSUPPORTED}
+   */
+  static RowMappingPlan build(ResultSetWrapper rsw, ResultMap resultMap, Configuration configuration, boolean autoMapping) throws SQLException {
+    final Class<?> type = resultMap.getType();
+    if (!isSupported(resultMap, configuration)) {
+      return UNSUPPORTED;
+    }
+    final Reflector reflector = Reflector.forClass(type);
+    final List<String> columnNames = rsw.getColumnNames();
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    final List<Step> steps = new ArrayList<Step>();
+    if (autoMapping) {
+      final MetaClass metaClass = MetaClass.forClass(type);
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        final String property = metaClass.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && metaClass.hasSetter(property)) {
+          if (property.indexOf('.') >= 0) {
+            return UNSUPPORTED;
+          }
+          final Class<?> propertyType = metaClass.getSetterType(property);
+          if (typeHandlerRegistry.hasTypeHandler(propertyType)) {
+            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+            steps.add(new Step(columnName, columnIndex(columnNames, columnName, typeHandler, typeHandlerRegistry), typeHandler,
+                reflector.getSetInvoker(property), property, propertyType));
+          }
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      if (column == null || property == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        // a mapping without property is read but never set, so it can be skipped
+        continue;
+      }
+      if (!reflector.hasSetter(property)) {
+        return UNSUPPORTED;
+      }
+      final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      steps.add(new Step(column, columnIndex(columnNames, column, typeHandler, typeHandlerRegistry), typeHandler,
+          reflector.getSetInvoker(property), property, reflector.getSetterType(property)));
+    }
+    return new RowMappingPlan(type, steps);
+  }
+
+  private static boolean isSupported(ResultMap resultMap, Configuration configuration) {
+    final Class<?> type = resultMap.getType();
+    if (!configuration.isUseColumnLabel()
+        || resultMap.hasNestedResultMaps()
+        || resultMap.hasNestedQueries()
+        || resultMap.getDiscriminator() != null
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || configuration.getTypeHandlerRegistry().hasTypeHandler(type)
+        || type.isInterface()
+        || type.isArray()
+        || Map.class.isAssignableFrom(type)
+        || Collection.class.isAssignableFrom(type)) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      final String property = propertyMapping.getProperty();
+      if (propertyMapping.isCompositeResult()
+          || propertyMapping.getResultSet() != null
+          || propertyMapping.getNestedResultMapId() != null
+          || (property != null && (property.indexOf('.') >= 0 || property.indexOf('[') >= 0))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Columns are read by index with the built-in type handlers only, custom handlers may implement just the
+   * by-name variant.
+   *
+   * @return the 1-based index of the first column with that label or 0 to read it by name
+   */
+  private static int columnIndex(List<String> columnNames, String column, TypeHandler<?> typeHandler,
+      TypeHandlerRegistry typeHandlerRegistry) {
+    if (!typeHandlerRegistry.isBuiltInTypeHandler(typeHandler)) {
+      return 0;
+    }
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(column)) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private static int kind(TypeHandler<?> typeHandler, Invoker setter, Class<?> propertyType) {
+    if (!propertyType.isPrimitive() || !(setter instanceof PrimitiveSetter)
+        || propertyType != PrimitiveTypeHandlers.getReadType(typeHandler)) {
+      return BOXED;
+    } else if (propertyType == int.class) {
+      return INT;
+    } else if (propertyType == long.class) {
+      return LONG;
+    } else if (propertyType == double.class) {
+      return DOUBLE;
+    }
+    return BOOLEAN;
+  }
+
+  private static class Step {
+    private final String column;
+    private final int columnIndex;
+    private final TypeHandler<?> typeHandler;
+    private final Invoker setter;
+    private final String property;
+    private final boolean primitive;
+    private final int kind;
+
+    Step(String column, int columnIndex, TypeHandler<?> typeHandler, Invoker setter, String property, Class<?> propertyType) {
+      this.column = column;
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.setter = setter;
+      this.property = property;
+      this.primitive = propertyType.isPrimitive();
+      this.kind = kind(typeHandler, setter, propertyType);
+    }
+  }
+
+}
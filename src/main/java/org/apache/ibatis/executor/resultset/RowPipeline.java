@@ -0,0 +1,232 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Maps the rows of a simple result map on a worker pool.
+ * <p>
+ * The thread that owns the result set only copies the raw column values of each row into reusable batches.
+ * The workers run the type handlers of the {@link RowMappingPlan} against a {@link BufferedRow} and build the
+ * result objects. The results are handed to the {@link ResultHandler} on the calling thread, in row order or
+ * in the order the batches complete. A result set that fits in one batch is mapped on the calling thread.
+ *
+ * @see Configuration#setRowMappingThreads(int)
+ */
+final class RowPipeline {
+
+  private final RowMappingPlan plan;
+  private final ObjectFactory objectFactory;
+  private final boolean callSettersOnNulls;
+  private final int batchSize;
+  private final int maxBatchesInFlight;
+  private final ExecutorService executorService;
+  private final CompletionService<RowBatch> completionService;
+  private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+  private final LinkedList<Future<RowBatch>> batchesInFlight = new LinkedList<Future<RowBatch>>();
+  private final List<RowBatch> freeBatches = new ArrayList<RowBatch>();
+  private final ResultSetWrapper rsw;
+  private final ResultSetMetaData metaData;
+
+  RowPipeline(ResultSetWrapper rsw, RowMappingPlan plan, Configuration configuration) throws SQLException {
+    this.rsw = rsw;
+    this.metaData = rsw.getResultSet().getMetaData();
+    this.plan = plan;
+    this.objectFactory = configuration.getObjectFactory();
+    this.callSettersOnNulls = configuration.isCallSettersOnNulls();
+    this.batchSize = Math.max(1, configuration.getRowMappingBatchSize());
+    this.maxBatchesInFlight = Math.max(1, configuration.getRowMappingThreads()) * 2;
+    this.executorService = configuration.getRowMappingExecutorService();
+    this.completionService = configuration.isOrderedRowMapping() ? null : new ExecutorCompletionService<RowBatch>(executorService);
+    final List<String> columnNames = rsw.getColumnNames();
+    for (int i = columnNames.size() - 1; i >= 0; i--) {
+      // the first column with a label wins, like ResultSet.findColumn
+      columnIndexes.put(columnNames.get(i).toUpperCase(Locale.ENGLISH), i + 1);
+    }
+  }
+
+  void handleRows(ResultHandler resultHandler, DefaultResultContext resultContext, RowBounds rowBounds) throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
+    RowBatch batch = null;
+    boolean submitted = false;
+    int rows = 0;
+    try {
+      while (!resultContext.isStopped() && rows < rowBounds.getLimit() && rs.next()) {
+        if (batch == null) {
+          batch = takeBatch();
+        }
+        batch.read(rs);
+        rows++;
+        if (batch.isFull()) {
+          submit(batch);
+          batch = null;
+          submitted = true;
+          deliverCompleted(resultHandler, resultContext, batchesInFlight.size() >= maxBatchesInFlight);
+        }
+      }
+      if (batch != null) {
+        if (submitted) {
+          submit(batch);
+        } else {
+          deliver(batch.call(), resultHandler, resultContext);
+        }
+      }
+      while (!batchesInFlight.isEmpty()) {
+        deliverCompleted(resultHandler, resultContext, true);
+      }
+    } catch (SQLException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutorException("Error mapping rows. Cause: " + e, e);
+    } finally {
+      for (Future<RowBatch> future : batchesInFlight) {
+        future.cancel(false);
+      }
+      batchesInFlight.clear();
+    }
+  }
+
+  private RowBatch takeBatch() {
+    final int size = freeBatches.size();
+    return size > 0 ? freeBatches.remove(size - 1) : new RowBatch(this, rsw.getColumnNames().size(), batchSize);
+  }
+
+  private void submit(RowBatch batch) {
+    batchesInFlight.add(completionService == null ? executorService.submit(batch) : completionService.submit(batch));
+  }
+
+  /**
+   * Delivers the batches that are done, waiting for the first one if asked to.
+   */
+  private void deliverCompleted(ResultHandler resultHandler, DefaultResultContext resultContext, boolean wait) throws Exception {
+    while (!batchesInFlight.isEmpty()) {
+      final Future<RowBatch> future;
+      if (completionService == null) {
+        future = batchesInFlight.getFirst();
+        if (!wait && !future.isDone()) {
+          return;
+        }
+        batchesInFlight.removeFirst();
+      } else {
+        future = wait ? completionService.take() : completionService.poll();
+        if (future == null) {
+          return;
+        }
+        batchesInFlight.remove(future);
+      }
+      deliver(get(future), resultHandler, resultContext);
+      wait = false;
+    }
+  }
+
+  private RowBatch get(Future<RowBatch> future) throws Exception {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while mapping rows", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  private void deliver(RowBatch batch, ResultHandler resultHandler, DefaultResultContext resultContext) {
+    for (int i = 0; i < batch.count && !resultContext.isStopped(); i++) {
+      resultContext.nextResultObject(batch.results[i]);
+      resultHandler.handleResult(resultContext);
+    }
+    batch.clear();
+    freeBatches.add(batch);
+  }
+
+  /**
+   * Reused rows of raw column values, filled on the result set thread and mapped on a worker.
+   */
+  private static final class RowBatch implements Callable<RowBatch> {
+    private final RowPipeline pipeline;
+    private final Object[][] rows;
+    private final Object[] results;
+    private final BufferedRow bufferedRow;
+    private final ResultSet rowResultSet;
+    private int count;
+
+    RowBatch(RowPipeline pipeline, int columnCount, int size) {
+      this.pipeline = pipeline;
+      this.rows = new Object[size][columnCount];
+      this.results = new Object[size];
+      this.bufferedRow = new BufferedRow(pipeline.columnIndexes, pipeline.metaData);
+      this.rowResultSet = bufferedRow.newResultSet();
+    }
+
+    void read(ResultSet rs) throws SQLException {
+      final Object[] values = rows[count++];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = rs.getObject(i + 1);
+      }
+    }
+
+    boolean isFull() {
+      return count == rows.length;
+    }
+
+    public RowBatch call() throws SQLException {
+      for (int i = 0; i < count; i++) {
+        bufferedRow.setValues(rows[i]);
+        final Object resultObject = pipeline.objectFactory.create(pipeline.plan.getType());
+        results[i] = pipeline.plan.apply(rowResultSet, resultObject, pipeline.callSettersOnNulls) ? resultObject : null;
+      }
+      return this;
+    }
+
+    void clear() {
+      for (int i = 0; i < count; i++) {
+        results[i] = null;
+      }
+      count = 0;
+    }
+  }
+
+}
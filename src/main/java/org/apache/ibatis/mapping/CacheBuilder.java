@@ -23,12 +23,21 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.TableVersions;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.CopyOnReadCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -42,6 +51,12 @@ public class CacheBuilder {
   private Integer size;
   private Long clearInterval;
   private boolean readWrite;
+  private CacheSerializer serializer;
+  private boolean copyOnRead;
+  private boolean blocking;
+  private Long timeToLive;
+  private Long timeToIdle;
+  private TableVersions tableVersions;
   private Properties properties;
 
   public CacheBuilder(String id) {
@@ -76,6 +91,36 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder serializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
+  public CacheBuilder copyOnRead(boolean copyOnRead) {
+    this.copyOnRead = copyOnRead;
+    return this;
+  }
+
+  public CacheBuilder blocking(boolean blocking) {
+    this.blocking = blocking;
+    return this;
+  }
+
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  public CacheBuilder timeToIdle(Long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    return this;
+  }
+
+  public CacheBuilder tableVersions(TableVersions tableVersions) {
+    this.tableVersions = tableVersions;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
@@ -85,15 +130,31 @@ public class CacheBuilder {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
-    if (PerpetualCache.class.equals(cache.getClass())) { // issue #352, do not apply decorators to custom caches
+    if (PerpetualCache.class.equals(cache.getClass())
+        || OffHeapCache.class.equals(cache.getClass())) { // issue #352, do not apply decorators to custom caches
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
       }
       cache = setStandardDecorators(cache);
+    } else if (ConcurrentCache.class.equals(cache.getClass())) {
+      cache = setConcurrentDecorators((ConcurrentCache) cache);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
     }
+    // outside of the synchronized decorators, the entries are removed from the timer wheel's thread
+    if (timeToLive != null || timeToIdle != null) {
+      cache = new ExpiringCache(cache);
+      ((ExpiringCache) cache).setTimeToLive(timeToLive == null ? 0 : timeToLive);
+      ((ExpiringCache) cache).setTimeToIdle(timeToIdle == null ? 0 : timeToIdle);
+      setCacheProperties(cache);
+    }
+    // outermost, so TransactionalCache sees it and a waiting thread holds no other cache lock
+    if (blocking) {
+      cache = new BlockingCache(cache);
+      ((BlockingCache) cache).setTableVersions(tableVersions);
+      setCacheProperties(cache);
+    }
     return cache;
   }
 
@@ -116,17 +177,71 @@ public class CacheBuilder {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
-      if (readWrite) {
-        cache = new SerializedCache(cache);
+      // the off heap store only holds bytes, so it is always serialized
+      if (OffHeapCache.class.equals(implementation)) {
+        cache = new SerializedCache(cache, getSerializer());
+      } else if (readWrite) {
+        cache = newCopyDecorator(cache);
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      // the off heap store locks itself, the other decorators on top of it keep no state that needs the lock
+      if (!OffHeapCache.class.equals(implementation) || !decorators.isEmpty()) {
+        cache = new SynchronizedCache(cache);
+      }
       return cache;
     } catch (Exception e) {
       throw new CacheException("Error building standard cache decorators.  Cause: " + e, e);
     }
   }
 
+  private Cache setConcurrentDecorators(ConcurrentCache concurrentCache) {
+    try {
+      // LRU and FIFO are built into the concurrent cache, any other eviction decorator still needs the lock
+      boolean needsSynchronization = false;
+      Cache cache = concurrentCache;
+      for (Class<? extends Cache> decorator : decorators) {
+        if (LruCache.class.equals(decorator)) {
+          concurrentCache.setEviction(ConcurrentCache.EVICTION_LRU);
+        } else if (FifoCache.class.equals(decorator)) {
+          concurrentCache.setEviction(ConcurrentCache.EVICTION_FIFO);
+        } else {
+          cache = newCacheDecoratorInstance(decorator, cache);
+          setCacheProperties(cache);
+          needsSynchronization = true;
+        }
+      }
+      if (size != null) {
+        concurrentCache.setSize(size);
+      }
+      if (clearInterval != null) {
+        concurrentCache.setClearInterval(clearInterval);
+      }
+      if (readWrite) {
+        cache = newCopyDecorator(cache);
+      }
+      cache = new LoggingCache(cache);
+      if (needsSynchronization) {
+        cache = new SynchronizedCache(cache);
+      }
+      return cache;
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error building concurrent cache decorators.  Cause: " + e, e);
+    }
+  }
+
+  private Cache newCopyDecorator(Cache cache) {
+    if (copyOnRead) {
+      return new CopyOnReadCache(cache, getSerializer());
+    }
+    return new SerializedCache(cache, getSerializer());
+  }
+
+  private CacheSerializer getSerializer() {
+    return serializer != null ? serializer : new JavaCacheSerializer();
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
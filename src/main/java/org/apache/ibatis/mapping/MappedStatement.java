@@ -17,10 +17,16 @@ package org.apache.ibatis.mapping;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.resultset.RowMappingPlan;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
@@ -33,6 +39,8 @@ import org.apache.ibatis.session.Configuration;
  */
 public final class MappedStatement {
 
+  private static final int MAX_SQL_TABLES = 64;
+
   private String resource;
   private Configuration configuration;
   private String id;
@@ -56,6 +64,21 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Integer batchFlushSize;
+  private Long batchFlushBytes;
+  private String[] tables;
+  private Long cacheTimeToLive;
+  //按结果集形状缓存的行映射计划，跨多次执行复用
+  private final ConcurrentMap<String, RowMappingPlan> rowMappingPlans = new ConcurrentHashMap<String, RowMappingPlan>();
+  //按sql缓存从语句中推断出的表名，跨多次执行复用，超出上限时淘汰最久未用的
+  private final Map<String, String[]> sqlTables = Collections.synchronizedMap(new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+      return size() > MAX_SQL_TABLES;
+    }
+  });
 
   private MappedStatement() {
     // constructor disabled
@@ -171,7 +194,36 @@ public final class MappedStatement {
       mappedStatement.resultSets = delimitedStringtoArray(resultSet);
       return this;
     }
+
+    public Builder batchFlushSize(Integer batchFlushSize) {
+      mappedStatement.batchFlushSize = batchFlushSize;
+      return this;
+    }
+
+    public Builder batchFlushBytes(Long batchFlushBytes) {
+      mappedStatement.batchFlushBytes = batchFlushBytes;
+      return this;
+    }
+
+    //语句读(select)或写(insert/update/delete)的表 按表失效二级缓存时使用
+    public Builder tables(String tables) {
+      String[] names = delimitedStringtoArray(tables);
+      if (names != null) {
+        for (int i = 0; i < names.length; i++) {
+          String table = names[i].trim().toLowerCase(Locale.ENGLISH);
+          names[i] = table.substring(table.lastIndexOf('.') + 1).replaceAll("[\"`\\[\\]]", "");
+        }
+      }
+      mappedStatement.tables = names;
+      return this;
+    }
     
+    //覆盖二级缓存默认值的结果存活毫秒数
+    public Builder cacheTimeToLive(Long cacheTimeToLive) {
+      mappedStatement.cacheTimeToLive = cacheTimeToLive;
+      return this;
+    }
+
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
       assert mappedStatement.id != null;
@@ -274,6 +326,42 @@ public final class MappedStatement {
     return resultSets;
   }
   
+  //批量执行时该语句自动flush的行数阈值，null表示沿用会话的设置
+  public Integer getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  public Long getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  //声明的表名，null表示需要从sql中推断
+  public String[] getTables() {
+    return tables;
+  }
+
+  //结果在二级缓存中的存活毫秒数，null表示使用缓存的设置
+  public Long getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  public Map<String, String[]> getSqlTables() {
+    return sqlTables;
+  }
+
+  public ConcurrentMap<String, RowMappingPlan> getRowMappingPlans() {
+    return rowMappingPlans;
+  }
+
+  //动态sql形状缓存的命中次数，非动态sql返回0
+  public long getSqlShapeCacheHits() {
+    return sqlSource instanceof ShapeCachingSqlSource ? ((ShapeCachingSqlSource) sqlSource).getShapeCacheHits() : 0;
+  }
+
+  public long getSqlShapeCacheMisses() {
+    return sqlSource instanceof ShapeCachingSqlSource ? ((ShapeCachingSqlSource) sqlSource).getShapeCacheMisses() : 0;
+  }
+
   /**
    * 获取具体sql的包装类BoundSql
    * @param parameterObject
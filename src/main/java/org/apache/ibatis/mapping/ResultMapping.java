@@ -45,6 +45,8 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private String batchQueryId;
+  private String batchKeyProperty;
 
   private ResultMapping() {
   }
@@ -131,6 +133,16 @@ public class ResultMapping {
       resultMapping.lazy = lazy;
       return this;
     }
+
+    public Builder batchQueryId(String batchQueryId) {
+      resultMapping.batchQueryId = batchQueryId;
+      return this;
+    }
+
+    public Builder batchKeyProperty(String batchKeyProperty) {
+      resultMapping.batchKeyProperty = batchKeyProperty;
+      return this;
+    }
     
     //返回构建好的resultMapping
     public ResultMapping build() {
@@ -156,6 +168,15 @@ public class ResultMapping {
       if (resultMapping.nestedResultMapId == null && resultMapping.column == null && resultMapping.composites.size() == 0) {
         throw new IllegalStateException("Mapping is missing column attribute for property " + resultMapping.property);
       }
+      //按批嵌套查询需要嵌套查询、单列的关联字段以及结果中对应的属性
+      if (resultMapping.batchQueryId != null) {
+        if (resultMapping.nestedQueryId == null || resultMapping.composites.size() > 0) {
+          throw new IllegalStateException("batchSelect requires a select with a single column in property " + resultMapping.property);
+        }
+        if (resultMapping.batchKeyProperty == null) {
+          throw new IllegalStateException("batchSelect requires a batchKeyProperty in property " + resultMapping.property);
+        }
+      }
       if (resultMapping.getResultSet() != null) {
         int numColums = 0;
         if (resultMapping.column != null) {
@@ -254,6 +275,14 @@ public class ResultMapping {
   public void setLazy(boolean lazy) {
     this.lazy = lazy;
   }
+
+  public String getBatchQueryId() {
+    return batchQueryId;
+  }
+
+  public String getBatchKeyProperty() {
+    return batchKeyProperty;
+  }
   
   @Override
   public boolean equals(Object o) {
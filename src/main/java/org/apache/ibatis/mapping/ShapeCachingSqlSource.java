@@ -0,0 +1,28 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+/**
+ * A {@link SqlSource} that caches the SQL it parsed for each shape of the generated statement.
+ * 按sql形状缓存解析结果的SqlSource 通过MappedStatement暴露命中统计
+ */
+public interface ShapeCachingSqlSource extends SqlSource {
+
+  long getShapeCacheHits();
+
+  long getShapeCacheMisses();
+
+}
@@ -29,9 +29,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.ibatis.reflection.invoker.FastMethodInvoker;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveMethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
 
@@ -45,6 +47,7 @@ import org.apache.ibatis.reflection.property.PropertyNamer;
 public class Reflector {
 
   private static boolean classCacheEnabled = true;
+  private static boolean accessorGenerationEnabled = false;
   private static final String[] EMPTY_STRING_ARRAY = new String[0];
   private static final Map<Class<?>, Reflector> REFLECTOR_MAP = new ConcurrentHashMap<Class<?>, Reflector>();
 
@@ -56,6 +59,8 @@ public class Reflector {
   private Map<String, Class<?>> setTypes = new HashMap<String, Class<?>>();
   private Map<String, Class<?>> getTypes = new HashMap<String, Class<?>>();
   private Constructor<?> defaultConstructor;
+  private Map<String, Method> getterMethods = new HashMap<String, Method>();
+  private Map<String, Method> setterMethods = new HashMap<String, Method>();
 
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<String, String>();
 
@@ -65,6 +70,9 @@ public class Reflector {
     addGetMethods(clazz);
     addSetMethods(clazz);
     addFields(clazz);
+    if (accessorGenerationEnabled) {
+      generateAccessors();
+    }
     readablePropertyNames = getMethods.keySet().toArray(new String[getMethods.keySet().size()]);
     writeablePropertyNames = setMethods.keySet().toArray(new String[setMethods.keySet().size()]);
     for (String propName : readablePropertyNames) {
@@ -149,6 +157,7 @@ public class Reflector {
   private void addGetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
       getMethods.put(name, new MethodInvoker(method));
+      getterMethods.put(name, method);
       getTypes.put(name, method.getReturnType());
     }
   }
@@ -214,10 +223,37 @@ public class Reflector {
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
       setMethods.put(name, new MethodInvoker(method));
+      setterMethods.put(name, method);
       setTypes.put(name, method.getParameterTypes()[0]);
     }
   }
 
+  //用cglib为getter/setter生成FastClass，按预先解析好的下标直接调用，生成失败则保留反射调用
+  //基本类型的setter再用javassist生成不装箱的PrimitiveSetter
+  private void generateAccessors() {
+    Map<String, Invoker> generatedGetters = new HashMap<String, Invoker>(getMethods);
+    Map<String, Invoker> generatedSetters = new HashMap<String, Invoker>(setMethods);
+    try {
+      FastMethodInvoker.generate(type, generatedGetters, getterMethods);
+      FastMethodInvoker.generate(type, generatedSetters, setterMethods);
+      getMethods = generatedGetters;
+      setMethods = generatedSetters;
+    } catch (LinkageError e) {
+      // cglib missing or the class cannot be defined, keep using reflection
+    } catch (RuntimeException e) {
+      // same as above
+    }
+    generatedSetters = new HashMap<String, Invoker>(setMethods);
+    try {
+      PrimitiveMethodInvoker.generate(type, generatedSetters, setterMethods);
+      setMethods = generatedSetters;
+    } catch (LinkageError e) {
+      // javassist missing, primitive setters box their values
+    } catch (RuntimeException e) {
+      // same as above
+    }
+  }
+
   private void addFields(Class<?> clazz) {
     Field[] fields = clazz.getDeclaredFields();
     for (Field field : fields) {
@@ -479,4 +515,18 @@ public class Reflector {
   public static boolean isClassCacheEnabled() {
     return classCacheEnabled;
   }
+
+  /*
+   * Reflectors created after this call use generated accessor classes (requires cglib) for
+   * their getters and setters instead of Method.invoke. Reflectors are cached per class for the
+   * whole JVM, so classes already reflected keep their invokers. Normally set through the
+   * accessorGenerationEnabled setting of the Configuration.
+   */
+  public static void setAccessorGenerationEnabled(boolean accessorGenerationEnabled) {
+    Reflector.accessorGenerationEnabled = accessorGenerationEnabled;
+  }
+
+  public static boolean isAccessorGenerationEnabled() {
+    return accessorGenerationEnabled;
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import net.sf.cglib.reflect.FastClass;
+
+/**
+ * Calls a getter or setter through a cglib generated {@link FastClass}: the generated class dispatches
+ * on a pre-resolved method index with a plain <code>switch</code>, so there is no
+ * <code>Method.invoke</code> on the hot path.
+ */
+public class FastMethodInvoker extends MethodInvoker {
+
+  private final FastClass fastClass;
+  private final int index;
+
+  private FastMethodInvoker(Method method, FastClass fastClass, int index) {
+    super(method);
+    this.fastClass = fastClass;
+    this.index = index;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    return fastClass.invoke(index, target, args);
+  }
+
+  /**
+   * Replaces the {@link MethodInvoker}s of the map with generated ones. Methods the generated class cannot
+   * call (private or declared by an inaccessible class) keep their reflective invoker.
+   *
+   * @throws LinkageError if cglib is not on the classpath or the accessor class cannot be defined
+   */
+  public static void generate(Class<?> type, Map<String, Invoker> invokers, Map<String, Method> methods) {
+    if (methods.isEmpty()) {
+      return;
+    }
+    FastClass fastClass = FastClass.create(type);
+    for (Map.Entry<String, Method> entry : methods.entrySet()) {
+      Method method = entry.getValue();
+      int index = fastClass.getIndex(method.getName(), method.getParameterTypes());
+      if (index >= 0) {
+        invokers.put(entry.getKey(), new FastMethodInvoker(method, fastClass, index));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+/**
+ * Calls the setter of a primitive property through a javassist generated subclass, which overrides the
+ * <code>setXxx</code> method of the property type with a plain call of the setter, so the value is never boxed.
+ * <p>
+ * All other calls, including {@link #invoke(Object, Object[])}, go to the invoker it replaces.
+ */
+public abstract class PrimitiveMethodInvoker extends MethodInvoker implements PrimitiveSetter {
+
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  private final Invoker delegate;
+
+  protected PrimitiveMethodInvoker(Method method, Invoker delegate) {
+    super(method);
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    return delegate.invoke(target, args);
+  }
+
+  public void setInt(Object target, int value) throws IllegalAccessException, InvocationTargetException {
+    delegate.invoke(target, new Object[] { value });
+  }
+
+  public void setLong(Object target, long value) throws IllegalAccessException, InvocationTargetException {
+    delegate.invoke(target, new Object[] { value });
+  }
+
+  public void setDouble(Object target, double value) throws IllegalAccessException, InvocationTargetException {
+    delegate.invoke(target, new Object[] { value });
+  }
+
+  public void setBoolean(Object target, boolean value) throws IllegalAccessException, InvocationTargetException {
+    delegate.invoke(target, new Object[] { value });
+  }
+
+  /**
+   * Replaces the invokers of the public <code>int</code>, <code>long</code>, <code>double</code> and
+   * <code>boolean</code> setters of the map with generated ones. Setters that cannot be generated keep
+   * their invoker.
+   *
+   * @throws LinkageError if javassist is not on the classpath
+   */
+  public static void generate(Class<?> type, Map<String, Invoker> invokers, Map<String, Method> methods) {
+    final ClassLoader loader = type.getClassLoader();
+    if (loader == null) {
+      return;
+    }
+    ClassPool pool = null;
+    for (Map.Entry<String, Method> entry : methods.entrySet()) {
+      final Method method = entry.getValue();
+      final String suffix = suffix(method.getParameterTypes()[0]);
+      if (suffix == null || !isPublic(method)) {
+        continue;
+      }
+      if (pool == null) {
+        pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(loader));
+        pool.appendClassPath(new ClassClassPath(PrimitiveMethodInvoker.class));
+      }
+      final Invoker delegate = invokers.get(entry.getKey());
+      try {
+        invokers.put(entry.getKey(), define(pool, loader, type, method, suffix, delegate));
+      } catch (Exception e) {
+        // keep the invoker we have
+      }
+    }
+  }
+
+  private static Invoker define(ClassPool pool, ClassLoader loader, Class<?> type, Method method, String suffix,
+      Invoker delegate) throws Exception {
+    final CtClass ctClass = pool.makeClass(type.getName() + "$$PrimitiveSetterByMyBatis$$" + COUNTER.incrementAndGet(),
+        pool.get(PrimitiveMethodInvoker.class.getName()));
+    try {
+      ctClass.addConstructor(CtNewConstructor.make(
+          new CtClass[] { pool.get(Method.class.getName()), pool.get(Invoker.class.getName()) }, new CtClass[0],
+          "{ super($1, $2); }", ctClass));
+      ctClass.addMethod(CtNewMethod.make("public void set" + suffix + "(Object target, "
+          + method.getParameterTypes()[0].getName() + " value) { ((" + method.getDeclaringClass().getName()
+          + ") target)." + method.getName() + "(value); }", ctClass));
+      final Class<?> generated = ctClass.toClass(loader, type.getProtectionDomain());
+      return (Invoker) generated.getConstructor(Method.class, Invoker.class).newInstance(method, delegate);
+    } finally {
+      ctClass.detach();
+    }
+  }
+
+  private static boolean isPublic(Method method) {
+    if (!Modifier.isPublic(method.getModifiers())) {
+      return false;
+    }
+    for (Class<?> c = method.getDeclaringClass(); c != null; c = c.getDeclaringClass()) {
+      if (!Modifier.isPublic(c.getModifiers())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String suffix(Class<?> parameterType) {
+    if (parameterType == int.class) {
+      return "Int";
+    } else if (parameterType == long.class) {
+      return "Long";
+    } else if (parameterType == double.class) {
+      return "Double";
+    } else if (parameterType == boolean.class) {
+      return "Boolean";
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * An {@link Invoker} of a primitive property that can also be called without boxing the value.
+ * <p>
+ * Only the method matching the type of the property may be called.
+ */
+public interface PrimitiveSetter extends Invoker {
+
+  void setInt(Object target, int value) throws IllegalAccessException, InvocationTargetException;
+
+  void setLong(Object target, long value) throws IllegalAccessException, InvocationTargetException;
+
+  void setDouble(Object target, double value) throws IllegalAccessException, InvocationTargetException;
+
+  void setBoolean(Object target, boolean value) throws IllegalAccessException, InvocationTargetException;
+
+}
@@ -21,7 +21,7 @@ import java.lang.reflect.InvocationTargetException;
 /**
  * @author Clinton Begin
  */
-public class SetFieldInvoker implements Invoker {
+public class SetFieldInvoker implements PrimitiveSetter {
   private Field field;
 
   public SetFieldInvoker(Field field) {
@@ -36,4 +36,21 @@ public class SetFieldInvoker implements Invoker {
   public Class<?> getType() {
     return field.getType();
   }
+
+  //基本类型字段直接用Field.setXxx赋值，不装箱
+  public void setInt(Object target, int value) throws IllegalAccessException {
+    field.setInt(target, value);
+  }
+
+  public void setLong(Object target, long value) throws IllegalAccessException {
+    field.setLong(target, value);
+  }
+
+  public void setDouble(Object target, double value) throws IllegalAccessException {
+    field.setDouble(target, value);
+  }
+
+  public void setBoolean(Object target, boolean value) throws IllegalAccessException {
+    field.setBoolean(target, value);
+  }
 }
@@ -28,6 +28,11 @@ import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.PrimitiveBooleanTypeHandler;
+import org.apache.ibatis.type.PrimitiveDoubleTypeHandler;
+import org.apache.ibatis.type.PrimitiveIntTypeHandler;
+import org.apache.ibatis.type.PrimitiveLongTypeHandler;
+import org.apache.ibatis.type.PrimitiveTypeHandlers;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -76,6 +81,9 @@ public class DefaultParameterHandler implements ParameterHandler {
             value = metaObject.getValue(propertyName);
           }
           TypeHandler typeHandler = parameterMapping.getTypeHandler();
+          if (value != null && setPrimitiveParameter(ps, i + 1, typeHandler, value)) {
+            continue;
+          }
           JdbcType jdbcType = parameterMapping.getJdbcType();
           if (value == null && jdbcType == null) jdbcType = configuration.getJdbcTypeForNull();
           typeHandler.setParameter(ps, i + 1, value, jdbcType);
@@ -84,4 +92,23 @@ public class DefaultParameterHandler implements ParameterHandler {
     }
   }
 
+  //非空的数值参数交给类型处理器的基本类型方法，不再经过泛型的setParameter
+  private boolean setPrimitiveParameter(PreparedStatement ps, int i, TypeHandler<?> typeHandler, Object value) throws SQLException {
+    final Class<?> primitiveType = PrimitiveTypeHandlers.getWriteType(typeHandler);
+    if (primitiveType == null) {
+      return false;
+    } else if (primitiveType == int.class && value instanceof Integer) {
+      ((PrimitiveIntTypeHandler) typeHandler).setInt(ps, i, ((Integer) value).intValue());
+    } else if (primitiveType == long.class && value instanceof Long) {
+      ((PrimitiveLongTypeHandler) typeHandler).setLong(ps, i, ((Long) value).longValue());
+    } else if (primitiveType == double.class && value instanceof Double) {
+      ((PrimitiveDoubleTypeHandler) typeHandler).setDouble(ps, i, ((Double) value).doubleValue());
+    } else if (primitiveType == boolean.class && value instanceof Boolean) {
+      ((PrimitiveBooleanTypeHandler) typeHandler).setBoolean(ps, i, ((Boolean) value).booleanValue());
+    } else {
+      return false;
+    }
+    return true;
+  }
+
 }
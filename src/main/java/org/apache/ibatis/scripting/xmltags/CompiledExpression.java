@@ -0,0 +1,446 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+
+/**
+ * A test expression compiled into a tree of direct property accessors and comparisons.
+ * <p>
+ * Only the most common forms are compiled: property paths, <code>null</code>, <code>true</code>,
+ * <code>false</code>, integer and string literals, the six comparison operators, <code>and</code>,
+ * <code>or</code>, <code>not</code> and parentheses. {@link #compile(String)} returns null for anything else.
+ * When a value met at runtime could make the result differ from OGNL (strings compared with <code>&lt;</code>,
+ * decimals, collections...) {@link #evaluate(Map)} returns {@link #UNDECIDED} and the caller falls back to OGNL.
+ *
+ * @see ExpressionEvaluator
+ */
+class CompiledExpression {
+
+  static final Object UNDECIDED = new Object();
+
+  private static final Set<String> OGNL_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "eq", "neq", "lt", "lte", "gt", "gte", "in", "instanceof", "new", "shl", "shr", "ushr",
+      "band", "bor", "xor", "bnot", "this", "root", "context"));
+  private static final Set<String> MAP_PSEUDO_PROPERTIES = new HashSet<String>(Arrays.asList(
+      "size", "isEmpty", "keys", "values", "class"));
+
+  private final Node root;
+
+  private CompiledExpression(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * @return the compiled expression or null if it must be evaluated by OGNL
+   */
+  static CompiledExpression compile(String expression) {
+    if (expression == null) {
+      return null;
+    }
+    List<String> tokens = tokenize(expression);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    Parser parser = new Parser(tokens);
+    Node node = parser.parseOr();
+    if (node == null || !parser.atEnd()) {
+      return null;
+    }
+    return new CompiledExpression(node);
+  }
+
+  Object evaluate(Map<String, Object> bindings) {
+    return root.eval(bindings);
+  }
+
+  private static List<String> tokenize(String expression) {
+    List<String> tokens = new ArrayList<String>();
+    int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c) && c != '$') {
+        int start = i;
+        while (i < length && (Character.isJavaIdentifierPart(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          i++;
+        }
+        String path = expression.substring(start, i);
+        if (path.endsWith(".") || path.contains("..") || path.indexOf('$') >= 0) {
+          return null;
+        }
+        tokens.add(path);
+      } else if (Character.isDigit(c)) {
+        int start = i;
+        while (i < length && Character.isDigit(expression.charAt(i))) {
+          i++;
+        }
+        if (i < length && (Character.isLetter(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          // suffixed or decimal literals keep the OGNL semantics
+          return null;
+        }
+        tokens.add(expression.substring(start, i));
+      } else if (c == '\'' || c == '"') {
+        int end = expression.indexOf(c, i + 1);
+        if (end < 0) {
+          return null;
+        }
+        String literal = expression.substring(i + 1, end);
+        if (literal.indexOf('\\') >= 0 || (c == '\'' && literal.length() == 1)) {
+          // escapes and single quoted chars (a Character in OGNL) are not compiled
+          return null;
+        }
+        tokens.add("\"" + literal);
+        i = end + 1;
+      } else if (i + 1 < length && isTwoCharOperator(expression.substring(i, i + 2))) {
+        tokens.add(expression.substring(i, i + 2));
+        i += 2;
+      } else if (c == '<' || c == '>' || c == '!' || c == '(' || c == ')') {
+        tokens.add(String.valueOf(c));
+        i++;
+      } else {
+        return null;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isTwoCharOperator(String s) {
+    return "==".equals(s) || "!=".equals(s) || "<=".equals(s) || ">=".equals(s) || "&&".equals(s) || "||".equals(s);
+  }
+
+  private static class Parser {
+    private final List<String> tokens;
+    private int position;
+
+    Parser(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    boolean atEnd() {
+      return position == tokens.size();
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    Node parseOr() {
+      Node left = parseAnd();
+      while (left != null && ("or".equals(peek()) || "||".equals(peek()))) {
+        position++;
+        Node right = parseAnd();
+        if (right == null) {
+          return null;
+        }
+        left = new OrNode(left, right);
+      }
+      return left;
+    }
+
+    private Node parseAnd() {
+      Node left = parseUnary();
+      while (left != null && ("and".equals(peek()) || "&&".equals(peek()))) {
+        position++;
+        Node right = parseUnary();
+        if (right == null) {
+          return null;
+        }
+        left = new AndNode(left, right);
+      }
+      return left;
+    }
+
+    private Node parseUnary() {
+      if ("!".equals(peek()) || "not".equals(peek())) {
+        position++;
+        Node operand = parseUnary();
+        return operand == null ? null : new NotNode(operand);
+      }
+      return parseComparison();
+    }
+
+    private Node parseComparison() {
+      Node left = parsePrimary();
+      String operator = peek();
+      if (left != null && isComparison(operator)) {
+        position++;
+        Node right = parsePrimary();
+        return right == null ? null : new ComparisonNode(operator, left, right);
+      }
+      return left;
+    }
+
+    private boolean isComparison(String token) {
+      return "==".equals(token) || "!=".equals(token) || "<".equals(token) || ">".equals(token)
+          || "<=".equals(token) || ">=".equals(token);
+    }
+
+    private Node parsePrimary() {
+      String token = peek();
+      if (token == null) {
+        return null;
+      }
+      position++;
+      if ("(".equals(token)) {
+        Node inner = parseOr();
+        if (inner == null || !")".equals(peek())) {
+          return null;
+        }
+        position++;
+        return inner;
+      }
+      if (token.startsWith("\"")) {
+        return new LiteralNode(token.substring(1));
+      }
+      if (Character.isDigit(token.charAt(0))) {
+        try {
+          return new LiteralNode(Integer.valueOf(token));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+      if ("null".equals(token)) {
+        return new LiteralNode(null);
+      }
+      if ("true".equals(token) || "false".equals(token)) {
+        return new LiteralNode(Boolean.valueOf(token));
+      }
+      if (Character.isJavaIdentifierStart(token.charAt(0))) {
+        String[] segments = token.split("\\.");
+        for (String segment : segments) {
+          if (OGNL_KEYWORDS.contains(segment) || "and".equals(segment) || "or".equals(segment) || "not".equals(segment)) {
+            return null;
+          }
+        }
+        return new PathNode(segments);
+      }
+      return null;
+    }
+  }
+
+  private interface Node {
+    Object eval(Map<String, Object> bindings);
+  }
+
+  private static class LiteralNode implements Node {
+    private final Object value;
+
+    LiteralNode(Object value) {
+      this.value = value;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      return value;
+    }
+  }
+
+  private static class PathNode implements Node {
+    private final String[] segments;
+
+    PathNode(String[] segments) {
+      this.segments = segments;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      // same lookup as DynamicContext.ContextAccessor
+      Object value;
+      try {
+        value = bindings.get(segments[0]);
+      } catch (RuntimeException e) {
+        // let OGNL report the error
+        return UNDECIDED;
+      }
+      if (value == null) {
+        Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+        if (parameterObject instanceof Map) {
+          value = ((Map<?, ?>) parameterObject).get(segments[0]);
+        }
+      }
+      for (int i = 1; i < segments.length; i++) {
+        if (value == null || value instanceof Collection || value.getClass().isArray()) {
+          return UNDECIDED;
+        }
+        if (value instanceof Map) {
+          if (MAP_PSEUDO_PROPERTIES.contains(segments[i])) {
+            return UNDECIDED;
+          }
+          value = ((Map<?, ?>) value).get(segments[i]);
+        } else {
+          Reflector reflector = Reflector.forClass(value.getClass());
+          if (!reflector.hasGetter(segments[i])) {
+            return UNDECIDED;
+          }
+          Invoker getter = reflector.getGetInvoker(segments[i]);
+          if (!(getter instanceof MethodInvoker)) {
+            // OGNL does not read private fields
+            return UNDECIDED;
+          }
+          try {
+            value = getter.invoke(value, null);
+          } catch (Exception e) {
+            return UNDECIDED;
+          }
+        }
+      }
+      return value;
+    }
+  }
+
+  private static class ComparisonNode implements Node {
+    private final String operator;
+    private final Node left;
+    private final Node right;
+
+    ComparisonNode(String operator, Node left, Node right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      Object l = left.eval(bindings);
+      if (l == UNDECIDED) {
+        return UNDECIDED;
+      }
+      Object r = right.eval(bindings);
+      if (r == UNDECIDED) {
+        return UNDECIDED;
+      }
+      boolean equality = "==".equals(operator) || "!=".equals(operator);
+      if (equality) {
+        Boolean equal;
+        if (l == null || r == null) {
+          equal = l == r;
+        } else if (l instanceof String && r instanceof String) {
+          equal = l.equals(r);
+        } else if (l instanceof Boolean && r instanceof Boolean) {
+          equal = l.equals(r);
+        } else if (isIntegral(l) && isIntegral(r)) {
+          equal = ((Number) l).longValue() == ((Number) r).longValue();
+        } else {
+          return UNDECIDED;
+        }
+        return "==".equals(operator) ? equal : !equal;
+      }
+      if (!isIntegral(l) || !isIntegral(r)) {
+        return UNDECIDED;
+      }
+      long a = ((Number) l).longValue();
+      long b = ((Number) r).longValue();
+      if ("<".equals(operator)) {
+        return a < b;
+      } else if (">".equals(operator)) {
+        return a > b;
+      } else if ("<=".equals(operator)) {
+        return a <= b;
+      } else {
+        return a >= b;
+      }
+    }
+  }
+
+  private static class AndNode implements Node {
+    private final Node left;
+    private final Node right;
+
+    AndNode(Node left, Node right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      Object l = left.eval(bindings);
+      Object truth = truth(l);
+      if (truth == UNDECIDED) {
+        return UNDECIDED;
+      }
+      // like OGNL, the operand itself is the result
+      return (Boolean) truth ? right.eval(bindings) : l;
+    }
+  }
+
+  private static class OrNode implements Node {
+    private final Node left;
+    private final Node right;
+
+    OrNode(Node left, Node right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      Object l = left.eval(bindings);
+      Object truth = truth(l);
+      if (truth == UNDECIDED) {
+        return UNDECIDED;
+      }
+      return (Boolean) truth ? l : right.eval(bindings);
+    }
+  }
+
+  private static class NotNode implements Node {
+    private final Node operand;
+
+    NotNode(Node operand) {
+      this.operand = operand;
+    }
+
+    public Object eval(Map<String, Object> bindings) {
+      Object truth = truth(operand.eval(bindings));
+      return truth == UNDECIDED ? UNDECIDED : !(Boolean) truth;
+    }
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  /**
+   * Boolean conversion as done by OGNL for the operands of and, or and not.
+   */
+  private static Object truth(Object value) {
+    if (value == UNDECIDED) {
+      return UNDECIDED;
+    }
+    if (value == null) {
+      return Boolean.FALSE;
+    }
+    if (value instanceof Boolean) {
+      return value;
+    }
+    if (isIntegral(value)) {
+      return ((Number) value).longValue() != 0;
+    }
+    if (value instanceof Number || value instanceof String || value instanceof Character) {
+      return UNDECIDED;
+    }
+    return Boolean.TRUE;
+  }
+
+}
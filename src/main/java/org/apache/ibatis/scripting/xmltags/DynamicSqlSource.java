@@ -15,21 +15,32 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ShapeCachingSqlSource;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
 /**
  * 用于处理动态Sql的SqlSource 解析过后 最终都是StaticSqlSource
  * @author Clinton Begin
  */
-public class DynamicSqlSource implements SqlSource {
+public class DynamicSqlSource implements ShapeCachingSqlSource {
 
   private Configuration configuration;
   private SqlNode rootSqlNode;
+  //按生成的sql形状缓存解析结果(StaticSqlSource)，大小由sqlShapeCacheSize设置决定，满了按CLOCK(近似LRU)淘汰
+  private volatile ConcurrentCache shapes;
+  private final AtomicLong shapeHits = new AtomicLong();
+  private final AtomicLong shapeMisses = new AtomicLong();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -39,14 +50,123 @@ public class DynamicSqlSource implements SqlSource {
   public BoundSql getBoundSql(Object parameterObject) {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
     rootSqlNode.apply(context);
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    BoundSql boundSql;
+    int shapeCacheSize = configuration.getSqlShapeCacheSize();
+    if (shapeCacheSize > 0) {
+      boundSql = getCachedBoundSql(context, parameterType, parameterObject, shapeCacheSize);
+    } else {
+      SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+      SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+      boundSql = sqlSource.getBoundSql(parameterObject);
+    }
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
     }
     return boundSql;
   }
 
+  public long getShapeCacheHits() {
+    return shapeHits.get();
+  }
+
+  public long getShapeCacheMisses() {
+    return shapeMisses.get();
+  }
+
+  public int getShapeCacheSize() {
+    ConcurrentCache cache = shapes;
+    return cache == null ? 0 : cache.getSize();
+  }
+
+  //同样的sql文本、参数类型与绑定变量类型解析出的ParameterMapping是一样的，直接复用
+  private BoundSql getCachedBoundSql(DynamicContext context, Class<?> parameterType, Object parameterObject, int shapeCacheSize) {
+    Map<String, Object> bindings = context.getBindings();
+    ConcurrentCache cache = shapes;
+    if (cache == null || cache.getCapacity() != shapeCacheSize) {
+      // created on first use and again when the setting changes, a race only drops some cached shapes
+      cache = new ConcurrentCache("sqlShapes");
+      cache.setSize(shapeCacheSize);
+      shapes = cache;
+    }
+    ShapeKey key = new ShapeKey(context.getSql(), parameterType, bindings);
+    SqlSource sqlSource = (SqlSource) cache.getObject(key);
+    if (sqlSource != null) {
+      shapeHits.incrementAndGet();
+      return sqlSource.getBoundSql(parameterObject);
+    }
+    shapeMisses.incrementAndGet();
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    sqlSource = sqlSourceParser.parse(key.sql, parameterType, bindings);
+    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    if (isShapeStable(boundSql, bindings)) {
+      cache.putObject(key, sqlSource);
+    }
+    return boundSql;
+  }
+
+  //参数类型若取决于绑定变量里的运行时值(Map、集合或多级属性)，则同一形状也可能得到不同的类型，不缓存
+  private boolean isShapeStable(BoundSql boundSql, Map<String, Object> bindings) {
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      String property = parameterMapping.getProperty();
+      if (property == null) {
+        continue;
+      }
+      PropertyTokenizer prop = new PropertyTokenizer(property);
+      if (!bindings.containsKey(prop.getName())) {
+        continue;
+      }
+      if (prop.getIndex() != null) {
+        return false;
+      }
+      if (prop.getChildren() != null) {
+        Object value = bindings.get(prop.getName());
+        PropertyTokenizer child = new PropertyTokenizer(prop.getChildren());
+        if (value == null || value instanceof Map || value instanceof Collection || value.getClass().isArray()
+            || child.getChildren() != null || child.getIndex() != null) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static final class ShapeKey {
+    private final String sql;
+    private final Class<?> parameterType;
+    private final Map<String, Class<?>> bindingTypes;
+    private final int hashCode;
+
+    ShapeKey(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+      this.sql = sql;
+      this.parameterType = parameterType;
+      this.bindingTypes = new HashMap<String, Class<?>>();
+      for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+        Object value = entry.getValue();
+        bindingTypes.put(entry.getKey(), value == null ? null : value.getClass());
+      }
+      this.hashCode = 31 * (31 * sql.hashCode() + parameterType.hashCode()) + bindingTypes.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ShapeKey)) {
+        return false;
+      }
+      ShapeKey other = (ShapeKey) o;
+      return hashCode == other.hashCode
+          && sql.equals(other.sql)
+          && parameterType.equals(other.parameterType)
+          && bindingTypes.equals(other.bindingTypes);
+    }
+  }
+
 }
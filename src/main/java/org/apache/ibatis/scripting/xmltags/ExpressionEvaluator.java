@@ -30,6 +30,18 @@ public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
     Object value = OgnlCache.getValue(expression, parameterObject);
+    return toBoolean(value);
+  }
+
+  public boolean evaluateBoolean(CompiledExpression compiled, String expression, Map<String, Object> bindings) {
+    Object value = compiled.evaluate(bindings);
+    if (value == CompiledExpression.UNDECIDED) {
+      value = OgnlCache.getValue(expression, bindings);
+    }
+    return toBoolean(value);
+  }
+
+  private boolean toBoolean(Object value) {
     if (value instanceof Boolean) return (Boolean) value;
     if (value instanceof Number) return !new BigDecimal(String.valueOf(value)).equals(BigDecimal.ZERO);
     return value != null;
@@ -21,16 +21,25 @@ package org.apache.ibatis.scripting.xmltags;
 public class IfSqlNode implements SqlNode {
   private ExpressionEvaluator evaluator;
   private String test;
+  private CompiledExpression compiled;
   private SqlNode contents;
 
   public IfSqlNode(SqlNode contents, String test) {
+    this(contents, test, false);
+  }
+
+  public IfSqlNode(SqlNode contents, String test, boolean compile) {
     this.test = test;
     this.contents = contents;
     this.evaluator = new ExpressionEvaluator();
+    this.compiled = compile ? CompiledExpression.compile(test) : null;
   }
 
   public boolean apply(DynamicContext context) {
-    if (evaluator.evaluateBoolean(test, context.getBindings())) {
+    boolean matched = compiled != null
+        ? evaluator.evaluateBoolean(compiled, test, context.getBindings())
+        : evaluator.evaluateBoolean(test, context.getBindings());
+    if (matched) {
       contents.apply(context);
       return true;
     }
@@ -178,7 +178,7 @@ public class XMLScriptBuilder extends BaseBuilder {
       List<SqlNode> contents = parseDynamicTags(nodeToHandle);
       MixedSqlNode mixedSqlNode = new MixedSqlNode(contents);
       String test = nodeToHandle.getStringAttribute("test");
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
+      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test, configuration.isCompileDynamicSql());
       targetContents.add(ifSqlNode);
     }
   }
@@ -0,0 +1,160 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Runs statements on an executor service instead of the calling thread.
+ * <p>
+ * Every call opens its own {@link SqlSession}, and with it its own connection and transaction, which is
+ * committed when the statement succeeds and closed afterwards. Independent calls therefore run in parallel,
+ * but calls never share a transaction. Failures are reported by the returned future as an
+ * {@link java.util.concurrent.ExecutionException}.
+ *
+ * @see SqlSessionFactory#openAsyncSession()
+ */
+public interface AsyncSqlSession {
+
+  /**
+   * Retrieve a single row mapped from the statement key
+   * @param <T> the returned object type
+   * @param statement
+   * @return Mapped object
+   */
+  <T> Future<T> selectOne(String statement);
+
+  /**
+   * Retrieve a single row mapped from the statement key and parameter.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Mapped object
+   */
+  <T> Future<T> selectOne(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return List of mapped object
+   */
+  <E> Future<List<E>> selectList(String statement);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return List of mapped object
+   */
+  <E> Future<List<E>> selectList(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter,
+   * within the specified row bounds.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return List of mapped object
+   */
+  <E> Future<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * Builds a map out of the results of a selectList, keyed by the given property.
+   * @param <K> the returned Map keys type
+   * @param <V> the returned Map values type
+   * @param statement Unique identifier matching the statement to use.
+   * @param mapKey The property to use as key for each value in the list.
+   * @return Map containing key pair data.
+   */
+  <K, V> Future<Map<K, V>> selectMap(String statement, String mapKey);
+
+  /**
+   * Builds a map out of the results of a selectList, keyed by the given property.
+   * @param <K> the returned Map keys type
+   * @param <V> the returned Map values type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param mapKey The property to use as key for each value in the list.
+   * @return Map containing key pair data.
+   */
+  <K, V> Future<Map<K, V>> selectMap(String statement, Object parameter, String mapKey);
+
+  /**
+   * Execute an insert statement and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return int The number of rows affected by the insert.
+   */
+  Future<Integer> insert(String statement);
+
+  /**
+   * Execute an insert statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return int The number of rows affected by the insert.
+   */
+  Future<Integer> insert(String statement, Object parameter);
+
+  /**
+   * Execute an update statement and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return int The number of rows affected by the update.
+   */
+  Future<Integer> update(String statement);
+
+  /**
+   * Execute an update statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return int The number of rows affected by the update.
+   */
+  Future<Integer> update(String statement, Object parameter);
+
+  /**
+   * Execute a delete statement and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return int The number of rows affected by the delete.
+   */
+  Future<Integer> delete(String statement);
+
+  /**
+   * Execute a delete statement with the given parameter object and commit it.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return int The number of rows affected by the delete.
+   */
+  Future<Integer> delete(String statement, Object parameter);
+
+  /**
+   * Retrieves a mapper whose methods run in their own session. Methods declared to return a
+   * {@link Future} are submitted to the executor service, all others run in the calling thread.
+   * @param <T> the mapper type
+   * @param type Mapper interface class
+   * @return a mapper bound to this session's factory
+   */
+  <T> T getMapper(Class<T> type);
+
+  /**
+   * Retrieves current configuration
+   * @return Configuration
+   */
+  Configuration getConfiguration();
+
+}
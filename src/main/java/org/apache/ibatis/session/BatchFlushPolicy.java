@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * When a batch session flushes on its own and what it keeps of the flushed rows.
+ * <p>
+ * A row or byte limit of 0 means no limit. The byte count is an estimate of the parameter values queued in
+ * the JDBC batches. A statement can lower both limits with its own batchFlushSize and batchFlushBytes.
+ */
+public class BatchFlushPolicy {
+
+  public final static BatchFlushPolicy NONE = new BatchFlushPolicy(0, 0, false, false);
+
+  private final int flushSize;
+  private final long flushBytes;
+  private final boolean releaseParameters;
+  private final boolean summaryResults;
+
+  /**
+   * @param flushSize rows queued before the batches are executed
+   * @param flushBytes estimated parameter bytes queued before the batches are executed
+   * @param releaseParameters drop the parameter objects of executed batches once their keys are set
+   * @param summaryResults fold executed batches into one summary result per statement
+   */
+  public BatchFlushPolicy(int flushSize, long flushBytes, boolean releaseParameters, boolean summaryResults) {
+    this.flushSize = flushSize;
+    this.flushBytes = flushBytes;
+    this.releaseParameters = releaseParameters;
+    this.summaryResults = summaryResults;
+  }
+
+  public int getFlushSize() {
+    return flushSize;
+  }
+
+  public long getFlushBytes() {
+    return flushBytes;
+  }
+
+  public boolean isReleaseParameters() {
+    return releaseParameters;
+  }
+
+  public boolean isSummaryResults() {
+    return summaryResults;
+  }
+
+}
@@ -24,6 +24,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,11 +35,18 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheVersions;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -72,6 +83,7 @@ import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
@@ -119,6 +131,30 @@ public class Configuration {
 
   protected boolean lazyLoadingEnabled = false;
   protected ProxyFactory proxyFactory;
+  protected CacheSerializer cacheSerializer;
+  protected boolean compileDynamicSql = false;
+  protected int sqlShapeCacheSize = 0;
+  protected boolean precompileRowMappers = false;
+  protected boolean accessorGenerationEnabled = false;
+  protected int batchFlushSize = 0;
+  protected long batchFlushBytes = 0;
+  protected boolean batchReleaseParameters = false;
+  protected boolean batchSummaryResults = false;
+  protected boolean groupBatchStatements = false;
+  protected int asyncExecutorPoolSize = 10;
+  protected ExecutorService asyncExecutorService;
+  protected int nestedSelectBatchSize = 100;
+  protected boolean tableCacheInvalidation = false;
+  protected TableVersions tableVersions = new TableVersions();
+  protected String cacheVersionTable;
+  protected long cacheVersionCheckInterval = 1000;
+  protected CacheVersions cacheVersions;
+  protected int rowMappingThreads = 0;
+  protected int rowMappingBatchSize = 256;
+  protected boolean orderedRowMapping = true;
+  protected ExecutorService rowMappingExecutorService;
+  protected int lobSpillThreshold = 0;
+  protected String lobSpillDirectory;
 
   protected String databaseId;
   /**
@@ -130,7 +166,7 @@ public class Configuration {
   protected Class<?> configurationFactory;
 
   protected final InterceptorChain interceptorChain = new InterceptorChain();
-  protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
+  protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry(this);
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
 
@@ -169,6 +205,11 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
+
+    typeAliasRegistry.registerAlias("JAVA_SERIALIZER", JavaCacheSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT_SERIALIZER", CompactCacheSerializer.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
@@ -306,6 +347,264 @@ public class Configuration {
     this.proxyFactory = proxyFactory;
   }
 
+  public CacheSerializer getCacheSerializer() {
+    if (cacheSerializer == null) {
+      cacheSerializer = new JavaCacheSerializer();
+    }
+    return cacheSerializer;
+  }
+
+  public void setCacheSerializer(CacheSerializer cacheSerializer) {
+    this.cacheSerializer = cacheSerializer;
+  }
+
+  public boolean isCompileDynamicSql() {
+    return compileDynamicSql;
+  }
+
+  public void setCompileDynamicSql(boolean compileDynamicSql) {
+    this.compileDynamicSql = compileDynamicSql;
+  }
+
+  public int getSqlShapeCacheSize() {
+    return sqlShapeCacheSize;
+  }
+
+  public void setSqlShapeCacheSize(int sqlShapeCacheSize) {
+    this.sqlShapeCacheSize = sqlShapeCacheSize;
+  }
+
+  public boolean isPrecompileRowMappers() {
+    return precompileRowMappers;
+  }
+
+  public void setPrecompileRowMappers(boolean precompileRowMappers) {
+    this.precompileRowMappers = precompileRowMappers;
+  }
+
+  public boolean isAccessorGenerationEnabled() {
+    return accessorGenerationEnabled;
+  }
+
+  /**
+   * 是否为getter/setter生成访问器类(需要cglib)代替Method.invoke
+   * Reflector是按类在整个JVM内缓存的，这个开关作用于所有Configuration，且只影响之后才首次反射的类
+   */
+  public void setAccessorGenerationEnabled(boolean accessorGenerationEnabled) {
+    this.accessorGenerationEnabled = accessorGenerationEnabled;
+    Reflector.setAccessorGenerationEnabled(accessorGenerationEnabled);
+  }
+
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  public long getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  public void setBatchFlushBytes(long batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  public boolean isBatchReleaseParameters() {
+    return batchReleaseParameters;
+  }
+
+  public void setBatchReleaseParameters(boolean batchReleaseParameters) {
+    this.batchReleaseParameters = batchReleaseParameters;
+  }
+
+  public boolean isBatchSummaryResults() {
+    return batchSummaryResults;
+  }
+
+  public void setBatchSummaryResults(boolean batchSummaryResults) {
+    this.batchSummaryResults = batchSummaryResults;
+  }
+
+  public boolean isGroupBatchStatements() {
+    return groupBatchStatements;
+  }
+
+  public void setGroupBatchStatements(boolean groupBatchStatements) {
+    this.groupBatchStatements = groupBatchStatements;
+  }
+
+  public int getAsyncExecutorPoolSize() {
+    return asyncExecutorPoolSize;
+  }
+
+  public void setAsyncExecutorPoolSize(int asyncExecutorPoolSize) {
+    this.asyncExecutorPoolSize = asyncExecutorPoolSize;
+  }
+
+  public int getNestedSelectBatchSize() {
+    return nestedSelectBatchSize;
+  }
+
+  public void setNestedSelectBatchSize(int nestedSelectBatchSize) {
+    this.nestedSelectBatchSize = nestedSelectBatchSize;
+  }
+
+  public boolean isTableCacheInvalidation() {
+    return tableCacheInvalidation;
+  }
+
+  public void setTableCacheInvalidation(boolean tableCacheInvalidation) {
+    this.tableCacheInvalidation = tableCacheInvalidation;
+  }
+
+  /**
+   * 按表失效二级缓存时各表的版本 所有命名空间共用 需在解析映射文件之前设置(阻塞缓存会持有它)
+   */
+  public TableVersions getTableVersions() {
+    return tableVersions;
+  }
+
+  public void setTableVersions(TableVersions tableVersions) {
+    this.tableVersions = tableVersions;
+  }
+
+  public String getCacheVersionTable() {
+    return cacheVersionTable;
+  }
+
+  /**
+   * 多个节点共用数据库时，用于保持各节点二级缓存一致的版本表，为null时不检查
+   */
+  public void setCacheVersionTable(String cacheVersionTable) {
+    this.cacheVersionTable = cacheVersionTable;
+    resetCacheVersions();
+  }
+
+  public long getCacheVersionCheckInterval() {
+    return cacheVersionCheckInterval;
+  }
+
+  /**
+   * 同一缓存两次检查版本表之间至少间隔的毫秒数，0表示每次查询前都检查
+   */
+  public void setCacheVersionCheckInterval(long cacheVersionCheckInterval) {
+    this.cacheVersionCheckInterval = cacheVersionCheckInterval;
+    resetCacheVersions();
+  }
+
+  public CacheVersions getCacheVersions() {
+    return cacheVersions;
+  }
+
+  private void resetCacheVersions() {
+    cacheVersions = cacheVersionTable == null ? null : new CacheVersions(cacheVersionTable, cacheVersionCheckInterval);
+  }
+
+  public int getRowMappingThreads() {
+    return rowMappingThreads;
+  }
+
+  /**
+   * 大于0时，简单结果映射的行交给这么多个线程并行转换和组装，读取结果集的线程只拷贝原始列值
+   */
+  public void setRowMappingThreads(int rowMappingThreads) {
+    this.rowMappingThreads = rowMappingThreads;
+  }
+
+  public int getRowMappingBatchSize() {
+    return rowMappingBatchSize;
+  }
+
+  /**
+   * 并行映射时每个任务包含的行数
+   */
+  public void setRowMappingBatchSize(int rowMappingBatchSize) {
+    this.rowMappingBatchSize = rowMappingBatchSize;
+  }
+
+  public boolean isOrderedRowMapping() {
+    return orderedRowMapping;
+  }
+
+  /**
+   * 并行映射的结果是否按结果集的行序交付，false时按批完成的先后交付
+   */
+  public void setOrderedRowMapping(boolean orderedRowMapping) {
+    this.orderedRowMapping = orderedRowMapping;
+  }
+
+  /**
+   * 并行行映射使用的线程池，未设置时按rowMappingThreads创建守护线程的固定大小线程池
+   */
+  public synchronized ExecutorService getRowMappingExecutorService() {
+    if (rowMappingExecutorService == null) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      rowMappingExecutorService = Executors.newFixedThreadPool(rowMappingThreads, new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-row-mapping-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return rowMappingExecutorService;
+  }
+
+  public synchronized void setRowMappingExecutorService(ExecutorService rowMappingExecutorService) {
+    this.rowMappingExecutorService = rowMappingExecutorService;
+  }
+
+  public int getLobSpillThreshold() {
+    return lobSpillThreshold;
+  }
+
+  /**
+   * 大于0时，映射为Reader/InputStream的LOB在映射行时拷贝出来，超过这么多字符/字节的部分写入临时文件；
+   * 0表示直接从驱动的LOB定位器流式读取(只在会话打开期间可读)。处理器每次执行时读取，随时设置均可
+   */
+  public void setLobSpillThreshold(int lobSpillThreshold) {
+    this.lobSpillThreshold = lobSpillThreshold;
+  }
+
+  public String getLobSpillDirectory() {
+    return lobSpillDirectory;
+  }
+
+  /**
+   * LOB临时文件所在的目录，为null时使用系统临时目录
+   */
+  public void setLobSpillDirectory(String lobSpillDirectory) {
+    this.lobSpillDirectory = lobSpillDirectory;
+  }
+
+  /**
+   * 异步会话默认使用的线程池，未设置时按asyncExecutorPoolSize创建守护线程的固定大小线程池
+   */
+  public synchronized ExecutorService getAsyncExecutorService() {
+    if (asyncExecutorService == null) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      asyncExecutorService = Executors.newFixedThreadPool(asyncExecutorPoolSize, new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return asyncExecutorService;
+  }
+
+  public synchronized void setAsyncExecutorService(ExecutorService asyncExecutorService) {
+    this.asyncExecutorService = asyncExecutorService;
+  }
+
+  //由全局设置组成的默认批量flush策略
+  public BatchFlushPolicy getBatchFlushPolicy() {
+    return new BatchFlushPolicy(batchFlushSize, batchFlushBytes, batchReleaseParameters, batchSummaryResults);
+  }
+
   public boolean isAggressiveLazyLoading() {
     return aggressiveLazyLoading;
   }
@@ -475,11 +774,18 @@ public class Configuration {
   }
 
   public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+    return newExecutor(transaction, executorType, null);
+  }
+
+  /**
+   * @param batchFlushPolicy 批量执行器的flush策略，为null时使用全局设置
+   */
+  public Executor newExecutor(Transaction transaction, ExecutorType executorType, BatchFlushPolicy batchFlushPolicy) {
     executorType = executorType == null ? defaultExecutorType : executorType;
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
-      executor = new BatchExecutor(this, transaction);
+      executor = new BatchExecutor(this, transaction, batchFlushPolicy == null ? getBatchFlushPolicy() : batchFlushPolicy);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -656,6 +962,10 @@ public class Configuration {
     return mapperRegistry.getMapper(type, sqlSession);
   }
 
+  public <T> T getAsyncMapper(Class<T> type, SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+    return mapperRegistry.getAsyncMapper(type, sqlSessionFactory, executorService);
+  }
+
   public boolean hasMapper(Class<?> type) {
     return mapperRegistry.hasMapper(type);
   }
@@ -20,6 +20,8 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.ibatis.columnar.ColumnarResult;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -115,6 +117,60 @@ public interface SqlSession extends Closeable {
    */
   <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds);
 
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement);
+
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement, Object parameter);
+
+  /**
+   * A Cursor offers the same results as a List, except it fetches data lazily using an Iterator.
+   * @param <T> the returned cursor element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Cursor of mapped objects
+   */
+  <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * Reads the rows column by column into primitive arrays, without mapping them to objects.
+   * The result maps of the statement are not used.
+   * @param statement Unique identifier matching the statement to use.
+   * @return the columns of the first result set
+   */
+  ColumnarResult selectColumns(String statement);
+
+  /**
+   * Reads the rows column by column into primitive arrays, without mapping them to objects.
+   * The result maps of the statement are not used.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return the columns of the first result set
+   */
+  ColumnarResult selectColumns(String statement, Object parameter);
+
+  /**
+   * Reads the rows column by column into primitive arrays, without mapping them to objects.
+   * The result maps of the statement are not used.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit the rows read
+   * @return the columns of the first result set
+   */
+  ColumnarResult selectColumns(String statement, Object parameter, RowBounds rowBounds);
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
@@ -226,7 +282,7 @@ public interface SqlSession extends Closeable {
   List<BatchResult> flushStatements();
 
   /**
-   * Closes the session
+   * Closes the session and any cursor still open on it
    */
   void close();
 
@@ -16,6 +16,7 @@
 package org.apache.ibatis.session;
 
 import java.sql.Connection;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Creates an {@link SqlSesion} out of a connection or a DataSource
@@ -34,6 +35,10 @@ public interface SqlSessionFactory {
   SqlSession openSession(ExecutorType execType, boolean autoCommit);
   SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level);
   SqlSession openSession(ExecutorType execType, Connection connection);
+  SqlSession openSession(BatchFlushPolicy batchFlushPolicy);
+
+  AsyncSqlSession openAsyncSession();
+  AsyncSqlSession openAsyncSession(ExecutorService executorService);
 
   Configuration getConfiguration();
 
@@ -24,7 +24,10 @@ import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.ibatis.columnar.ColumnarResult;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -142,6 +145,18 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionFactory.openSession(execType, connection);
   }
 
+  public SqlSession openSession(BatchFlushPolicy batchFlushPolicy) {
+    return sqlSessionFactory.openSession(batchFlushPolicy);
+  }
+
+  public AsyncSqlSession openAsyncSession() {
+    return sqlSessionFactory.openAsyncSession();
+  }
+
+  public AsyncSqlSession openAsyncSession(ExecutorService executorService) {
+    return sqlSessionFactory.openAsyncSession(executorService);
+  }
+
   public Configuration getConfiguration() {
     return sqlSessionFactory.getConfiguration();
   }
@@ -166,6 +181,30 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.<K, V> selectMap(statement, parameter, mapKey, rowBounds);
   }
 
+  public <T> Cursor<T> selectCursor(String statement) {
+    return sqlSessionProxy.<T> selectCursor(statement);
+  }
+
+  public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+    return sqlSessionProxy.<T> selectCursor(statement, parameter);
+  }
+
+  public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+    return sqlSessionProxy.<T> selectCursor(statement, parameter, rowBounds);
+  }
+
+  public ColumnarResult selectColumns(String statement) {
+    return sqlSessionProxy.selectColumns(statement);
+  }
+
+  public ColumnarResult selectColumns(String statement, Object parameter) {
+    return sqlSessionProxy.selectColumns(statement, parameter);
+  }
+
+  public ColumnarResult selectColumns(String statement, Object parameter, RowBounds rowBounds) {
+    return sqlSessionProxy.selectColumns(statement, parameter, rowBounds);
+  }
+
   public <E> List<E> selectList(String statement) {
     return sqlSessionProxy.<E> selectList(statement);
   }
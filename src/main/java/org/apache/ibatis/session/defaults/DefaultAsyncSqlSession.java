@@ -0,0 +1,152 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+/**
+ * @see AsyncSqlSession
+ */
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final ExecutorService executorService;
+
+  public DefaultAsyncSqlSession(SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executorService = executorService;
+  }
+
+  public <T> Future<T> selectOne(String statement) {
+    return selectOne(statement, null);
+  }
+
+  public <T> Future<T> selectOne(final String statement, final Object parameter) {
+    return submit(new SessionCallable<T>() {
+      T call(SqlSession sqlSession) {
+        return sqlSession.<T>selectOne(statement, parameter);
+      }
+    });
+  }
+
+  public <E> Future<List<E>> selectList(String statement) {
+    return selectList(statement, null, RowBounds.DEFAULT);
+  }
+
+  public <E> Future<List<E>> selectList(String statement, Object parameter) {
+    return selectList(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  public <E> Future<List<E>> selectList(final String statement, final Object parameter, final RowBounds rowBounds) {
+    return submit(new SessionCallable<List<E>>() {
+      List<E> call(SqlSession sqlSession) {
+        return sqlSession.<E>selectList(statement, parameter, rowBounds);
+      }
+    });
+  }
+
+  public <K, V> Future<Map<K, V>> selectMap(String statement, String mapKey) {
+    return selectMap(statement, null, mapKey);
+  }
+
+  public <K, V> Future<Map<K, V>> selectMap(final String statement, final Object parameter, final String mapKey) {
+    return submit(new SessionCallable<Map<K, V>>() {
+      Map<K, V> call(SqlSession sqlSession) {
+        return sqlSession.<K, V>selectMap(statement, parameter, mapKey);
+      }
+    });
+  }
+
+  public Future<Integer> insert(String statement) {
+    return insert(statement, null);
+  }
+
+  public Future<Integer> insert(final String statement, final Object parameter) {
+    return submit(new SessionCallable<Integer>() {
+      Integer call(SqlSession sqlSession) {
+        return sqlSession.insert(statement, parameter);
+      }
+    });
+  }
+
+  public Future<Integer> update(String statement) {
+    return update(statement, null);
+  }
+
+  public Future<Integer> update(final String statement, final Object parameter) {
+    return submit(new SessionCallable<Integer>() {
+      Integer call(SqlSession sqlSession) {
+        return sqlSession.update(statement, parameter);
+      }
+    });
+  }
+
+  public Future<Integer> delete(String statement) {
+    return delete(statement, null);
+  }
+
+  public Future<Integer> delete(final String statement, final Object parameter) {
+    return submit(new SessionCallable<Integer>() {
+      Integer call(SqlSession sqlSession) {
+        return sqlSession.delete(statement, parameter);
+      }
+    });
+  }
+
+  public <T> T getMapper(Class<T> type) {
+    return getConfiguration().getAsyncMapper(type, sqlSessionFactory, executorService);
+  }
+
+  public Configuration getConfiguration() {
+    return sqlSessionFactory.getConfiguration();
+  }
+
+  private <T> Future<T> submit(SessionCallable<T> callable) {
+    return executorService.submit(callable);
+  }
+
+  /**
+   * Runs one call in a session of its own and commits it.
+   */
+  private abstract class SessionCallable<T> implements Callable<T> {
+
+    public T call() {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        T result = call(sqlSession);
+        sqlSession.commit();
+        return result;
+      } finally {
+        sqlSession.close();
+        ErrorContext.instance().reset();
+      }
+    }
+
+    abstract T call(SqlSession sqlSession);
+  }
+
+}
@@ -17,11 +17,14 @@ package org.apache.ibatis.session.defaults;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.BatchFlushPolicy;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -74,17 +77,35 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     return openSessionFromConnection(execType, connection);
   }
 
+  //以指定的flush策略打开一个批量执行的会话
+  public SqlSession openSession(BatchFlushPolicy batchFlushPolicy) {
+    return openSessionFromDataSource(ExecutorType.BATCH, null, false, batchFlushPolicy);
+  }
+
+  //异步会话的每次调用都从本工厂打开独立的会话
+  public AsyncSqlSession openAsyncSession() {
+    return openAsyncSession(configuration.getAsyncExecutorService());
+  }
+
+  public AsyncSqlSession openAsyncSession(ExecutorService executorService) {
+    return new DefaultAsyncSqlSession(this, executorService);
+  }
+
   public Configuration getConfiguration() {
     return configuration;
   }
 
   private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
+    return openSessionFromDataSource(execType, level, autoCommit, null);
+  }
+
+  private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit, BatchFlushPolicy batchFlushPolicy) {
     Transaction tx = null;
     try {
       final Environment environment = configuration.getEnvironment();
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
-      final Executor executor = configuration.newExecutor(tx, execType);
+      final Executor executor = configuration.newExecutor(tx, execType, batchFlushPolicy);
       return new DefaultSqlSession(configuration, executor, autoCommit);
     } catch (Exception e) {
       closeTransaction(tx); // may have fetched a connection so lets call close()
@@ -0,0 +1,158 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Maps a BLOB to a {@link InputStream} property without reading it into the heap.
+ * <p>
+ * Without a spill threshold the stream streams from the LOB locator of the driver, so it must be read while the
+ * session is open (for most drivers, before the transaction ends). With a threshold the content is copied while
+ * the row is mapped: up to the threshold in bytes on the heap, the rest into a temporary file, see
+ * {@link SpooledInputStream}. Unless set on the handler, the threshold and directory are read from the
+ * {@link Configuration} each time the handler runs.
+ * <p>
+ * Parameters are copied the same way since the JDBC driver needs their length, spilling beyond
+ * {@link #DEFAULT_PARAMETER_SPILL_THRESHOLD} bytes when there is no threshold. The copy is released once the
+ * driver has read it; the stream of the caller is left open.
+ */
+public class BlobInputStreamTypeHandler extends BaseTypeHandler<InputStream> {
+
+  public static final int DEFAULT_PARAMETER_SPILL_THRESHOLD = 1024 * 1024;
+
+  private final Integer spillThreshold;
+  private final File spillDirectory;
+
+  public BlobInputStreamTypeHandler() {
+    this.spillThreshold = null;
+    this.spillDirectory = null;
+  }
+
+  /**
+   * @param configuration where to read the spill threshold and directory from, null for no threshold
+   */
+  public BlobInputStreamTypeHandler(Configuration configuration) {
+    this();
+    setConfiguration(configuration);
+  }
+
+  /**
+   * @param spillThreshold the most bytes of a value kept on the heap, 0 to stream from the driver
+   * @param spillDirectory where to create the temporary files, null for the default temporary directory
+   */
+  public BlobInputStreamTypeHandler(int spillThreshold, File spillDirectory) {
+    this.spillThreshold = spillThreshold;
+    this.spillDirectory = spillDirectory;
+  }
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, InputStream parameter, JdbcType jdbcType)
+      throws SQLException {
+    final int threshold = getSpillThreshold();
+    SpooledInputStream content = parameter instanceof SpooledInputStream
+        ? (SpooledInputStream) parameter
+        : spool(parameter, threshold > 0 ? threshold : DEFAULT_PARAMETER_SPILL_THRESHOLD);
+    boolean set = false;
+    try {
+      if (content.getLength() > Integer.MAX_VALUE) {
+        throw new TypeException("Error setting parameter #" + i + ": " + content.getLength()
+            + " bytes exceed the " + Integer.MAX_VALUE + " a JDBC stream parameter can take.");
+      }
+      ps.setBinaryStream(i, content, (int) content.getLength());
+      set = true;
+    } finally {
+      if (!set && content != parameter) {
+        close(content);
+      }
+    }
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnName));
+  }
+
+  @Override
+  public InputStream getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return toInputStream(rs.getBlob(columnIndex));
+  }
+
+  @Override
+  public InputStream getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return toInputStream(cs.getBlob(columnIndex));
+  }
+
+  private InputStream toInputStream(Blob blob) throws SQLException {
+    if (blob == null) {
+      return null;
+    }
+    final int threshold = getSpillThreshold();
+    if (threshold <= 0) {
+      return blob.getBinaryStream();
+    }
+    InputStream content = blob.getBinaryStream();
+    try {
+      return spool(content, threshold);
+    } finally {
+      close(content);
+    }
+  }
+
+  private SpooledInputStream spool(InputStream content, int threshold) {
+    try {
+      return SpooledInputStream.spool(content, threshold, getSpillDirectory());
+    } catch (IOException e) {
+      throw new TypeException("Error copying LOB content. Cause: " + e, e);
+    }
+  }
+
+  private int getSpillThreshold() {
+    if (spillThreshold != null) {
+      return spillThreshold;
+    }
+    return configuration == null ? 0 : configuration.getLobSpillThreshold();
+  }
+
+  private File getSpillDirectory() {
+    if (spillThreshold != null) {
+      return spillDirectory;
+    }
+    String directory = configuration == null ? null : configuration.getLobSpillDirectory();
+    return directory == null || directory.length() == 0 ? null : new File(directory);
+  }
+
+  private static void close(InputStream stream) {
+    try {
+      stream.close();
+    } catch (IOException e) {
+      // ignore, nothing left to read
+    }
+  }
+
+}
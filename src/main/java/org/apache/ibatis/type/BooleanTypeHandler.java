@@ -23,7 +23,7 @@ import java.sql.SQLException;
 /**
  * @author Clinton Begin
  */
-public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
+public class BooleanTypeHandler extends BaseTypeHandler<Boolean> implements PrimitiveBooleanTypeHandler {
 
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Boolean parameter, JdbcType jdbcType)
@@ -48,4 +48,17 @@ public class BooleanTypeHandler extends BaseTypeHandler<Boolean> {
       throws SQLException {
     return cs.getBoolean(columnIndex);
   }
+
+  //不装箱的读写，由RowMappingPlan和DefaultParameterHandler直接调用
+  public boolean getBoolean(ResultSet rs, String columnName) throws SQLException {
+    return rs.getBoolean(columnName);
+  }
+
+  public boolean getBoolean(ResultSet rs, int columnIndex) throws SQLException {
+    return rs.getBoolean(columnIndex);
+  }
+
+  public void setBoolean(PreparedStatement ps, int i, boolean parameter) throws SQLException {
+    ps.setBoolean(i, parameter);
+  }
 }
@@ -0,0 +1,35 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link TypeHandler} that also reads and writes <code>double</code> values without boxing them.
+ * <p>
+ * The getters return the value of the JDBC driver for SQL NULL, callers check {@link ResultSet#wasNull()}.
+ */
+public interface PrimitiveDoubleTypeHandler extends TypeHandler<Double> {
+
+  double getDouble(ResultSet rs, String columnName) throws SQLException;
+
+  double getDouble(ResultSet rs, int columnIndex) throws SQLException;
+
+  void setDouble(PreparedStatement ps, int i, double parameter) throws SQLException;
+
+}
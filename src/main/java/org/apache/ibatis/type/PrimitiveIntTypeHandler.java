@@ -0,0 +1,40 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link TypeHandler} that also reads and writes <code>int</code> values without boxing them.
+ * <p>
+ * The getters return the value of the JDBC driver for SQL NULL, callers check {@link ResultSet#wasNull()}.
+ * <p>
+ * The built-in <code>Integer</code>, <code>Long</code>, <code>Double</code> and <code>Boolean</code> handlers
+ * implement these interfaces so that result mapping and parameter setting can move primitive values without
+ * boxing them. A handler that overrides its boxed methods but not the primitive ones is used through the
+ * boxed methods only, see {@link PrimitiveTypeHandlers}.
+ */
+public interface PrimitiveIntTypeHandler extends TypeHandler<Integer> {
+
+  int getInt(ResultSet rs, String columnName) throws SQLException;
+
+  int getInt(ResultSet rs, int columnIndex) throws SQLException;
+
+  void setInt(PreparedStatement ps, int i, int parameter) throws SQLException;
+
+}
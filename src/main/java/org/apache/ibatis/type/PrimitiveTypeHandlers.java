@@ -0,0 +1,139 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells whether the primitive methods of a {@link PrimitiveIntTypeHandler}, {@link PrimitiveLongTypeHandler},
+ * {@link PrimitiveDoubleTypeHandler} or {@link PrimitiveBooleanTypeHandler} may stand in for its boxed ones.
+ * <p>
+ * They may not when a subclass overrides a boxed method below the class that declares the primitive one, for
+ * example a subclass of {@link IntegerTypeHandler} that only overrides <code>getNullableResult</code>.
+ */
+public final class PrimitiveTypeHandlers {
+
+  private static final Map<Class<?>, Class<?>> READ_TYPES = new ConcurrentHashMap<Class<?>, Class<?>>();
+  private static final Map<Class<?>, Class<?>> WRITE_TYPES = new ConcurrentHashMap<Class<?>, Class<?>>();
+
+  private PrimitiveTypeHandlers() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * @return the primitive type the handler reads results as, or null to use {@link TypeHandler#getResult}
+   */
+  public static Class<?> getReadType(TypeHandler<?> typeHandler) {
+    return lookup(READ_TYPES, typeHandler, true);
+  }
+
+  /**
+   * @return the primitive type the handler sets non null parameters as, or null to use
+   *     {@link TypeHandler#setParameter}
+   */
+  public static Class<?> getWriteType(TypeHandler<?> typeHandler) {
+    return lookup(WRITE_TYPES, typeHandler, false);
+  }
+
+  private static Class<?> lookup(Map<Class<?>, Class<?>> cache, TypeHandler<?> typeHandler, boolean read) {
+    if (typeHandler == null) {
+      return null;
+    }
+    final Class<?> handlerType = typeHandler.getClass();
+    Class<?> primitiveType = cache.get(handlerType);
+    if (primitiveType == null) {
+      primitiveType = resolve(typeHandler, read);
+      cache.put(handlerType, primitiveType);
+    }
+    return primitiveType == void.class ? null : primitiveType;
+  }
+
+  /**
+   * @return the primitive type or <code>void.class</code> if there is none or it may not be used
+   */
+  private static Class<?> resolve(TypeHandler<?> typeHandler, boolean read) {
+    final Class<?> primitiveType = primitiveType(typeHandler);
+    if (primitiveType == null) {
+      return void.class;
+    }
+    final Class<?> handlerType = typeHandler.getClass();
+    final Class<?>[][] primitiveParameters = read
+        ? new Class<?>[][] { { ResultSet.class, int.class }, { ResultSet.class, String.class } }
+        : new Class<?>[][] { { PreparedStatement.class, int.class, primitiveType } };
+    final String primitiveName = (read ? "get" : "set") + suffix(primitiveType);
+    for (Class<?>[] parameters : primitiveParameters) {
+      final Class<?> primitiveDeclarer = declarer(handlerType, primitiveName, parameters);
+      if (primitiveDeclarer == null) {
+        return void.class;
+      }
+      for (Method method : handlerType.getMethods()) {
+        if (!method.isBridge() && isBoxedCounterpart(method, read)
+            && !method.getDeclaringClass().isAssignableFrom(primitiveDeclarer)) {
+          return void.class;
+        }
+      }
+    }
+    return primitiveType;
+  }
+
+  private static boolean isBoxedCounterpart(Method method, boolean read) {
+    final String name = method.getName();
+    final Class<?>[] parameters = method.getParameterTypes();
+    if (read) {
+      return ("getResult".equals(name) || "getNullableResult".equals(name))
+          && parameters.length == 2 && parameters[0] == ResultSet.class;
+    }
+    return ("setParameter".equals(name) || "setNonNullParameter".equals(name))
+        && parameters.length == 4 && parameters[0] == PreparedStatement.class;
+  }
+
+  private static Class<?> declarer(Class<?> type, String name, Class<?>[] parameters) {
+    try {
+      return type.getMethod(name, parameters).getDeclaringClass();
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static Class<?> primitiveType(TypeHandler<?> typeHandler) {
+    if (typeHandler instanceof PrimitiveIntTypeHandler) {
+      return int.class;
+    } else if (typeHandler instanceof PrimitiveLongTypeHandler) {
+      return long.class;
+    } else if (typeHandler instanceof PrimitiveDoubleTypeHandler) {
+      return double.class;
+    } else if (typeHandler instanceof PrimitiveBooleanTypeHandler) {
+      return boolean.class;
+    }
+    return null;
+  }
+
+  private static String suffix(Class<?> primitiveType) {
+    if (primitiveType == int.class) {
+      return "Int";
+    } else if (primitiveType == long.class) {
+      return "Long";
+    } else if (primitiveType == double.class) {
+      return "Double";
+    }
+    return "Boolean";
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The content of a binary LOB copied off the JDBC driver: kept on the heap up to a threshold, written to a
+ * temporary file beyond it. The file is deleted when the stream is read to its end or closed.
+ *
+ * @see BlobInputStreamTypeHandler
+ */
+public final class SpooledInputStream extends FilterInputStream {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final long length;
+  private File file;
+  private boolean exhausted;
+
+  private SpooledInputStream(InputStream in, long length, File file) {
+    super(in);
+    this.length = length;
+    this.file = file;
+  }
+
+  /**
+   * Reads the stream to its end, leaving it open.
+   *
+   * @param threshold the most bytes kept on the heap
+   * @param directory where to create the temporary file, null for the default temporary directory
+   */
+  public static SpooledInputStream spool(InputStream in, int threshold, File directory) throws IOException {
+    ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(threshold, CHUNK_SIZE));
+    OutputStream out = null;
+    File file = null;
+    long length = 0;
+    boolean done = false;
+    try {
+      final byte[] chunk = new byte[CHUNK_SIZE];
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        length += n;
+        if (out == null && length > threshold) {
+          file = File.createTempFile("mybatis-lob", ".tmp", directory);
+          out = new BufferedOutputStream(new FileOutputStream(file));
+          memory.writeTo(out);
+          memory = null;
+        }
+        if (out != null) {
+          out.write(chunk, 0, n);
+        } else {
+          memory.write(chunk, 0, n);
+        }
+      }
+      if (out != null) {
+        out.close();
+      }
+      done = true;
+    } finally {
+      if (!done) {
+        if (out != null) {
+          try {
+            out.close();
+          } catch (IOException e) {
+            // ignore, already failing
+          }
+        }
+        delete(file);
+      }
+    }
+    if (file == null) {
+      return new SpooledInputStream(new ByteArrayInputStream(memory.toByteArray()), length, null);
+    }
+    return new SpooledInputStream(new FileInputStream(file), length, file);
+  }
+
+  /**
+   * @return the number of bytes of the content
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @return true if the content was written to a temporary file
+   */
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (exhausted) {
+      return -1;
+    }
+    int c = super.read();
+    if (c == -1) {
+      exhausted();
+    }
+    return c;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (exhausted) {
+      return -1;
+    }
+    int n = super.read(b, off, len);
+    if (n == -1) {
+      exhausted();
+    }
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return exhausted ? 0 : super.available();
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    return exhausted ? 0 : super.skip(n);
+  }
+
+  @Override
+  public boolean markSupported() {
+    // the content is released at its end
+    return false;
+  }
+
+  private void exhausted() throws IOException {
+    exhausted = true;
+    close();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      delete(file);
+      file = null;
+    }
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    try {
+      // the stream was never closed
+      close();
+    } finally {
+      super.finalize();
+    }
+  }
+
+  static void delete(File file) {
+    if (file != null && !file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+}
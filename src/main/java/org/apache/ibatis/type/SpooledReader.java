@@ -0,0 +1,182 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The content of a character LOB copied off the JDBC driver: kept on the heap up to a threshold, written to a
+ * temporary UTF-8 file beyond it. The file is deleted when the reader is read to its end or closed.
+ *
+ * @see ClobReaderTypeHandler
+ */
+public final class SpooledReader extends FilterReader {
+
+  private static final int CHUNK_SIZE = 4096;
+  private static final String ENCODING = "UTF-8";
+
+  private final long length;
+  private File file;
+  private boolean exhausted;
+
+  private SpooledReader(Reader in, long length, File file) {
+    super(in);
+    this.length = length;
+    this.file = file;
+  }
+
+  /**
+   * Reads the reader to its end, leaving it open.
+   *
+   * @param threshold the most characters kept on the heap
+   * @param directory where to create the temporary file, null for the default temporary directory
+   */
+  public static SpooledReader spool(Reader in, int threshold, File directory) throws IOException {
+    CharArrayWriter memory = new CharArrayWriter(Math.min(threshold, CHUNK_SIZE));
+    Writer out = null;
+    File file = null;
+    long length = 0;
+    boolean done = false;
+    try {
+      final char[] chunk = new char[CHUNK_SIZE];
+      int n;
+      while ((n = in.read(chunk)) != -1) {
+        length += n;
+        if (out == null && length > threshold) {
+          file = File.createTempFile("mybatis-lob", ".tmp", directory);
+          out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+          memory.writeTo(out);
+          memory = null;
+        }
+        if (out != null) {
+          out.write(chunk, 0, n);
+        } else {
+          memory.write(chunk, 0, n);
+        }
+      }
+      if (out != null) {
+        out.close();
+      }
+      done = true;
+    } finally {
+      if (!done) {
+        if (out != null) {
+          try {
+            out.close();
+          } catch (IOException e) {
+            // ignore, already failing
+          }
+        }
+        SpooledInputStream.delete(file);
+      }
+    }
+    if (file == null) {
+      return new SpooledReader(new CharArrayReader(memory.toCharArray()), length, null);
+    }
+    return new SpooledReader(new InputStreamReader(new FileInputStream(file), ENCODING), length, file);
+  }
+
+  /**
+   * @return the number of characters of the content
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @return true if the content was written to a temporary file
+   */
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (exhausted) {
+      return -1;
+    }
+    int c = super.read();
+    if (c == -1) {
+      exhausted();
+    }
+    return c;
+  }
+
+  @Override
+  public int read(char[] b, int off, int len) throws IOException {
+    if (exhausted) {
+      return -1;
+    }
+    int n = super.read(b, off, len);
+    if (n == -1) {
+      exhausted();
+    }
+    return n;
+  }
+
+  @Override
+  public boolean ready() throws IOException {
+    return !exhausted && super.ready();
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    return exhausted ? 0 : super.skip(n);
+  }
+
+  @Override
+  public boolean markSupported() {
+    // the content is released at its end
+    return false;
+  }
+
+  private void exhausted() throws IOException {
+    exhausted = true;
+    close();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      SpooledInputStream.delete(file);
+      file = null;
+    }
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    try {
+      // the reader was never closed
+      close();
+    } finally {
+      super.finalize();
+    }
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps a BLOB to a <code>java.sql.Blob</code> property, the locator of the driver, which reads the content
+ * on demand while the session is open.
+ */
+public class SqlBlobTypeHandler extends BaseTypeHandler<Blob> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Blob parameter, JdbcType jdbcType)
+      throws SQLException {
+    ps.setBlob(i, parameter);
+  }
+
+  @Override
+  public Blob getNullableResult(ResultSet rs, String columnName)
+      throws SQLException {
+    return rs.getBlob(columnName);
+  }
+
+  @Override
+  public Blob getNullableResult(ResultSet rs, int columnIndex)
+      throws SQLException {
+    return rs.getBlob(columnIndex);
+  }
+
+  @Override
+  public Blob getNullableResult(CallableStatement cs, int columnIndex)
+      throws SQLException {
+    return cs.getBlob(columnIndex);
+  }
+
+}
@@ -15,20 +15,26 @@
  */
 package org.apache.ibatis.type;
 
+import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.io.ResolverUtil;
+import org.apache.ibatis.session.Configuration;
 
 /**
  * @author Clinton Begin
@@ -49,12 +55,22 @@ public final class TypeHandlerRegistry {
     }
   };
 
+  private static final Class<?>[] LOB_TYPES = { Reader.class, InputStream.class, Clob.class, Blob.class };
+
   private final Map<JdbcType, TypeHandler<?>> JDBC_TYPE_HANDLER_MAP = new EnumMap<JdbcType, TypeHandler<?>>(JdbcType.class);
   private final Map<Type, Map<JdbcType, TypeHandler<?>>> TYPE_HANDLER_MAP = new HashMap<Type, Map<JdbcType, TypeHandler<?>>>();
   private final TypeHandler<Object> UNKNOWN_TYPE_HANDLER = new UnknownTypeHandler(this);
   private final Map<Class<?>, TypeHandler<?>> ALL_TYPE_HANDLERS_MAP = new HashMap<Class<?>, TypeHandler<?>>();
+  private final Set<Class<?>> builtInTypeHandlerTypes = new HashSet<Class<?>>();
 
   public TypeHandlerRegistry() {
+    this(null);
+  }
+
+  /**
+   * @param configuration 注册的Reader/InputStream处理器执行时从中读取LOB的溢出设置，可为null
+   */
+  public TypeHandlerRegistry(Configuration configuration) {
     register(Boolean.class, new BooleanTypeHandler());
     register(boolean.class, new BooleanTypeHandler());
     register(JdbcType.BOOLEAN, new BooleanTypeHandler());
@@ -119,6 +135,11 @@ public final class TypeHandlerRegistry {
     register(JdbcType.LONGVARBINARY, new BlobTypeHandler());
     register(JdbcType.BLOB, new BlobTypeHandler());
 
+    register(Reader.class, new ClobReaderTypeHandler(configuration));
+    register(InputStream.class, new BlobInputStreamTypeHandler(configuration));
+    register(Clob.class, new SqlClobTypeHandler());
+    register(Blob.class, new SqlBlobTypeHandler());
+
     register(Object.class, UNKNOWN_TYPE_HANDLER);
     register(Object.class, JdbcType.OTHER, UNKNOWN_TYPE_HANDLER);
     register(JdbcType.OTHER, UNKNOWN_TYPE_HANDLER);
@@ -137,6 +158,18 @@ public final class TypeHandlerRegistry {
     // issue #273
     register(Character.class, new CharacterTypeHandler());
     register(char.class, new CharacterTypeHandler());
+
+    builtInTypeHandlerTypes.addAll(ALL_TYPE_HANDLERS_MAP.keySet());
+    builtInTypeHandlerTypes.add(EnumTypeHandler.class);
+    builtInTypeHandlerTypes.add(EnumOrdinalTypeHandler.class);
+  }
+
+  /**
+   * Built-in handlers implement every getResult variant, so their columns can be read by index. The check is on
+   * the exact class, a subclass may override just the by-name variant.
+   */
+  public boolean isBuiltInTypeHandler(TypeHandler<?> typeHandler) {
+    return typeHandler != null && builtInTypeHandlerTypes.contains(typeHandler.getClass());
   }
 
   public boolean hasTypeHandler(Class<?> javaType) {
@@ -191,12 +224,25 @@ public final class TypeHandlerRegistry {
     if (handler == null && type != null && type instanceof Class && Enum.class.isAssignableFrom((Class<?>) type)) {
       handler = new EnumTypeHandler((Class<?>) type);
     }
+    if (handler == null && type instanceof Class) {
+      handler = getLobTypeHandler((Class<?>) type, jdbcType);
+    }
     @SuppressWarnings("unchecked")
     // type drives generics here
     TypeHandler<T> returned = (TypeHandler<T>) handler;
     return returned;
   }
 
+  private TypeHandler<?> getLobTypeHandler(Class<?> type, JdbcType jdbcType) {
+    // a StringReader parameter or a driver's Clob implementation uses the handler of the LOB type it extends
+    for (Class<?> lobType : LOB_TYPES) {
+      if (lobType != type && lobType.isAssignableFrom(type)) {
+        return getTypeHandler(lobType, jdbcType);
+      }
+    }
+    return null;
+  }
+
   public TypeHandler<Object> getUnknownTypeHandler() {
     return UNKNOWN_TYPE_HANDLER;
   }
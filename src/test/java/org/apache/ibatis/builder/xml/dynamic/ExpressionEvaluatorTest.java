@@ -17,8 +17,14 @@ package org.apache.ibatis.builder.xml.dynamic;
 
 import domain.blog.Author;
 import domain.blog.Section;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Map;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
 import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.session.Configuration;
 import static org.junit.Assert.assertEquals;
 import org.junit.Test;
 
@@ -74,5 +80,55 @@ public class ExpressionEvaluatorTest {
     }
   }
 
+  @Test
+  public void shouldEvaluateCompiledTestsLikeOgnl() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    String[] tests = { "username", "password", "id", "id == 1", "id != 1", "id > 0", "id >= 2", "id < 2", "id <= 0",
+        "username == 'cbegin'", "username != \"norm\"", "password == null", "password != null and id > 0",
+        "password != null or id > 0", "!(id == 1)", "not (password == null)", "id == 1 && username != null",
+        "password || username", "favouriteSection != null", "username == 'c'", "username.length() > 0",
+        "true", "false", "null", "id == 1.0" };
+    for (String test : tests) {
+      assertCompiledSameAsOgnl(test, author);
+    }
+  }
+
+  @Test
+  public void shouldEvaluateCompiledTestsOnMapsLikeOgnl() {
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("name", "");
+    parameter.put("count", 0L);
+    parameter.put("list", new ArrayList<Object>());
+    parameter.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+    Map<String, Object> nested = new HashMap<String, Object>();
+    nested.put("flag", Boolean.TRUE);
+    parameter.put("nested", nested);
+    String[] tests = { "name", "name != null and name != ''", "count", "count == 0", "count > 0 or name == ''",
+        "list", "list.size > 0", "list != null and list.size() == 0", "author.username == 'cbegin'",
+        "author.password == null", "nested.flag", "nested.flag and count == 0", "nested.size == 1", "missing == null",
+        "missing.value == null", "_parameter.count == 0" };
+    for (String test : tests) {
+      assertCompiledSameAsOgnl(test, parameter);
+    }
+  }
+
+  private void assertCompiledSameAsOgnl(String test, Object parameter) {
+    Configuration configuration = new Configuration();
+    DynamicContext ognlContext = new DynamicContext(configuration, parameter);
+    DynamicContext compiledContext = new DynamicContext(configuration, parameter);
+    Object expected;
+    try {
+      expected = new IfSqlNode(new StaticTextSqlNode("x"), test).apply(ognlContext);
+    } catch (RuntimeException e) {
+      expected = e.getClass();
+    }
+    Object actual;
+    try {
+      actual = new IfSqlNode(new StaticTextSqlNode("x"), test, true).apply(compiledContext);
+    } catch (RuntimeException e) {
+      actual = e.getClass();
+    }
+    assertEquals(test, expected, actual);
+  }
 
 }
@@ -0,0 +1,200 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockingCacheTest {
+
+  private ExecutorService executor;
+  private BlockingCache cache;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+    cache = new BlockingCache(new PerpetualCache("default"));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldMakeOtherThreadsWaitForTheLoader() throws Exception {
+    assertNull(cache.getObject("key"));
+    Future<Object> waiting = getInOtherThread(cache, "key");
+    try {
+      waiting.get(200, TimeUnit.MILLISECONDS);
+      fail("Should be waiting for the key to be put");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    cache.putObject("key", "value");
+    assertEquals("value", waiting.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotBlockTheThreadThatOwnsTheKey() {
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldNotLockOnHits() throws Exception {
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    assertEquals("value", getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldTimeOutWaitingForTheLoader() throws Exception {
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key"));
+    try {
+      getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS);
+      fail("Should have timed out");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CacheException);
+    }
+  }
+
+  @Test
+  public void shouldReleaseMissedKeysOnRollback() throws Exception {
+    TransactionalCache txCache = new TransactionalCache(cache);
+    assertNull(txCache.getObject("key"));
+    txCache.putObject("key", "value");
+    txCache.rollback();
+    assertNull(getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldReleaseMissedKeysThatWereNotPutOnCommit() throws Exception {
+    TransactionalCache txCache = new TransactionalCache(cache);
+    assertNull(txCache.getObject("key"));
+    assertNull(txCache.getObject("other"));
+    txCache.putObject("other", "value");
+    txCache.clear();
+    txCache.commit();
+    assertNull(getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+    assertNull(getInOtherThread(cache, "other").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldKeepValuesPutByOtherSessionsWhenReleasingMissedKeys() throws Exception {
+    TransactionalCache txCache = new TransactionalCache(cache);
+    assertNull(txCache.getObject("key"));
+    executor.submit(new Runnable() {
+      public void run() {
+        cache.putObject("key", "value");
+      }
+    }).get(5, TimeUnit.SECONDS);
+    txCache.rollback();
+    assertEquals("value", getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotReleaseKeysOwnedByOtherThreads() throws Exception {
+    cache.setTimeout(50);
+    assertNull(getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+    cache.releaseLock("key");
+    try {
+      cache.getObject("key");
+      fail("Should still be waiting for the other thread");
+    } catch (CacheException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void shouldReleaseMissedKeysWhenTheSessionEndsOnAnotherThread() throws Exception {
+    cache.setTimeout(50);
+    final TransactionalCache txCache = new TransactionalCache(cache);
+    assertNull(executor.submit(new Callable<Object>() {
+      public Object call() {
+        return txCache.getObject("key");
+      }
+    }).get(5, TimeUnit.SECONDS));
+    txCache.rollback();
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldNotReleaseTheKeyOfAnotherLoaderWhenPutting() throws Exception {
+    cache.setTimeout(50);
+    TransactionalCache loader = new TransactionalCache(cache);
+    TransactionalCache clearing = new TransactionalCache(cache);
+    assertNull(loader.getObject("key"));
+    clearing.clear();
+    clearing.putObject("key", "other");
+    clearing.commit();
+    try {
+      getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS);
+      fail("Should still be waiting for the loader");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof CacheException);
+    }
+    loader.putObject("key", "value");
+    loader.commit();
+    assertEquals("value", getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldPutOnCommit() throws Exception {
+    TransactionalCache txCache = new TransactionalCache(cache);
+    assertNull(txCache.getObject("key"));
+    txCache.putObject("key", "value");
+    txCache.commit();
+    assertEquals("value", getInOtherThread(cache, "key").get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldBuildBlockingCacheWithTimeout() {
+    Properties props = new Properties();
+    props.setProperty("timeout", "1000");
+    Cache built = new CacheBuilder("default").blocking(true).properties(props).build();
+    assertTrue(built instanceof BlockingCache);
+    assertEquals(1000, ((BlockingCache) built).getTimeout());
+  }
+
+  private Future<Object> getInOtherThread(final Cache cache, final Object key) {
+    return executor.submit(new Callable<Object>() {
+      public Object call() {
+        return cache.getObject(key);
+      }
+    });
+  }
+
+}
@@ -80,4 +80,42 @@ public class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  public void shouldShareThePrefixOfAnotherKey() {
+    CacheKey prefix = new CacheKey(new Object[] { "map", 1 });
+    CacheKey combined = new CacheKey(prefix);
+    combined.update("parent");
+    prefix.update("later");
+    assertEquals(3, combined.getUpdateCount());
+    assertEquals(3, prefix.getUpdateCount());
+    CacheKey expected = new CacheKey(new Object[] { "map", 1, "parent" });
+    assertEquals(expected, combined);
+    assertEquals(combined, expected);
+    assertEquals(expected.hashCode(), combined.hashCode());
+    assertEquals(expected.toString(), combined.toString());
+    assertEquals(new CacheKey(new Object[] { "map", 1, "later" }), prefix);
+  }
+
+  @Test
+  public void shouldFlattenAKeyDerivedTwice() {
+    CacheKey first = new CacheKey(new Object[] { "a" });
+    CacheKey second = new CacheKey(first);
+    second.update("b");
+    CacheKey third = new CacheKey(second);
+    third.update("c");
+    second.update("x");
+    assertEquals(new CacheKey(new Object[] { "a", "b", "c" }), third);
+    assertEquals(new CacheKey(new Object[] { "a", "b", "x" }), second);
+  }
+
+  @Test
+  public void shouldNotChangeTheCloneWhenUpdatingTheOriginal() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    CacheKey clone = key.clone();
+    key.update(9);
+    assertEquals(8, clone.getUpdateCount());
+    assertFalse(clone.equals(key));
+    assertEquals(new CacheKey(new Object[] { 1, 2, 3, 4, 5, 6, 7, 8 }), clone);
+  }
+
 }
@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.CopyOnReadCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.StructuralCloner;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import domain.blog.Author;
+import domain.blog.Section;
+
+public class CompactCacheSerializerTest {
+
+  private final CompactCacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  public void shouldRoundTripSimpleValues() {
+    Timestamp timestamp = new Timestamp(1000L);
+    timestamp.setNanos(123456789);
+    Object[] values = { null, "text", 1, 2L, (short) 3, (byte) 4, true, 'c', 1.5f, 2.5d,
+        new BigDecimal("12.340"), new Date(42L), timestamp, Section.NEWS, String.class };
+    for (Object value : values) {
+      assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+    assertArrayEquals(new byte[] { 1, 2 }, (byte[]) serializer.deserialize(serializer.serialize(new byte[] { 1, 2 })));
+    assertArrayEquals(new int[] { 1, 2 }, (int[]) serializer.deserialize(serializer.serialize(new int[] { 1, 2 })));
+  }
+
+  @Test
+  public void shouldCopyBeansCollectionsAndMaps() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something", Section.NEWS);
+    List<Object> list = new ArrayList<Object>();
+    list.add(author);
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("authors", list);
+    @SuppressWarnings("unchecked")
+    Map<String, Object> copy = (Map<String, Object>) serializer.deserialize(serializer.serialize(map));
+    assertEquals(map, copy);
+    Author authorCopy = (Author) ((List<?>) copy.get("authors")).get(0);
+    assertNotSame(author, authorCopy);
+    assertEquals(Section.NEWS, authorCopy.getFavouriteSection());
+  }
+
+  @Test
+  public void shouldBeSmallerThanJavaSerialization() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something", Section.NEWS);
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 10; i++) {
+      authors.add(author);
+    }
+    assertTrue(serializer.serialize(authors).length < new JavaCacheSerializer().serialize(authors).length);
+  }
+
+  @Test
+  public void shouldPreserveCyclesAndSharedReferences() {
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+    Node copy = (Node) serializer.deserialize(serializer.serialize(parent));
+    assertEquals("parent", copy.getName());
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertSame(copy, copy.getChildren().get(0).getParent());
+
+    Node clone = (Node) new StructuralCloner(new JavaCacheSerializer()).copy(parent);
+    assertNotSame(parent, clone);
+    assertSame(clone, clone.getChildren().get(0).getParent());
+  }
+
+  @Test
+  public void shouldFallBackToJavaSerializationForCustomClasses() {
+    Opaque opaque = new Opaque("secret");
+    Opaque copy = (Opaque) serializer.deserialize(serializer.serialize(opaque));
+    assertEquals("secret", copy.value);
+  }
+
+  @Test
+  public void shouldReturnPrivateCopiesOnReadWithCopyOnReadCache() {
+    Cache cache = new CopyOnReadCache(new PerpetualCache("default"));
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something", Section.NEWS);
+    cache.putObject("a", author);
+    author.setUsername("changed");
+    Author first = (Author) cache.getObject("a");
+    Author second = (Author) cache.getObject("a");
+    assertEquals("jim", first.getUsername());
+    assertNotSame(first, second);
+  }
+
+  @Test
+  public void shouldBuildCacheWithConfiguredSerializer() {
+    Cache cache = new CacheBuilder("default").readWrite(true).serializer(serializer).build();
+    Object serializedCache = SystemMetaObject.forObject(cache).getValue("delegate.delegate");
+    assertTrue(serializedCache instanceof SerializedCache);
+    assertSame(serializer, ((SerializedCache) serializedCache).getSerializer());
+
+    cache = new CacheBuilder("default").readWrite(true).copyOnRead(true).build();
+    assertTrue(SystemMetaObject.forObject(cache).getValue("delegate.delegate") instanceof CopyOnReadCache);
+  }
+
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<Node>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+  public static class Opaque implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String value;
+
+    public Opaque(String value) {
+      this.value = value;
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+  @Test
+  public void shouldRemoveLeastRecentlyUsedItemInBeyondFiveEntries() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveFirstItemInBeyondFiveEntriesWithFifoEviction() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(5);
+    cache.setEviction("FIFO");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  public void shouldNeverGrowBeyondConfiguredSize() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      cache.getObject(i / 2);
+    }
+    assertTrue(cache.getSize() <= 100);
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldFlushAllItemsAfterClearInterval() throws Exception {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setClearInterval(100);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    Thread.sleep(200);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    final ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(256);
+    final int threadCount = 8;
+    final CountDownLatch done = new CountDownLatch(threadCount);
+    final AtomicInteger failures = new AtomicInteger();
+    for (int t = 0; t < threadCount; t++) {
+      final int seed = t;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 10000; i++) {
+              int key = (i * 31 + seed) % 1024;
+              Object value = cache.getObject(key);
+              if (value != null && !value.equals(key)) {
+                failures.incrementAndGet();
+              }
+              cache.putObject(key, key);
+            }
+          } catch (Exception e) {
+            failures.incrementAndGet();
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    done.await();
+    assertEquals(0, failures.get());
+    assertTrue(cache.getSize() <= 256);
+  }
+
+  @Test
+  public void shouldCountEveryRequestWithoutSynchronizedDecorator() throws Exception {
+    final Cache cache = new LoggingCache(new ConcurrentCache("default"));
+    cache.putObject(0, 0);
+    final int threadCount = 8;
+    final CountDownLatch done = new CountDownLatch(threadCount);
+    for (int t = 0; t < threadCount; t++) {
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int i = 0; i < 10000; i++) {
+              cache.getObject(i % 2);
+            }
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+    done.await();
+    assertEquals(threadCount * 10000, SystemMetaObject.forObject(cache).getValue("requests"));
+    assertEquals(threadCount * 5000, SystemMetaObject.forObject(cache).getValue("hits"));
+  }
+
+  @Test
+  public void shouldBuildConcurrentCacheWithoutSynchronizedDecorator() {
+    Cache cache = new CacheBuilder("default")
+        .implementation(ConcurrentCache.class)
+        .addDecorator(FifoCache.class)
+        .size(10)
+        .clearInterval(60000L)
+        .readWrite(false)
+        .build();
+    assertTrue(cache instanceof LoggingCache);
+    ConcurrentCache concurrentCache = (ConcurrentCache) SystemMetaObject.forObject(cache).getValue("delegate");
+    assertEquals(10, concurrentCache.getCapacity());
+    assertEquals("FIFO", concurrentCache.getEviction());
+  }
+
+  @Test
+  public void shouldKeepLockForUnsupportedEvictionDecorators() {
+    Cache cache = new CacheBuilder("default")
+        .implementation(ConcurrentCache.class)
+        .addDecorator(LruCache.class)
+        .addDecorator(org.apache.ibatis.cache.decorators.SoftCache.class)
+        .build();
+    assertTrue(cache instanceof SynchronizedCache);
+  }
+
+}
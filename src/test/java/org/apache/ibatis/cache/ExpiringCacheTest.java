@@ -0,0 +1,146 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  private ManualTimerWheel wheel;
+  private PerpetualCache store;
+  private ExpiringCache cache;
+
+  @Before
+  public void setUp() {
+    wheel = new ManualTimerWheel();
+    store = new PerpetualCache("DefaultCache");
+    cache = new ExpiringCache(new SynchronizedCache(new LoggingCache(store)));
+    cache.setTimerWheel(wheel);
+  }
+
+  @Test
+  public void shouldExpireEachEntryAfterItsTimeToLive() {
+    cache.setTimeToLive(1000);
+    cache.putObject(0, 0);
+    wheel.advanceTo(500);
+    cache.putObject(1, 1);
+    wheel.advanceTo(1000);
+    assertNull(cache.getObject(0));
+    assertEquals(1, store.getSize());
+    assertEquals(1, cache.getObject(1));
+    wheel.advanceTo(1500);
+    assertEquals(0, store.getSize());
+  }
+
+  @Test
+  public void shouldKeepEntriesReadWithinTheirTimeToIdle() {
+    cache.setTimeToIdle(1000);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    for (long now = 500; now <= 3000; now += 500) {
+      wheel.advanceTo(now);
+      assertEquals(0, cache.getObject(0));
+    }
+    assertNull(store.getObject(1));
+    wheel.advanceTo(4000);
+    assertEquals(0, store.getSize());
+  }
+
+  @Test
+  public void shouldExpireAfterTheTimeToLiveEvenIfRead() {
+    cache.setTimeToLive(2000);
+    cache.setTimeToIdle(1000);
+    cache.putObject(0, 0);
+    for (long now = 500; now < 2000; now += 500) {
+      wheel.advanceTo(now);
+      assertEquals(0, cache.getObject(0));
+    }
+    wheel.advanceTo(2000);
+    assertNull(cache.getObject(0));
+    assertEquals(0, store.getSize());
+  }
+
+  @Test
+  public void shouldUseTheTimeToLiveOfTheValue() {
+    cache.setTimeToLive(1000);
+    cache.putObject(0, new ExpiringValue(0, 5000));
+    cache.putObject(1, 1);
+    assertEquals(0, cache.getObject(0));
+    wheel.advanceTo(1000);
+    assertNull(store.getObject(1));
+    assertEquals(0, store.getObject(0));
+    wheel.advanceTo(5000);
+    assertNull(store.getObject(0));
+  }
+
+  @Test
+  public void shouldRestartTheTimeToLiveWhenReplaced() {
+    cache.setTimeToLive(1000);
+    cache.putObject(0, 0);
+    wheel.advanceTo(800);
+    cache.putObject(0, 1);
+    wheel.advanceTo(1000);
+    assertEquals(1, cache.getObject(0));
+    wheel.advanceTo(1800);
+    assertNull(store.getObject(0));
+  }
+
+  @Test
+  public void shouldMissEntriesPastTheirDeadlineBeforeTheWheelRemovesThem() {
+    cache.setTimeToLive(1000);
+    cache.putObject(0, 0);
+    wheel.now = 1000;
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldNotExpireEntriesPutAgainAfterAClear() {
+    cache.setTimeToLive(1000);
+    cache.putObject(0, 0);
+    cache.clear();
+    wheel.advanceTo(500);
+    cache.putObject(0, 1);
+    wheel.advanceTo(1000);
+    assertEquals(1, cache.getObject(0));
+  }
+
+  private static class ManualTimerWheel extends TimerWheel {
+    private long now;
+
+    ManualTimerWheel() {
+      super(100);
+      advance(0);
+    }
+
+    @Override
+    public long currentTime() {
+      return now;
+    }
+
+    void advanceTo(long now) {
+      this.now = now;
+      advance(now);
+    }
+  }
+
+}
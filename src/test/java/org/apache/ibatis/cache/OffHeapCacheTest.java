@@ -0,0 +1,174 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldStoreAndReadSerializedValues() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject("a", new byte[] { 1, 2, 3 });
+    cache.putObject("b", new byte[0]);
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) cache.getObject("a"));
+    assertArrayEquals(new byte[0], (byte[]) cache.getObject("b"));
+    assertNull(cache.getObject("c"));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  public void shouldReplaceExistingValue() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject("a", new byte[] { 1 });
+    cache.putObject("a", new byte[] { 2, 2 });
+    assertArrayEquals(new byte[] { 2, 2 }, (byte[]) cache.getObject("a"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldEvictOldestSlabWhenCapacityIsReached() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.setCapacity(256);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, new byte[28]);
+    }
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(99));
+    assertTrue(cache.getSize() <= 8);
+  }
+
+  @Test
+  public void shouldOnlyEvictEntriesStillLivingInTheOverwrittenSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.setCapacity(128);
+    cache.putObject("a", new byte[28]);
+    cache.putObject("b", new byte[28]);
+    cache.putObject("a", new byte[28]);
+    cache.putObject("c", new byte[28]);
+    cache.putObject("d", new byte[28]);
+    assertNotNull(cache.getObject("a"));
+    assertNull(cache.getObject("b"));
+    assertNotNull(cache.getObject("c"));
+    assertNotNull(cache.getObject("d"));
+    assertEquals(3, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepTwoSlabsWhenCapacityIsBelowTwiceTheSlabSize() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.setCapacity(100);
+    // the slabs hold 50 bytes, two records each
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, new byte[20]);
+    }
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertNotNull(cache.getObject(3));
+    assertNotNull(cache.getObject(4));
+    // larger than the reduced slab size
+    cache.putObject(5, new byte[60]);
+    assertNull(cache.getObject(5));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectCapacityTooSmallForTwoSlabs() {
+    new OffHeapCache("default").setCapacity(8);
+  }
+
+  @Test
+  public void shouldNotStoreValuesLargerThanASlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSlabSize(64);
+    cache.putObject("a", new byte[10]);
+    cache.putObject("a", new byte[100]);
+    assertNull(cache.getObject("a"));
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, new byte[] { 7 });
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, new byte[] { (byte) i });
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectValuesThatAreNotSerialized() {
+    new OffHeapCache("default").putObject("a", "plain");
+  }
+
+  @Test
+  public void shouldAlwaysSerializeWhenBuiltThroughCacheBuilder() {
+    Properties props = new Properties();
+    props.setProperty("capacity", "1048576");
+    props.setProperty("slabSize", "65536");
+    Cache cache = new CacheBuilder("default")
+        .implementation(OffHeapCache.class)
+        .addDecorator(LruCache.class)
+        .readWrite(false)
+        .properties(props)
+        .build();
+    assertTrue(cache instanceof SynchronizedCache);
+    List<String> value = new ArrayList<String>();
+    value.add("one");
+    cache.putObject("a", value);
+    List<?> copy = (List<?>) cache.getObject("a");
+    assertEquals(value, copy);
+    assertNotSame(value, copy);
+  }
+
+  @Test
+  public void shouldNotBoundEntryCountWithoutEvictionDecorator() {
+    MapperBuilderAssistant assistant = new MapperBuilderAssistant(new Configuration(), "resource");
+    assistant.setCurrentNamespace("default");
+    Cache cache = assistant.useNewCache(OffHeapCache.class, null, null, null, false, new Properties());
+    assertFalse(cache instanceof SynchronizedCache);
+    for (int i = 0; i < 2000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(2000, cache.getSize());
+    assertEquals(0, cache.getObject(0));
+  }
+
+}
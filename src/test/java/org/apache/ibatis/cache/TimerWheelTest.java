@@ -0,0 +1,158 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+  private long now;
+
+  @Test
+  public void shouldFireTimeoutsInAllLevelsOnTime() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 0);
+    List<RecordingTimeout> timeouts = new ArrayList<RecordingTimeout>();
+    Random random = new Random(42);
+    // up to beyond the range of the wheel, 10 ms * 64^4 is about 46 hours
+    long[] ranges = { 640, 40960, 2621440, 167772160, 400000000 };
+    for (long range : ranges) {
+      for (int i = 0; i < 200; i++) {
+        RecordingTimeout timeout = new RecordingTimeout(1 + (long) (random.nextDouble() * range));
+        timeouts.add(timeout);
+        wheel.schedule(timeout);
+      }
+    }
+    for (long time = 0; time <= 400000000 + 1000; time += 1000) {
+      advance(wheel, time);
+    }
+    for (RecordingTimeout timeout : timeouts) {
+      assertTrue(timeout.firedAt >= timeout.deadline);
+      // at most one advance and one tick late
+      assertTrue(timeout.firedAt - timeout.deadline < 1010);
+    }
+  }
+
+  @Test
+  public void shouldFireEachTick() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 1000);
+    RecordingTimeout timeout = new RecordingTimeout(1025);
+    wheel.schedule(timeout);
+    advance(wheel, 1020);
+    assertEquals(-1, timeout.firedAt);
+    advance(wheel, 1030);
+    assertEquals(1030, timeout.firedAt);
+  }
+
+  @Test
+  public void shouldFirePastDeadlinesRightAway() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 1000);
+    RecordingTimeout timeout = new RecordingTimeout(500);
+    wheel.schedule(timeout);
+    advance(wheel, 1000);
+    assertEquals(1000, timeout.firedAt);
+  }
+
+  @Test
+  public void shouldNotFireCancelledTimeouts() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 0);
+    RecordingTimeout timeout = new RecordingTimeout(5000);
+    wheel.schedule(timeout);
+    advance(wheel, 1000);
+    timeout.cancel();
+    advance(wheel, 10000);
+    assertEquals(-1, timeout.firedAt);
+  }
+
+  @Test
+  public void shouldUnlinkCancelledTimeoutsOnTheNextTick() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 0);
+    List<RecordingTimeout> timeouts = new ArrayList<RecordingTimeout>();
+    for (int i = 0; i < 5; i++) {
+      // all in the same slot of the highest level
+      RecordingTimeout timeout = new RecordingTimeout(100000000 + i);
+      timeouts.add(timeout);
+      wheel.schedule(timeout);
+    }
+    advance(wheel, 10);
+    assertEquals(5, wheel.size());
+    timeouts.get(0).cancel();
+    timeouts.get(2).cancel();
+    timeouts.get(4).cancel();
+    assertEquals(5, wheel.size());
+    advance(wheel, 20);
+    assertEquals(2, wheel.size());
+    for (long time = 1000; time <= 100001000; time += 1000) {
+      advance(wheel, time);
+    }
+    assertEquals(0, wheel.size());
+    assertEquals(-1, timeouts.get(0).firedAt);
+    assertTrue(timeouts.get(1).firedAt >= 100000001);
+    assertEquals(-1, timeouts.get(2).firedAt);
+    assertTrue(timeouts.get(3).firedAt >= 100000003);
+    assertEquals(-1, timeouts.get(4).firedAt);
+  }
+
+  @Test
+  public void shouldWaitForMovedDeadlines() {
+    TimerWheel wheel = new TimerWheel(10);
+    advance(wheel, 0);
+    RecordingTimeout timeout = new RecordingTimeout(1000);
+    wheel.schedule(timeout);
+    advance(wheel, 900);
+    timeout.deadline = 5000;
+    advance(wheel, 4990);
+    assertEquals(-1, timeout.firedAt);
+    advance(wheel, 5000);
+    assertEquals(5000, timeout.firedAt);
+  }
+
+  private void advance(TimerWheel wheel, long now) {
+    this.now = now;
+    wheel.advance(now);
+  }
+
+  private class RecordingTimeout extends TimerWheel.Timeout {
+    private long deadline;
+    private long firedAt = -1;
+
+    RecordingTimeout(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline() {
+      return deadline;
+    }
+
+    @Override
+    protected void expire() {
+      assertEquals(-1, firedAt);
+      firedAt = now;
+    }
+  }
+
+}
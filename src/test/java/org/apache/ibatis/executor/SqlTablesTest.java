@@ -0,0 +1,62 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SqlTablesTest {
+
+  @Test
+  public void shouldFindTheWrittenTable() {
+    assertEquals("users", SqlTables.writtenTable("insert into USERS (id, name) values (?, ?)"));
+    assertEquals("users", SqlTables.writtenTable("insert into users(id) values (?)"));
+    assertEquals("users", SqlTables.writtenTable("update public.users set name = ?"));
+    assertEquals("users", SqlTables.writtenTable("delete from \"Users\" where id = ?"));
+    assertEquals("users", SqlTables.writtenTable("merge into users u using dual on (u.id = ?)"));
+    assertNull(SqlTables.writtenTable("{call clean_users(?)}"));
+    assertNull(SqlTables.writtenTable("truncate table users"));
+  }
+
+  @Test
+  public void shouldFindTheReadTables() {
+    assertArrayEquals(new String[] { "users" }, SqlTables.readTables("select * from users where id = ?"));
+    assertArrayEquals(new String[] { "orders", "users" },
+        SqlTables.readTables("SELECT o.* FROM orders o INNER JOIN users u ON u.id = o.user_id"));
+    assertArrayEquals(new String[] { "orders", "users", "items" },
+        SqlTables.readTables("select * from orders o, users as u, items where o.user_id = u.id"));
+    assertArrayEquals(new String[] { "users", "orders" },
+        SqlTables.readTables("select * from users where id in (select user_id from orders)"));
+    assertArrayEquals(new String[] { "users" }, SqlTables.readTables("select * from (select * from users) u"));
+    assertArrayEquals(new String[] { "users", "orders" },
+        SqlTables.readTables("select * from [dbo].[Users] left outer join \"app\".\"ORDERS\" on 1 = 1"));
+  }
+
+  @Test
+  public void shouldIgnoreLiteralsAndComments() {
+    assertArrayEquals(new String[] { "users" },
+        SqlTables.readTables("select 'from orders' as text /* from items */ from users -- from lines\n where 1 = 1"));
+  }
+
+  @Test
+  public void shouldGiveUpOnTableFunctionsAndParameters() {
+    assertNull(SqlTables.readTables("select * from table(user_list(?))"));
+    assertNull(SqlTables.readTables("select * from unnest(?) as ids"));
+    assertNull(SqlTables.readTables("select 1"));
+  }
+
+}
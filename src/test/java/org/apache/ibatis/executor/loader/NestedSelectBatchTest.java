@@ -0,0 +1,66 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class NestedSelectBatchTest {
+
+  @Test
+  public void shouldKeepKeysPendingWhenTheBatchQueryFails() throws Exception {
+    Map<String, Object> row = new HashMap<String, Object>();
+    row.put("id", 1L);
+    List<Object> rows = new ArrayList<Object>();
+    rows.add(row);
+    Executor executor = mock(Executor.class);
+    when(executor.query(any(MappedStatement.class), any(), any(RowBounds.class), any(ResultHandler.class)))
+        .thenThrow(new SQLException("connection lost"))
+        .thenReturn(rows);
+
+    NestedSelectBatch batch = new NestedSelectBatch(new Configuration(), null, "id");
+    batch.addKey(1);
+    batch.addKey(2);
+    try {
+      batch.load(executor);
+      fail("the failed query should be reported");
+    } catch (SQLException e) {
+      assertEquals("connection lost", e.getMessage());
+    }
+    assertTrue(batch.getResults(1).isEmpty());
+
+    batch.load(executor);
+    assertEquals(1, batch.getResults(1).size());
+    assertSame(row, batch.getResults(1).get(0));
+    assertTrue(batch.getResults(2).isEmpty());
+    verify(executor, times(2)).query(any(MappedStatement.class), any(), any(RowBounds.class), any(ResultHandler.class));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.apache.ibatis.type.JdbcType;
+import org.junit.Test;
+
+public class BufferedRowTest {
+
+  @Test
+  public void shouldReadTimestampsAsWallClockTimeOfTheCalendar() throws Exception {
+    Calendar local = Calendar.getInstance();
+    local.clear();
+    local.set(2014, Calendar.MARCH, 1, 10, 30, 0);
+    Timestamp stored = new Timestamp(local.getTimeInMillis());
+    stored.setNanos(123456789);
+    ResultSet rs = newRow("created", stored);
+
+    Calendar zoned = Calendar.getInstance(TimeZone.getTimeZone("GMT+05:00"));
+    Timestamp read = rs.getTimestamp("created", zoned);
+    zoned.setTime(read);
+    assertEquals(10, zoned.get(Calendar.HOUR_OF_DAY));
+    assertEquals(30, zoned.get(Calendar.MINUTE));
+    assertEquals(123456789, read.getNanos());
+    assertEquals(stored, rs.getTimestamp(1));
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void shouldApplyTheScaleOfGetBigDecimal() throws Exception {
+    ResultSet rs = newRow("price", new BigDecimal("1.235"));
+    assertEquals(new BigDecimal("1.24"), rs.getBigDecimal(1, 2));
+    assertEquals(new BigDecimal("1.235"), rs.getBigDecimal(1));
+  }
+
+  @Test
+  public void shouldNotBufferBinaryColumns() {
+    assertTrue(BufferedRow.canBuffer(Arrays.asList(JdbcType.INTEGER, JdbcType.BLOB, JdbcType.TIMESTAMP)));
+    assertFalse(BufferedRow.canBuffer(Arrays.asList(JdbcType.INTEGER, JdbcType.VARBINARY)));
+  }
+
+  private static ResultSet newRow(String column, Object value) {
+    Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+    columnIndexes.put(column.toUpperCase(), 1);
+    BufferedRow row = new BufferedRow(columnIndexes, null);
+    row.setValues(new Object[] { value });
+    return row.newResultSet();
+  }
+
+}
@@ -19,17 +19,37 @@ import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Test;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 public class PooledDataSourceTest extends BaseDataTest {
 
+  private static final String COUNT_USERS = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE USER_NAME = ?";
+
   @Test
   public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -85,4 +105,260 @@ public class PooledDataSourceTest extends BaseDataTest {
     Connection c = ds.getConnection();
     JDBCConnection realConnection = (JDBCConnection) PooledDataSource.unwrapConnection(c);
   }
+
+  @Test
+  public void shouldProperlyMaintainConcurrentPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolTimeToWait(10000);
+      ds.setPoolConcurrentEnabled(true);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseConnectionThatFailsToRollBackOnReturnToConcurrentPool() throws Exception {
+    PooledDataSource ds = new PooledDataSource(RollbackFailingDriver.class.getName(), RollbackFailingDriver.URL, "sa", "");
+    try {
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumIdleConnections(1);
+      ds.setPoolConcurrentEnabled(true);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      RollbackFailingDriver.failRollback = true;
+      try {
+        c.close();
+        fail("The failed rollback should be reported.");
+      } catch (SQLException e) {
+        // expected
+      } finally {
+        RollbackFailingDriver.failRollback = false;
+      }
+      assertTrue(realConnection.isClosed());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      // the idle slot reserved for the failed connection is free again
+      ds.getConnection().close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldServeManyThreadsFromConcurrentPool() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumIdleConnections(4);
+      ds.setPoolTimeToWait(100);
+      ds.setPoolConcurrentEnabled(true);
+      final int threadCount = 16;
+      final int loops = 50;
+      final CountDownLatch done = new CountDownLatch(threadCount);
+      final AtomicInteger failures = new AtomicInteger();
+      for (int i = 0; i < threadCount; i++) {
+        new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (int j = 0; j < loops; j++) {
+                Connection c = ds.getConnection();
+                c.createStatement().close();
+                c.close();
+              }
+            } catch (Exception e) {
+              failures.incrementAndGet();
+            } finally {
+              done.countDown();
+            }
+          }
+        }.start();
+      }
+      done.await();
+      assertEquals(0, failures.get());
+      assertEquals(threadCount * loops, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnectionFromConcurrentPool() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(20);
+      ds.setPoolTimeToWait(20);
+      ds.setPoolConcurrentEnabled(true);
+      Connection first = ds.getConnection();
+      Thread.sleep(50);
+      Connection second = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      first.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      second.close();
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(2);
+      assertStatementsReusedAcrossCheckouts(ds);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReusePreparedStatementsAcrossCheckoutsFromConcurrentPool() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(2);
+      ds.setPoolConcurrentEnabled(true);
+      assertStatementsReusedAcrossCheckouts(ds);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotShareOpenPreparedStatements() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolStatementCacheSize(2);
+      Connection c = ds.getConnection();
+      PreparedStatement first = c.prepareStatement(COUNT_USERS);
+      PreparedStatement second = c.prepareStatement(COUNT_USERS);
+      assertNotSame(first, second);
+      assertEquals(2, ds.getPoolState().getStatementCacheMissCount());
+      first.close();
+      second.close();
+      try {
+        first.executeQuery();
+        fail("A closed statement must not be usable.");
+      } catch (SQLException e) {
+        // expected
+      }
+      c.prepareStatement(COUNT_USERS).close();
+      c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_TABLES").close();
+      c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_COLUMNS").close();
+      c.close();
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+      ds.forceCloseAll();
+      c = ds.getConnection();
+      c.prepareStatement(COUNT_USERS).close();
+      c.close();
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private void assertStatementsReusedAcrossCheckouts(PooledDataSource ds) throws Exception {
+    Connection c = ds.getConnection();
+    PreparedStatement ps = c.prepareStatement(COUNT_USERS);
+    assertSame(c, ps.getConnection());
+    ps.setString(1, "SA");
+    ps.setMaxRows(1);
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+    rs.close();
+    ps.close();
+    c.close();
+
+    c = ds.getConnection();
+    ps = c.prepareStatement(COUNT_USERS);
+    assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+    assertEquals(0, ps.getMaxRows());
+    try {
+      // parameters of the previous use are cleared
+      ps.executeQuery();
+      fail("Parameters of a reused statement must be cleared.");
+    } catch (SQLException e) {
+      // expected
+    }
+    ps.close();
+    c.close();
+  }
+
+  public static class RollbackFailingDriver implements Driver {
+
+    static final String URL = "jdbc:rollbackfailing:";
+    static volatile boolean failRollback;
+
+    public Connection connect(String url, Properties info) throws SQLException {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      final Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:rollbackfailing", "sa", "");
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+              if (failRollback && "rollback".equals(method.getName())) {
+                throw new SQLException("Rollback failed.");
+              }
+              try {
+                return method.invoke(connection, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            }
+          });
+    }
+
+    public boolean acceptsURL(String url) {
+      return url.startsWith(URL);
+    }
+
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+  }
 }
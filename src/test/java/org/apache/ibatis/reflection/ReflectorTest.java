@@ -15,6 +15,12 @@
  */
 package org.apache.ibatis.reflection;
 
+import org.apache.ibatis.reflection.invoker.FastMethodInvoker;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveMethodInvoker;
+import org.apache.ibatis.reflection.invoker.PrimitiveSetter;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -38,6 +44,134 @@ public class ReflectorTest {
     Assert.assertFalse(reflector.hasGetter("class"));
   }
 
+  @Test
+  public void shouldUseGeneratedAccessorsWhenEnabled() throws Exception {
+    boolean accessorGenerationEnabled = Reflector.isAccessorGenerationEnabled();
+    Reflector.setAccessorGenerationEnabled(true);
+    try {
+      Reflector reflector = Reflector.forClass(Account.class);
+      Invoker getter = reflector.getGetInvoker("name");
+      Invoker setter = reflector.getSetInvoker("name");
+      Assert.assertTrue(getter instanceof FastMethodInvoker);
+      Assert.assertTrue(setter instanceof FastMethodInvoker);
+      Account account = new Account();
+      setter.invoke(account, new Object[] { "jim" });
+      Assert.assertEquals("jim", getter.invoke(account, null));
+      reflector.getSetInvoker("balance").invoke(account, new Object[] { 10 });
+      Assert.assertEquals(10, reflector.getGetInvoker("balance").invoke(account, null));
+      Assert.assertEquals(String.class, reflector.getGetterType("name"));
+
+      // private methods and fields keep using reflection
+      Invoker secret = reflector.getGetInvoker("secret");
+      Assert.assertTrue(secret instanceof MethodInvoker);
+      Assert.assertFalse(secret instanceof FastMethodInvoker);
+      Assert.assertEquals("s", secret.invoke(account, null));
+      Assert.assertTrue(reflector.getGetInvoker("code") instanceof GetFieldInvoker);
+    } finally {
+      Reflector.setAccessorGenerationEnabled(accessorGenerationEnabled);
+    }
+  }
+
+  @Test
+  public void shouldGeneratePrimitiveSetters() throws Exception {
+    boolean accessorGenerationEnabled = Reflector.isAccessorGenerationEnabled();
+    Reflector.setAccessorGenerationEnabled(true);
+    try {
+      Reflector reflector = Reflector.forClass(Gauge.class);
+      Gauge gauge = new Gauge();
+      ((PrimitiveSetter) reflector.getSetInvoker("count")).setInt(gauge, 3);
+      ((PrimitiveSetter) reflector.getSetInvoker("total")).setLong(gauge, 4L);
+      ((PrimitiveSetter) reflector.getSetInvoker("average")).setDouble(gauge, 1.5);
+      ((PrimitiveSetter) reflector.getSetInvoker("enabled")).setBoolean(gauge, true);
+      Assert.assertTrue(reflector.getSetInvoker("count") instanceof PrimitiveMethodInvoker);
+      Assert.assertEquals(3, gauge.getCount());
+      Assert.assertEquals(4L, gauge.getTotal());
+      Assert.assertEquals(1.5, gauge.getAverage(), 0);
+      Assert.assertTrue(gauge.isEnabled());
+
+      // boxed calls still work
+      reflector.getSetInvoker("count").invoke(gauge, new Object[] { 5 });
+      Assert.assertEquals(5, gauge.getCount());
+      Assert.assertFalse(reflector.getSetInvoker("name") instanceof PrimitiveSetter);
+    } finally {
+      Reflector.setAccessorGenerationEnabled(accessorGenerationEnabled);
+    }
+  }
+
+  public static class Gauge {
+    private int count;
+    private long total;
+    private double average;
+    private boolean enabled;
+    private String name;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      this.count = count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public void setTotal(long total) {
+      this.total = total;
+    }
+
+    public double getAverage() {
+      return average;
+    }
+
+    public void setAverage(double average) {
+      this.average = average;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  public static class Account {
+    private String name;
+    private int balance;
+    private String code = "c";
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getBalance() {
+      return balance;
+    }
+
+    public void setBalance(int balance) {
+      this.balance = balance;
+    }
+
+    private String getSecret() {
+      return "s";
+    }
+  }
+
   static interface Entity<T> {
     T getId();
     void setId(T id);
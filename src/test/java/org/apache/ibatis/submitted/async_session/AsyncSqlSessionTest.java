@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AsyncSqlSessionTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  private static volatile CountDownLatch latch = new CountDownLatch(0);
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  /**
+   * Called by the database, returns the id once every expected caller has arrived or -1 after a timeout.
+   */
+  public static int rendezvous(int id) throws InterruptedException {
+    latch.countDown();
+    return latch.await(5, TimeUnit.SECONDS) ? id : -1;
+  }
+
+  @Test
+  public void shouldSelectAsynchronously() throws Exception {
+    AsyncSqlSession asyncSession = sqlSessionFactory.openAsyncSession();
+    Future<List<User>> users = asyncSession.selectList("org.apache.ibatis.submitted.async_session.Mapper.findAll");
+    Future<User> user = asyncSession.selectOne("org.apache.ibatis.submitted.async_session.Mapper.getUserNow", 2);
+    assertTrue(users.get().size() >= 2);
+    assertEquals("User2", user.get().getName());
+  }
+
+  @Test
+  public void shouldRunFutureMapperMethodsAsynchronously() throws Exception {
+    Mapper mapper = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class);
+    Future<List<User>> users = mapper.findAll();
+    Future<User> user = mapper.getUser(1);
+    assertEquals("User1", users.get().get(0).getName());
+    assertEquals("User1", user.get().getName());
+    assertEquals("User2", mapper.getUserNow(2).getName());
+    assertNull(mapper.touchUser(1).get());
+  }
+
+  @Test
+  public void shouldRunIndependentCallsInParallel() throws Exception {
+    latch = new CountDownLatch(2);
+    Mapper mapper = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class);
+    Future<User> first = mapper.getUserTogether(1);
+    Future<User> second = mapper.getUserTogether(2);
+    // each query waits in the database until the other one has started
+    assertEquals("User1", first.get().getName());
+    assertEquals("User2", second.get().getName());
+  }
+
+  @Test
+  public void shouldCommitEachCall() throws Exception {
+    Mapper mapper = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class);
+    User user = new User();
+    user.setId(10);
+    user.setName("User10");
+    assertEquals(Integer.valueOf(1), mapper.insertUser(user).get());
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertEquals("User10", sqlSession.getMapper(Mapper.class).getUserNow(10).getName());
+    } finally {
+      sqlSession.close();
+    }
+    assertEquals(Integer.valueOf(1), sqlSessionFactory.openAsyncSession().delete("org.apache.ibatis.submitted.async_session.Mapper.touchUser", 10).get());
+  }
+
+  @Test
+  public void shouldReportFailuresThroughTheFuture() throws Exception {
+    Future<User> user = sqlSessionFactory.openAsyncSession().getMapper(Mapper.class).broken();
+    try {
+      user.get();
+      fail("The failure must be reported by the future.");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test
+  public void shouldReturnCompletedFuturesFromRegularSessions() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Future<User> user = sqlSession.getMapper(Mapper.class).getUser(1);
+      assertTrue(user.isDone());
+      assertEquals("User1", user.get().getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  Future<List<User>> findAll();
+
+  @Select("select id, name from users where id = #{id}")
+  Future<User> getUser(int id);
+
+  User getUserNow(int id);
+
+  Future<Integer> insertUser(User user);
+
+  Future<Void> touchUser(int id);
+
+  @Select("select id, name from users where id = rendezvous(#{id})")
+  Future<User> getUserTogether(int id);
+
+  Future<User> broken();
+
+}
@@ -0,0 +1,226 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchSummaryResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.BatchFlushPolicy;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchAutoFlushTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+  }
+
+  @Before
+  public void createTable() throws Exception {
+    // recreate the in-memory table so every test starts with id 1
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldFlushEveryConfiguredRows() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = new ArrayList<User>();
+      for (int i = 0; i < 7; i++) {
+        User user = new User("User" + i);
+        users.add(user);
+        mapper.insertUser(user);
+        // keys are only assigned once a batch has been executed
+        assertEquals((i + 1) / 3 * 3, countAssignedKeys(users));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(3, results.get(1).getUpdateCounts().length);
+      assertEquals(1, results.get(2).getUpdateCounts().length);
+      assertEquals(7, countAssignedKeys(users));
+      assertEquals(Integer.valueOf(7), users.get(6).getId());
+      sqlSession.commit();
+      assertEquals(7, mapper.countUsers());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldPreferTheStatementThreshold() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = new ArrayList<User>();
+      for (int i = 0; i < 5; i++) {
+        User user = new User("User" + i);
+        users.add(user);
+        mapper.insertUserEveryTwoRows(user);
+      }
+      assertEquals(4, countAssignedKeys(users));
+      assertEquals(3, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSummarizeResultsAndReleaseParameters() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(new BatchFlushPolicy(4, 0, true, true));
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = new ArrayList<User>();
+      for (int i = 0; i < 10; i++) {
+        User user = new User("User" + i);
+        users.add(user);
+        mapper.insertUser(user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      BatchSummaryResult summary = (BatchSummaryResult) results.get(0);
+      assertEquals("org.apache.ibatis.submitted.batch_auto_flush.Mapper.insertUser", summary.getMappedStatement().getId());
+      assertEquals(10, summary.getRowCount());
+      assertEquals(10, summary.getUpdateCount() + summary.getNoInfoCount());
+      assertEquals(3, summary.getBatchCount());
+      assertTrue(summary.getParameterObjects().isEmpty());
+      // generated keys are still applied before the parameters are released
+      assertEquals(10, countAssignedKeys(users));
+      sqlSession.commit();
+      assertEquals(10, mapper.countUsers());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFlushByEstimatedBytes() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(new BatchFlushPolicy(0, 1, false, false));
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User("User");
+      mapper.insertUser(user);
+      assertNotNull(user.getId());
+      assertEquals(1, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDiscardAutoFlushedResultsOnRollback() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 4; i++) {
+        mapper.insertUser(new User("User" + i));
+      }
+      sqlSession.rollback(true);
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertEquals(0, mapper.countUsers());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReportAutoFlushedBatchesWhenALaterFlushFails() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        mapper.insertUser(new User("User" + i));
+      }
+      try {
+        // the name is too long for the column, so the second auto-flush fails
+        mapper.insertUser(new User("A name that does not fit"));
+        fail("Expected the second auto-flush to fail");
+      } catch (PersistenceException e) {
+        BatchExecutorException cause = (BatchExecutorException) e.getCause();
+        assertEquals(1, cause.getSuccessfulBatchResults().size());
+        assertEquals(3, cause.getSuccessfulBatchResults().get(0).getUpdateCounts().length);
+      }
+      assertTrue(sqlSession.flushStatements().isEmpty());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReportSummariesWhenALaterFlushFails() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(new BatchFlushPolicy(3, 0, true, true));
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        mapper.insertUser(new User("User" + i));
+      }
+      try {
+        mapper.insertUser(new User("A name that does not fit"));
+        fail("Expected the second auto-flush to fail");
+      } catch (PersistenceException e) {
+        BatchExecutorException cause = (BatchExecutorException) e.getCause();
+        assertEquals(1, cause.getSuccessfulBatchResults().size());
+        BatchSummaryResult summary = (BatchSummaryResult) cause.getSuccessfulBatchResults().get(0);
+        assertEquals(3, summary.getRowCount());
+      }
+      assertTrue(sqlSession.flushStatements().isEmpty());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static int countAssignedKeys(List<User> users) {
+    int count = 0;
+    for (User user : users) {
+      if (user.getId() != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
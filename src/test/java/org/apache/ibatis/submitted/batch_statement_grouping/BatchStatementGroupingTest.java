@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_statement_grouping;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchStatementGroupingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_statement_grouping/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+  }
+
+  @Before
+  public void createTables() throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_statement_grouping/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldKeepOneBatchPerStatementWhenInterleaved() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 5; i++) {
+        mapper.insertOrder(i, "NEW");
+        mapper.insertLineItem(i * 10, i);
+        mapper.insertLineItem(i * 10 + 1, i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_statement_grouping.Mapper.insertOrder", results.get(0).getMappedStatement().getId());
+      assertEquals(5, results.get(0).getUpdateCounts().length);
+      assertEquals("org.apache.ibatis.submitted.batch_statement_grouping.Mapper.insertLineItem", results.get(1).getMappedStatement().getId());
+      assertEquals(10, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+      assertEquals(10, mapper.countLineItems());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepTheOrderOfChangesToTheSameTable() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertOrder(i, "NEW");
+        mapper.insertLineItem(i * 10, i);
+        mapper.updateOrderStatus(i, "SHIPPED");
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      // a line item may not run ahead of an order inserted after its batch was opened
+      assertEquals(9, results.size());
+      sqlSession.commit();
+      for (int i = 1; i <= 3; i++) {
+        assertEquals("SHIPPED", mapper.selectOrderStatus(i));
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldGroupInTheOrderTablesWereFirstTouched() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 4; i++) {
+        mapper.insertOrder(i, "NEW");
+        mapper.insertLineItem(i * 10, i);
+      }
+      sqlSession.commit();
+      for (int i = 1; i <= 4; i++) {
+        mapper.deleteLineItemsOfOrder(i);
+        mapper.deleteOrder(i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_statement_grouping.Mapper.deleteLineItemsOfOrder", results.get(0).getMappedStatement().getId());
+      assertEquals(4, results.get(1).getUpdateCounts().length);
+      sqlSession.commit();
+      assertEquals(0, mapper.countLineItems());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
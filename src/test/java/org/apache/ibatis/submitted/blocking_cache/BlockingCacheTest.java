@@ -0,0 +1,132 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.blocking_cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BlockingCacheTest {
+
+  private static final int THREADS = 5;
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static final AtomicInteger queries = new AtomicInteger();
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/blocking_cache/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/blocking_cache/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Before
+  public void resetCounter() {
+    queries.set(0);
+  }
+
+  /**
+   * Called from the database, counts the queries and keeps them running long enough to overlap.
+   */
+  public static int slowId(int id) throws InterruptedException {
+    queries.incrementAndGet();
+    Thread.sleep(300);
+    return id;
+  }
+
+  @Test
+  public void shouldBuildABlockingCache() {
+    assertTrue(sqlSessionFactory.getConfiguration().getCache("org.apache.ibatis.submitted.blocking_cache.Mapper") instanceof BlockingCache);
+  }
+
+  @Test
+  public void shouldQueryOnceForConcurrentMisses() throws Exception {
+    for (User user : getUserConcurrently()) {
+      assertEquals("User1", user.getName());
+    }
+    assertEquals(1, queries.get());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).updateName(1, "Renamed");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    for (User user : getUserConcurrently()) {
+      assertEquals("Renamed", user.getName());
+    }
+    assertEquals(2, queries.get());
+  }
+
+  private List<User> getUserConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<User>> futures = new ArrayList<Future<User>>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(new Callable<User>() {
+          public User call() {
+            SqlSession sqlSession = sqlSessionFactory.openSession();
+            try {
+              return sqlSession.getMapper(Mapper.class).getUser(1);
+            } finally {
+              sqlSession.close();
+            }
+          }
+        }));
+      }
+      List<User> users = new ArrayList<User>();
+      for (Future<User> future : futures) {
+        users.add(future.get(10, TimeUnit.SECONDS));
+      }
+      return users;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_expiry;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CacheExpiryTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_expiry/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_expiry/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldExpireEntriesByTheTimeToLiveOfTheirStatement() throws Exception {
+    assertEquals(Long.valueOf(100), sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.cache_expiry.Mapper.getAuthorNameBriefly").getCacheTimeToLive());
+    assertEquals("Author1", getAuthorName(false));
+    assertEquals("Author1", getAuthorName(true));
+
+    SqlSession sqlSession = sqlSessionFactory.openSession(true);
+    try {
+      Statement stmt = sqlSession.getConnection().createStatement();
+      stmt.executeUpdate("update authors set name = 'Author2' where id = 1");
+      stmt.close();
+    } finally {
+      sqlSession.close();
+    }
+
+    // expired by the shared timer wheel in the background
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!"Author2".equals(getAuthorName(true)) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertEquals("Author2", getAuthorName(true));
+    assertEquals("Author1", getAuthorName(false));
+  }
+
+  @Test
+  public void shouldExpireEntriesOfStatementsOnACacheWithoutTimeToLive() throws Exception {
+    assertEquals("Author1", getAuthorNameFromPlainCache());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession(true);
+    try {
+      Statement stmt = sqlSession.getConnection().createStatement();
+      stmt.executeUpdate("update authors set name = 'Author2' where id = 2");
+      stmt.close();
+    } finally {
+      sqlSession.close();
+    }
+
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!"Author2".equals(getAuthorNameFromPlainCache()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertEquals("Author2", getAuthorNameFromPlainCache());
+  }
+
+  @Test(expected = BuilderException.class)
+  public void shouldRejectTimeToLiveOnAReferencedCacheThatDoesNotExpire() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.addCache(new CacheBuilder("plain").build());
+    String resource = "org/apache/ibatis/submitted/cache_expiry/CacheRefMapper.xml";
+    InputStream inputStream = Resources.getResourceAsStream(resource);
+    try {
+      new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private String getAuthorNameFromPlainCache() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(PlainCacheMapper.class).getAuthorNameBriefly(2);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private String getAuthorName(boolean briefly) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      return briefly ? mapper.getAuthorNameBriefly(1) : mapper.getAuthorName(1);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_serializer;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.CopyOnReadCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CacheSerializerTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_serializer/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_serializer/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldUseGlobalSerializer() {
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(Mapper.class.getName());
+    Object copyingCache = SystemMetaObject.forObject(cache).getValue("delegate.delegate");
+    assertTrue(copyingCache instanceof SerializedCache);
+    assertTrue(((SerializedCache) copyingCache).getSerializer() instanceof CompactCacheSerializer);
+    assertCachedCopies(Mapper.class);
+  }
+
+  @Test
+  public void shouldUseNamespaceCopyOnRead() {
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(CopyOnReadMapper.class.getName());
+    assertTrue(SystemMetaObject.forObject(cache).getValue("delegate.delegate") instanceof CopyOnReadCache);
+    assertCachedCopies(CopyOnReadMapper.class);
+  }
+
+  private void assertCachedCopies(Class<?> mapperType) {
+    String statement = mapperType.getName() + ".getUser";
+    User first;
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      first = sqlSession.selectOne(statement, 1);
+    } finally {
+      sqlSession.close();
+    }
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      User second = sqlSession.selectOne(statement, 1);
+      User third = sqlSession.selectOne(statement, 1);
+      assertEquals("User1", second.getName());
+      assertNotSame(first, second);
+      assertEquals(1, sqlSessionFactory.getConfiguration().getCache(mapperType.getName()).getSize());
+      assertNotSame(second, third);
+      assertEquals(second.getName(), third.getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_version_table;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Two factories on the same database stand for two nodes with their own caches.
+ */
+public class CacheVersionTableTest {
+
+  private static final String NAMESPACE = Mapper.class.getName();
+
+  private SqlSessionFactory node1;
+  private SqlSessionFactory node2;
+
+  @Before
+  public void setUp() throws Exception {
+    node1 = createFactory();
+    node2 = createFactory();
+    SqlSession session = node1.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_version_table/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  private SqlSessionFactory createFactory() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_version_table/mybatis-config.xml");
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    return sqlSessionFactory;
+  }
+
+  @Test
+  public void shouldSeeWritesOfOtherNodes() throws Exception {
+    assertEquals("Author1", getAuthorName(node1));
+    renameBehindTheCaches("Author2");
+    assertEquals("Author1", getAuthorName(node1));
+
+    renameAuthor(node2, "Author3", true);
+    assertEquals(1, version());
+    assertEquals("Author3", getAuthorName(node1));
+  }
+
+  @Test
+  public void shouldKeepOwnWritesWithoutClearingAgain() throws Exception {
+    assertEquals("Author1", getAuthorName(node1));
+    renameAuthor(node1, "Author2", true);
+    assertEquals("Author2", getAuthorName(node1));
+    renameBehindTheCaches("Author3");
+    // the version was already known, the entry put after the write is still used
+    assertEquals("Author2", getAuthorName(node1));
+  }
+
+  @Test
+  public void shouldNotIncrementTheVersionOnRollback() throws Exception {
+    assertEquals("Author1", getAuthorName(node1));
+    renameAuthor(node2, "Author2", false);
+    assertEquals(0, version());
+    renameBehindTheCaches("Author3");
+    assertEquals("Author1", getAuthorName(node1));
+  }
+
+  @Test
+  public void shouldCheckAtMostOncePerInterval() throws Exception {
+    node1.getConfiguration().setCacheVersionCheckInterval(60000);
+    assertEquals("Author1", getAuthorName(node1));
+    renameAuthor(node2, "Author2", true);
+    assertEquals("Author1", getAuthorName(node1));
+  }
+
+  @Test
+  public void shouldNotFetchAConnectionForHitsWithinTheInterval() throws Exception {
+    node1.getConfiguration().setCacheVersionCheckInterval(60000);
+    assertEquals("Author1", getAuthorName(node1));
+    final Environment environment = node1.getConfiguration().getEnvironment();
+    final DataSource dataSource = environment.getDataSource();
+    final AtomicInteger connections = new AtomicInteger();
+    DataSource countingDataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { DataSource.class }, new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getConnection".equals(method.getName())) {
+              connections.incrementAndGet();
+            }
+            try {
+              return method.invoke(dataSource, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        });
+    node1.getConfiguration().setEnvironment(
+        new Environment(environment.getId(), environment.getTransactionFactory(), countingDataSource));
+    assertEquals("Author1", getAuthorName(node1));
+    assertEquals(0, connections.get());
+  }
+
+  @Test
+  public void shouldNotCacheResultsReadBeforeAWriteOfAnotherNode() throws Exception {
+    SqlSession reader = node1.openSession();
+    try {
+      assertEquals("Author1", reader.getMapper(Mapper.class).getAuthorName(1));
+      renameAuthor(node2, "Author2", true);
+      // noticed by another session of the node before the reader commits its result
+      assertEquals("Author2", getAuthorName(node1));
+      reader.commit();
+    } finally {
+      reader.close();
+    }
+    assertEquals("Author2", getAuthorName(node1));
+  }
+
+  private String getAuthorName(SqlSessionFactory node) {
+    SqlSession sqlSession = node.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getAuthorName(1);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private void renameAuthor(SqlSessionFactory node, String name, boolean commit) {
+    SqlSession sqlSession = node.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameAuthor(1, name);
+      if (commit) {
+        sqlSession.commit();
+      } else {
+        sqlSession.rollback();
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private void renameBehindTheCaches(String name) throws SQLException {
+    SqlSession sqlSession = node1.openSession(true);
+    try {
+      Statement stmt = sqlSession.getConnection().createStatement();
+      stmt.executeUpdate("update authors set name = '" + name + "' where id = 1");
+      stmt.close();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private long version() throws SQLException {
+    SqlSession sqlSession = node1.openSession();
+    try {
+      Statement stmt = sqlSession.getConnection().createStatement();
+      ResultSet rs = stmt.executeQuery("select version from cache_versions where cache_id = '" + NAMESPACE + "'");
+      long version = rs.next() ? rs.getLong(1) : 0;
+      rs.close();
+      stmt.close();
+      return version;
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
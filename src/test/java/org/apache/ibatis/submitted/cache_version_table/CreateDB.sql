@@ -0,0 +1,31 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table authors if exists;
+drop table cache_versions if exists;
+
+create table authors (
+  id int primary key,
+  name varchar(20)
+);
+
+create table cache_versions (
+  cache_id varchar(255) primary key,
+  version bigint not null
+);
+
+insert into authors (id, name) values (1, 'Author1');
@@ -0,0 +1,156 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+import org.apache.ibatis.columnar.ColumnarResult;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ColumnarTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+  }
+
+  @Before
+  public void createTables() throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReadNumericColumnsIntoPrimitiveArrays() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ColumnarResult result = sqlSession.selectColumns("org.apache.ibatis.submitted.columnar.Mapper.getMeasures");
+      assertEquals(3, result.getRowCount());
+      assertEquals(Arrays.asList("ID", "SENSOR_ID", "TAKEN", "READING", "LABEL", "PRICE"), result.getColumnNames());
+
+      assertEquals(int.class, result.getColumnType("id"));
+      assertArrayEquals(new int[] { 1, 2, 3 }, result.getIntColumn("id"));
+      assertArrayEquals(new int[] { 10, 0, 30 }, result.getIntColumn("sensor_id"));
+      assertTrue(result.isNull("sensor_id", 1));
+      assertFalse(result.isNull("sensor_id", 0));
+
+      assertEquals(long.class, result.getColumnType("taken"));
+      assertArrayEquals(new long[] { 1000000000001L, 1000000000002L, 0 }, result.getLongColumn("taken"));
+      assertEquals(2, result.getNulls("taken").nextSetBit(0));
+
+      assertEquals(double.class, result.getColumnType("reading"));
+      assertArrayEquals(new double[] { 1.5, 0, 3.5 }, result.getDoubleColumn("reading"), 0);
+      assertTrue(result.isNull("reading", 1));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReadOtherColumnsWithTheirTypeHandlers() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ColumnarResult result = sqlSession.selectColumns("org.apache.ibatis.submitted.columnar.Mapper.getMeasures");
+      assertEquals(Object.class, result.getColumnType("label"));
+      assertArrayEquals(new Object[] { "a", "b", null }, result.getObjectColumn("label"));
+      assertTrue(result.isNull("label", 2));
+      Object[] prices = result.getObjectColumn("price");
+      assertEquals(new BigDecimal("1.25"), prices[0]);
+      assertNull(prices[1]);
+      assertTrue(result.isNull("price", 1));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectReadingAColumnAsAnotherType() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ColumnarResult result = sqlSession.selectColumns("org.apache.ibatis.submitted.columnar.Mapper.getMeasures");
+      try {
+        result.getLongColumn("id");
+        fail();
+      } catch (ExecutorException e) {
+        assertTrue(e.getMessage().contains("int"));
+      }
+      try {
+        result.getIntColumn("missing");
+        fail();
+      } catch (ExecutorException e) {
+        assertTrue(e.getMessage().contains("missing"));
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldGrowTheColumnsAndApplyRowBounds() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      PreparedStatement ps = sqlSession.getConnection().prepareStatement("insert into measures (id, reading) values (?, ?)");
+      for (int i = 4; i <= 1000; i++) {
+        ps.setInt(1, i);
+        ps.setDouble(2, i / 2.0);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      ColumnarResult result = mapper.getReadings(1);
+      assertEquals(1000, result.getRowCount());
+      assertEquals(1000, result.getIntColumn("id").length);
+      assertEquals(1000, result.getIntColumn("id")[999]);
+      assertEquals(500.0, result.getDoubleColumn("reading")[999], 0);
+
+      result = mapper.getReadings(1, new RowBounds(10, 100));
+      assertEquals(100, result.getRowCount());
+      assertEquals(11, result.getIntColumn("id")[0]);
+      assertEquals(110, result.getIntColumn("id")[99]);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
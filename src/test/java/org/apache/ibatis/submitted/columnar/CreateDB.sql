@@ -0,0 +1,31 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table measures if exists;
+
+create table measures (
+  id int primary key,
+  sensor_id smallint,
+  taken bigint,
+  reading double,
+  label varchar(20),
+  price decimal(10, 2)
+);
+
+insert into measures (id, sensor_id, taken, reading, label, price) values (1, 10, 1000000000001, 1.5, 'a', 1.25);
+insert into measures (id, sensor_id, taken, reading, label, price) values (2, null, 1000000000002, null, 'b', null);
+insert into measures (id, sensor_id, taken, reading, label, price) values (3, 30, null, 3.5, null, 3.75);
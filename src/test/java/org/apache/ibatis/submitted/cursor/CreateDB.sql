@@ -0,0 +1,41 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table items if exists;
+drop table users if exists;
+
+create table users (
+  id int,
+  name varchar(20)
+);
+
+create table items (
+  id int,
+  user_id int,
+  name varchar(20)
+);
+
+insert into users (id, name) values(1, 'User1');
+insert into users (id, name) values(2, 'User2');
+insert into users (id, name) values(3, 'User3');
+insert into users (id, name) values(4, 'User4');
+
+insert into items (id, user_id, name) values(1, 1, 'Item1');
+insert into items (id, user_id, name) values(2, 1, 'Item2');
+insert into items (id, user_id, name) values(3, 2, 'Item3');
+insert into items (id, user_id, name) values(4, 4, 'Item4');
+insert into items (id, user_id, name) values(5, 4, 'Item5');
+insert into items (id, user_id, name) values(6, 4, 'Item6');
@@ -0,0 +1,222 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CursorTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldIterateSimpleResultMapLazily() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> usersCursor = mapper.getAllUsers();
+      assertFalse(usersCursor.isOpen());
+      assertEquals(-1, usersCursor.getCurrentIndex());
+
+      Iterator<User> iterator = usersCursor.iterator();
+      assertTrue(iterator.hasNext());
+      assertTrue(usersCursor.isOpen());
+      User user = iterator.next();
+      assertEquals("User1", user.getName());
+      assertEquals(0, usersCursor.getCurrentIndex());
+
+      int count = 1;
+      while (iterator.hasNext()) {
+        user = iterator.next();
+        count++;
+      }
+      assertEquals(4, count);
+      assertEquals("User4", user.getName());
+      assertEquals(3, usersCursor.getCurrentIndex());
+      assertFalse(usersCursor.isOpen());
+      assertTrue(usersCursor.isConsumed());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldApplyRowBounds() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Cursor<User> usersCursor = sqlSession.selectCursor("org.apache.ibatis.submitted.cursor.Mapper.getAllUsers", null, new RowBounds(1, 2));
+      Iterator<User> iterator = usersCursor.iterator();
+      assertEquals("User2", iterator.next().getName());
+      assertEquals("User3", iterator.next().getName());
+      assertFalse(iterator.hasNext());
+      assertTrue(usersCursor.isConsumed());
+      assertEquals(2, usersCursor.getCurrentIndex());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldMapNestedResultMapOneAggregateAtATime() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> usersCursor = mapper.getAllUsersWithItems();
+      Iterator<User> iterator = usersCursor.iterator();
+
+      User user = iterator.next();
+      assertEquals(Integer.valueOf(1), user.getId());
+      assertEquals(2, user.getItems().size());
+
+      user = iterator.next();
+      assertEquals(Integer.valueOf(2), user.getId());
+      assertEquals(1, user.getItems().size());
+
+      user = iterator.next();
+      assertEquals(Integer.valueOf(3), user.getId());
+      assertEquals(0, user.getItems().size());
+
+      user = iterator.next();
+      assertEquals(Integer.valueOf(4), user.getId());
+      assertEquals(3, user.getItems().size());
+      assertEquals("Item6", user.getItems().get(2).getName());
+
+      assertFalse(iterator.hasNext());
+      assertTrue(usersCursor.isConsumed());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCompleteEachAggregateWithoutResultOrdered() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> usersCursor = mapper.getAllUsersWithItemsUnflagged();
+      int[] itemCounts = { 2, 1, 0, 3 };
+      int index = 0;
+      for (User user : usersCursor) {
+        // complete when handed out, not only once the rows of the next user were read
+        assertEquals(Integer.valueOf(index + 1), user.getId());
+        assertEquals(itemCounts[index], user.getItems().size());
+        index++;
+      }
+      assertEquals(4, index);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBeIterableInForEachLoop() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      int count = 0;
+      for (User user : mapper.getAllUsers(new RowBounds(2, RowBounds.NO_ROW_LIMIT))) {
+        assertNotNull(user.getName());
+        count++;
+      }
+      assertEquals(2, count);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldStopFetchingOnceClosed() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> usersCursor = mapper.getAllUsers();
+      Iterator<User> iterator = usersCursor.iterator();
+      iterator.next();
+      usersCursor.close();
+      assertFalse(usersCursor.isOpen());
+      assertFalse(usersCursor.isConsumed());
+      assertFalse(iterator.hasNext());
+      try {
+        iterator.next();
+        fail("Should have failed with NoSuchElementException");
+      } catch (NoSuchElementException e) {
+        // ok
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCloseOpenCursorsWhenSessionIsClosed() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    Cursor<User> usersCursor;
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      usersCursor = mapper.getAllUsers();
+      usersCursor.iterator().next();
+      assertTrue(usersCursor.isOpen());
+    } finally {
+      sqlSession.close();
+    }
+    assertFalse(usersCursor.isOpen());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotAllowASecondIterator() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Cursor<User> usersCursor = sqlSession.selectCursor("org.apache.ibatis.submitted.cursor.Mapper.getAllUsers");
+      usersCursor.iterator();
+      usersCursor.iterator();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
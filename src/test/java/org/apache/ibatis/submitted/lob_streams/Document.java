@@ -0,0 +1,50 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lob_streams;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+public class Document {
+
+  private int id;
+  private Reader content;
+  private InputStream data;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public Reader getContent() {
+    return content;
+  }
+
+  public void setContent(Reader content) {
+    this.content = content;
+  }
+
+  public InputStream getData() {
+    return data;
+  }
+
+  public void setData(InputStream data) {
+    this.data = data;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lob_streams;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.util.Properties;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.type.SpooledReader;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LobStreamsTest {
+
+  private static final int SIZE = 1000;
+
+  private static File spillDirectory;
+  private static SqlSessionFactory streamingFactory;
+  private static SqlSessionFactory spillingFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    spillDirectory = File.createTempFile("lob_streams", "");
+    assertTrue(spillDirectory.delete() && spillDirectory.mkdir());
+    streamingFactory = build(0);
+    spillingFactory = build(100);
+
+    // populate in-memory database
+    SqlSession session = streamingFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/lob_streams/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+
+    session = streamingFactory.openSession();
+    try {
+      Document document = new Document();
+      document.setId(1);
+      document.setContent(new StringReader(text()));
+      document.setData(new ByteArrayInputStream(bytes()));
+      session.getMapper(Mapper.class).insertDocument(document);
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    spillDirectory.delete();
+  }
+
+  private static SqlSessionFactory build(int spillThreshold) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("spillThreshold", String.valueOf(spillThreshold));
+    properties.setProperty("spillDirectory", spillDirectory.getAbsolutePath());
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/lob_streams/mybatis-config.xml");
+    try {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void shouldStreamLobsWhileTheSessionIsOpen() throws Exception {
+    SqlSession session = streamingFactory.openSession();
+    try {
+      Document document = session.getMapper(Mapper.class).getDocument(1);
+      assertFalse(document.getContent() instanceof SpooledReader);
+      assertEquals(text(), read(document.getContent()));
+      assertArrayEquals(bytes(), read(document.getData()));
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldSpillLobsToFilesReadableAfterTheSessionIsClosed() throws Exception {
+    Document document;
+    SqlSession session = spillingFactory.openSession();
+    try {
+      document = session.getMapper(Mapper.class).getDocument(1);
+    } finally {
+      session.close();
+    }
+    assertTrue(((SpooledReader) document.getContent()).isSpilled());
+    assertEquals(2, spillDirectory.list().length);
+    assertEquals(text(), read(document.getContent()));
+    assertArrayEquals(bytes(), read(document.getData()));
+    assertEquals(0, spillDirectory.list().length);
+  }
+
+  @Test
+  public void shouldMapLocators() throws Exception {
+    SqlSession session = streamingFactory.openSession();
+    try {
+      DocumentLocator document = session.getMapper(Mapper.class).getDocumentLocator(1);
+      assertEquals(text(), document.getContent().getSubString(1, (int) document.getContent().length()));
+      assertArrayEquals(bytes(), document.getData().getBytes(1, (int) document.getData().length()));
+    } finally {
+      session.close();
+    }
+  }
+
+  private static String text() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < SIZE; i++) {
+      text.append((char) ('a' + i % 26));
+    }
+    return text.toString();
+  }
+
+  private static byte[] bytes() {
+    byte[] bytes = new byte[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      bytes[i] = (byte) i;
+    }
+    return bytes;
+  }
+
+  private static String read(Reader reader) throws IOException {
+    StringBuilder text = new StringBuilder();
+    char[] chunk = new char[64];
+    int n;
+    while ((n = reader.read(chunk)) != -1) {
+      text.append(chunk, 0, n);
+    }
+    reader.close();
+    return text.toString();
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[64];
+    int n;
+    while ((n = in.read(chunk)) != -1) {
+      bytes.write(chunk, 0, n);
+    }
+    in.close();
+    return bytes.toByteArray();
+  }
+
+}
@@ -0,0 +1,52 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table items if exists;
+drop table orders if exists;
+drop table customers if exists;
+
+create table customers (
+  id int,
+  name varchar(20)
+);
+
+create table orders (
+  id int,
+  customer_id int
+);
+
+create table items (
+  id int,
+  order_id bigint,
+  name varchar(20)
+);
+
+insert into customers (id, name) values (1, 'Alice');
+insert into customers (id, name) values (2, 'Bob');
+insert into customers (id, name) values (3, 'Carol');
+
+insert into orders (id, customer_id) values (1, 1);
+insert into orders (id, customer_id) values (2, 2);
+insert into orders (id, customer_id) values (3, 1);
+insert into orders (id, customer_id) values (4, 3);
+
+insert into items (id, order_id, name) values (1, 1, 'Pen');
+insert into items (id, order_id, name) values (2, 1, 'Ink');
+insert into items (id, order_id, name) values (3, 2, 'Book');
+insert into items (id, order_id, name) values (4, 3, 'Lamp');
+insert into items (id, order_id, name) values (5, 3, 'Bulb');
+insert into items (id, order_id, name) values (6, 3, 'Desk');
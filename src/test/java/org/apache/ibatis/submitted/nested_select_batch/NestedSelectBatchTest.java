@@ -0,0 +1,148 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_select_batch;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.StatementCounter;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class NestedSelectBatchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_select_batch/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_select_batch/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Before
+  public void resetCounter() {
+    StatementCounter.reset();
+  }
+
+  @Test
+  public void shouldLoadEagerNestedSelectsWithOneQueryEach() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      // orders, customers and items
+      assertEquals(3, StatementCounter.getCount());
+      assertOrders(orders);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSplitKeysIntoChunks() {
+    sqlSessionFactory.getConfiguration().setNestedSelectBatchSize(2);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectOrders();
+      // 3 customer keys and 4 order keys take two chunks each
+      assertEquals(5, StatementCounter.getCount());
+      assertOrders(orders);
+    } finally {
+      sqlSession.close();
+      sqlSessionFactory.getConfiguration().setNestedSelectBatchSize(100);
+    }
+  }
+
+  @Test
+  public void shouldLoadLazySiblingsOnFirstAccess() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Order> orders = sqlSession.getMapper(Mapper.class).selectLazyOrders();
+      assertEquals(1, StatementCounter.getCount());
+      assertEquals("Alice", orders.get(0).getCustomer().getName());
+      assertEquals(2, StatementCounter.getCount());
+      assertEquals("Bob", orders.get(1).getCustomer().getName());
+      assertEquals("Carol", orders.get(3).getCustomer().getName());
+      assertEquals(2, StatementCounter.getCount());
+      assertEquals(0, orders.get(3).getItems().size());
+      assertEquals(3, StatementCounter.getCount());
+      assertOrders(orders);
+      assertEquals(3, StatementCounter.getCount());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldQueryEachRowWithResultHandler() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      final List<Order> orders = new ArrayList<Order>();
+      sqlSession.select("org.apache.ibatis.submitted.nested_select_batch.Mapper.selectOrders", new ResultHandler() {
+        public void handleResult(ResultContext context) {
+          // a handler sees each row before the next one is read, so nested selects cannot wait
+          Order order = (Order) context.getResultObject();
+          assertNotNull(order.getCustomer());
+          orders.add(order);
+        }
+      });
+      assertOrders(orders);
+      // customer 1 comes from the local cache the second time
+      assertEquals(8, StatementCounter.getCount());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private void assertOrders(List<Order> orders) {
+    assertEquals(4, orders.size());
+    assertEquals("Alice", orders.get(0).getCustomer().getName());
+    assertEquals("Bob", orders.get(1).getCustomer().getName());
+    assertEquals("Alice", orders.get(2).getCustomer().getName());
+    assertEquals("Carol", orders.get(3).getCustomer().getName());
+    assertEquals(2, orders.get(0).getItems().size());
+    assertEquals("Pen", orders.get(0).getItems().get(0).getName());
+    assertEquals("Ink", orders.get(0).getItems().get(1).getName());
+    assertEquals(1, orders.get(1).getItems().size());
+    assertEquals(3, orders.get(2).getItems().size());
+    assertEquals("Desk", orders.get(2).getItems().get(2).getName());
+    assertEquals(0, orders.get(3).getItems().size());
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_rows;
+
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.type.ClobTypeHandler;
+
+/**
+ * Records the threads it reads notes on.
+ */
+public class NoteTypeHandler extends ClobTypeHandler {
+
+  public static final Map<String, Boolean> THREADS = new ConcurrentHashMap<String, Boolean>();
+
+  @Override
+  public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    THREADS.put(Thread.currentThread().getName(), Boolean.TRUE);
+    return super.getNullableResult(rs, columnName);
+  }
+
+  @Override
+  public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    THREADS.put(Thread.currentThread().getName(), Boolean.TRUE);
+    return super.getNullableResult(rs, columnIndex);
+  }
+
+  @Override
+  public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    return super.getNullableResult(cs, columnIndex);
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_rows;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelRowsTest {
+
+  private static final int ROWS = 1000;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_rows/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_rows/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    PreparedStatement ps = conn.prepareStatement("insert into items (id, name, amount, created, note) values (?, ?, ?, ?, ?)");
+    for (int i = 1; i <= ROWS; i++) {
+      ps.setInt(1, i);
+      ps.setString(2, i % 10 == 0 ? null : "item" + i);
+      ps.setDouble(3, i / 2.0);
+      ps.setTimestamp(4, new Timestamp(1000L * i));
+      ps.setString(5, "note" + i);
+      ps.addBatch();
+    }
+    ps.executeBatch();
+    ps.close();
+    conn.commit();
+    session.close();
+  }
+
+  @Test
+  public void shouldMapRowsOnWorkersInRowOrder() {
+    NoteTypeHandler.THREADS.clear();
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems();
+      assertEquals(ROWS, items.size());
+      for (int i = 0; i < ROWS; i++) {
+        assertItem(i + 1, items.get(i));
+      }
+      assertFalse(NoteTypeHandler.THREADS.containsKey(Thread.currentThread().getName()));
+      for (String thread : NoteTypeHandler.THREADS.keySet()) {
+        assertTrue(thread, thread.startsWith("mybatis-row-mapping-"));
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDeliverEveryRowInCompletionOrder() {
+    sqlSessionFactory.getConfiguration().setOrderedRowMapping(false);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = new ArrayList<Item>(sqlSession.getMapper(Mapper.class).getItems());
+      assertEquals(ROWS, items.size());
+      Collections.sort(items, new Comparator<Item>() {
+        public int compare(Item o1, Item o2) {
+          return o1.getId() - o2.getId();
+        }
+      });
+      for (int i = 0; i < ROWS; i++) {
+        assertItem(i + 1, items.get(i));
+      }
+    } finally {
+      sqlSession.close();
+      sqlSessionFactory.getConfiguration().setOrderedRowMapping(true);
+    }
+  }
+
+  @Test
+  public void shouldHonorRowBounds() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItems(new RowBounds(5, 40));
+      assertEquals(40, items.size());
+      assertItem(6, items.get(0));
+      assertItem(45, items.get(39));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldStopWhenTheResultHandlerStops() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      final List<Item> items = new ArrayList<Item>();
+      sqlSession.getMapper(Mapper.class).getItems(new ResultHandler() {
+        public void handleResult(ResultContext context) {
+          items.add((Item) context.getResultObject());
+          if (items.size() == 50) {
+            context.stop();
+          }
+        }
+      });
+      assertEquals(50, items.size());
+      assertItem(50, items.get(49));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldMapSmallResultsOnTheCallingThread() {
+    NoteTypeHandler.THREADS.clear();
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertItem(7, sqlSession.getMapper(Mapper.class).getItem(7));
+      assertTrue(NoteTypeHandler.THREADS.containsKey(Thread.currentThread().getName()));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepCursorsSequential() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Cursor<Item> cursor = sqlSession.getMapper(Mapper.class).getItemCursor();
+      Iterator<Item> iterator = cursor.iterator();
+      for (int i = 1; i <= ROWS; i++) {
+        assertItem(i, iterator.next());
+      }
+      assertFalse(iterator.hasNext());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static void assertItem(int id, Item item) {
+    assertEquals(id, item.getId());
+    assertEquals(id % 10 == 0 ? null : "item" + id, item.getName());
+    assertEquals(Double.valueOf(id / 2.0), item.getAmount());
+    assertEquals(1000L * id, item.getCreated().getTime());
+    assertEquals("note" + id, item.getNote());
+  }
+
+}
@@ -0,0 +1,40 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table users if exists;
+
+create table users (
+  id int,
+  user_name varchar(20),
+  age int,
+  active boolean
+);
+
+insert into users (id, user_name, age, active) values(1, 'User1', 30, true);
+insert into users (id, user_name, age, active) values(2, 'User2', null, false);
+insert into users (id, user_name, age, active) values(3, null, null, null);
+
+drop table measurements if exists;
+
+create table measurements (
+  id int,
+  reading bigint,
+  ratio double,
+  valid boolean
+);
+
+insert into measurements (id, reading, ratio, valid) values(1, 10000000000, 0.5, true);
+insert into measurements (id, reading, ratio, valid) values(2, null, null, null);
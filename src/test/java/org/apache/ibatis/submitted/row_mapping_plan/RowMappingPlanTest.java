@@ -0,0 +1,173 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.row_mapping_plan;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RowMappingPlanTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static boolean accessorGenerationEnabled;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // the config turns on the JVM wide accessor generation, it is restored once the tests are done
+    accessorGenerationEnabled = Reflector.isAccessorGenerationEnabled();
+
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/row_mapping_plan/mybatis-config.xml");
+    try {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    } finally {
+      reader.close();
+    }
+    assertTrue(sqlSessionFactory.getConfiguration().isAccessorGenerationEnabled());
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/row_mapping_plan/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    Reflector.setAccessorGenerationEnabled(accessorGenerationEnabled);
+  }
+
+  @Test
+  public void shouldMapWithResultMapAndAutoMapping() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 2; i++) {
+        List<User> users = mapper.getUsers();
+        assertEquals(3, users.size());
+        assertEquals("User1", users.get(0).getName());
+        assertNull(users.get(0).getUserName());
+        assertEquals(30, users.get(0).getAge());
+        assertEquals(Boolean.TRUE, users.get(0).getActive());
+        assertEquals(-1, users.get(1).getAge());
+        assertEquals(Boolean.FALSE, users.get(1).getActive());
+        sqlSession.clearCache();
+      }
+      MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.row_mapping_plan.Mapper.getUsers");
+      assertEquals(1, ms.getRowMappingPlans().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldResolveThePlanOncePerCursor() throws Exception {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.row_mapping_plan.Mapper.getUserCursor");
+      Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUserCursor();
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals("User1", iterator.next().getName());
+      // the following rows reuse the plan resolved for the first one
+      ms.getRowMappingPlans().clear();
+      assertEquals("User2", iterator.next().getName());
+      assertTrue(iterator.hasNext());
+      iterator.next();
+      assertFalse(iterator.hasNext());
+      assertTrue(ms.getRowMappingPlans().isEmpty());
+      cursor.close();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldMapUnderscoreColumnsToCamelCaseProperties() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<User> users = sqlSession.getMapper(Mapper.class).getAutoMappedUsers();
+      assertEquals(Integer.valueOf(2), users.get(1).getId());
+      assertEquals("User2", users.get(1).getUserName());
+      assertNull(users.get(1).getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReturnNullWhenNoColumnHasValue() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertNull(sqlSession.getMapper(Mapper.class).getEmptyRow());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldMapPrimitivePropertiesWithoutBoxing() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Measurement> measurements = mapper.getMeasurements(1);
+      assertEquals(2, measurements.size());
+      assertEquals(1, measurements.get(0).getId());
+      assertEquals(10000000000L, measurements.get(0).getReading());
+      assertEquals(0.5, measurements.get(0).getRatio(), 0);
+      // the valid field has no setter and is set directly
+      assertTrue(measurements.get(0).isValid());
+      assertEquals(2, measurements.get(1).getId());
+      assertEquals(-1, measurements.get(1).getReading());
+      assertEquals(-1, measurements.get(1).getRatio(), 0);
+      assertFalse(measurements.get(1).isValid());
+      assertEquals(1, mapper.getMeasurements(2).size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldUseBoxedReadsOfOverridingTypeHandlers() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Measurement measurement = sqlSession.getMapper(Mapper.class).getOffsetMeasurement();
+      assertEquals(1001, measurement.getId());
+      assertEquals(10000000000L, measurement.getReading());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,153 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.sql_shape_cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SqlShapeCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/sql_shape_cache/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    // populate in-memory database
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/sql_shape_cache/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldReuseParsedSqlForRepeatedShapes() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.sql_shape_cache.Mapper.findUsers");
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("id", i);
+        List<User> users = mapper.findUsers(params);
+        assertEquals(1, users.size());
+        assertEquals("User" + i, users.get(0).getName());
+      }
+      assertEquals(1, ms.getSqlShapeCacheMisses());
+      assertEquals(2, ms.getSqlShapeCacheHits());
+
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put("name", "User2");
+      assertEquals(Integer.valueOf(2), mapper.findUsers(params).get(0).getId());
+      assertEquals(3, mapper.findUsers(new HashMap<String, Object>()).size());
+      assertEquals(3, ms.getSqlShapeCacheMisses());
+      assertEquals(2, ms.getSqlShapeCacheHits());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReuseParsedSqlForBeanItems() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.sql_shape_cache.Mapper.findUsersByExample");
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(2, mapper.findUsersByExample(Arrays.asList(new User(1), new User(3))).size());
+      assertEquals(2, mapper.findUsersByExample(Arrays.asList(new User(2), new User(3))).size());
+      assertEquals(1, ms.getSqlShapeCacheMisses());
+      assertEquals(1, ms.getSqlShapeCacheHits());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldEvictOneOffShapesForNewOnes() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.sql_shape_cache.Mapper.findUsersOrdered");
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      // more one-off shapes than the cache holds
+      String order = "id";
+      for (int i = 0; i < 40; i++) {
+        order = " " + order;
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("order", order);
+        params.put("name", "User1");
+        assertEquals(1, mapper.findUsersOrdered(params).size());
+      }
+      assertTrue(((DynamicSqlSource) ms.getSqlSource()).getShapeCacheSize() <= 16);
+      long misses = ms.getSqlShapeCacheMisses();
+      long hits = ms.getSqlShapeCacheHits();
+      for (int i = 0; i < 3; i++) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("order", "name");
+        params.put("name", "User2");
+        assertEquals(1, mapper.findUsersOrdered(params).size());
+      }
+      assertEquals(misses + 1, ms.getSqlShapeCacheMisses());
+      assertEquals(hits + 2, ms.getSqlShapeCacheHits());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotCacheShapesTypedByMapValues() {
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement("org.apache.ibatis.submitted.sql_shape_cache.Mapper.findUsersByMaps");
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+      Map<String, Object> row = new HashMap<String, Object>();
+      row.put("id", 1);
+      rows.add(row);
+      assertEquals(1, mapper.findUsersByMaps(rows).size());
+      row.put("id", "2");
+      assertEquals(Integer.valueOf(2), mapper.findUsersByMaps(rows).get(0).getId());
+      assertEquals(2, ms.getSqlShapeCacheMisses());
+      assertEquals(0, ms.getSqlShapeCacheHits());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
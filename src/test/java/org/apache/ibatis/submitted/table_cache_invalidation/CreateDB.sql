@@ -0,0 +1,37 @@
+--
+--    Copyright 2009-2014 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop view book_titles if exists;
+drop table books if exists;
+drop table authors if exists;
+
+create table authors (
+  id int primary key,
+  name varchar(20)
+);
+
+create table books (
+  id int primary key,
+  author_id int,
+  title varchar(40)
+);
+
+create view book_titles as select id, title from books;
+
+insert into authors (id, name) values (1, 'Author1');
+insert into books (id, author_id, title) values (1, 1, 'Book1');
+insert into books (id, author_id, title) values (2, 1, 'Book2');
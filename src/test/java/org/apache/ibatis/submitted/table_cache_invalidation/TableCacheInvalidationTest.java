@@ -0,0 +1,216 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache_invalidation;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.ibatis.StatementCounter;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TableCacheInvalidationTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+  private static int evaluations;
+
+  public static int evaluate() {
+    return ++evaluations;
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+  }
+
+  @Before
+  public void createTables() throws Exception {
+    // recreate the in-memory tables, the caches would not notice
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache_invalidation/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+    for (Cache cache : sqlSessionFactory.getConfiguration().getCaches()) {
+      cache.clear();
+    }
+    StatementCounter.reset();
+  }
+
+  @Test
+  public void shouldOnlyInvalidateResultsOfTheWrittenTable() {
+    readAll();
+    assertEquals(4, StatementCounter.getCount());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(BookMapper.class).insertBook(3, 1, "Book3");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    StatementCounter.reset();
+    sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("Author1", mapper.getAuthorName(1));
+      assertEquals(0, StatementCounter.getCount());
+      // the insert in the other namespace makes these stale, the view is declared to read books
+      assertEquals(3, mapper.countBooks(1));
+      assertEquals(Arrays.asList("Book1", "Book2", "Book3"), mapper.getTitles());
+      assertEquals("Book1", sqlSession.getMapper(BookMapper.class).getTitle(1));
+      assertEquals(3, StatementCounter.getCount());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepOtherTablesOfTheNamespace() {
+    readAll();
+    rename("Renamed", false);
+
+    StatementCounter.reset();
+    readAll();
+    assertEquals(1, StatementCounter.getCount());
+    assertEquals("Renamed", authorName());
+  }
+
+  @Test
+  public void shouldSeeOwnWritesBeforeCommit() {
+    readAll();
+    StatementCounter.reset();
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.renameAuthor(1, "Uncommitted");
+      assertEquals("Uncommitted", mapper.getAuthorName(1));
+      assertEquals(2, mapper.countBooks(1));
+      assertEquals(2, StatementCounter.getCount());
+      sqlSession.rollback();
+    } finally {
+      sqlSession.close();
+    }
+
+    StatementCounter.reset();
+    assertEquals("Author1", authorName());
+    assertEquals(0, StatementCounter.getCount());
+  }
+
+  @Test
+  public void shouldFlushTheNamespaceWhenTheTableIsUnknown() {
+    readAll();
+    rename("Renamed", true);
+
+    StatementCounter.reset();
+    readAll();
+    // everything in the namespace of the write, nothing in the other one
+    assertEquals(3, StatementCounter.getCount());
+    assertEquals("Renamed", authorName());
+  }
+
+  @Test
+  public void shouldTakeTheWrittenTableFromTheExecutedSql() {
+    readAll();
+    evaluations = 0;
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).renameAuthorDynamic(1, "Renamed");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+    // the dynamic sql ran once, for the statement only
+    assertEquals(1, evaluations);
+
+    StatementCounter.reset();
+    readAll();
+    assertEquals(1, StatementCounter.getCount());
+    assertEquals("Renamed", authorName());
+  }
+
+  @Test
+  public void shouldEvictTheLeastRecentlyUsedSqlTables() {
+    Map<String, String[]> sqlTables = sqlSessionFactory.getConfiguration()
+        .getMappedStatement(Mapper.class.getName() + ".getAuthorName").getSqlTables();
+    sqlTables.clear();
+    for (int i = 0; i < 100; i++) {
+      sqlTables.put("sql" + i, new String[] { "authors" });
+      sqlTables.get("sql0");
+    }
+    assertEquals(64, sqlTables.size());
+    assertTrue(sqlTables.containsKey("sql0"));
+    assertFalse(sqlTables.containsKey("sql1"));
+    assertTrue(sqlTables.containsKey("sql99"));
+    sqlTables.clear();
+  }
+
+  private void readAll() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getAuthorName(1);
+      assertEquals(2, mapper.countBooks(1));
+      assertEquals(2, mapper.getTitles().size());
+      assertEquals("Book1", sqlSession.getMapper(BookMapper.class).getTitle(1));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private String authorName() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getAuthorName(1);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private void rename(String name, boolean unparsed) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      if (unparsed) {
+        mapper.renameAuthorUnparsed(1, name);
+      } else {
+        mapper.renameAuthor(1, name);
+      }
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Blob;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+public class BlobInputStreamTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<InputStream> TYPE_HANDLER = new BlobInputStreamTypeHandler();
+  private static final TypeHandler<InputStream> SPILLING_TYPE_HANDLER = new BlobInputStreamTypeHandler(2, null);
+
+  @Mock
+  protected Blob blob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    TYPE_HANDLER.setParameter(ps, 1, new ByteArrayInputStream(new byte[] { 1, 2, 3 }), null);
+    verify(ps).setBinaryStream(Mockito.eq(1), Mockito.any(InputStream.class), Mockito.eq(3));
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(in);
+    assertSame(in, TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    when(cs.getBlob(1)).thenReturn(blob);
+    when(cs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(in);
+    assertSame(in, TYPE_HANDLER.getResult(cs, 1));
+  }
+
+  @Test
+  public void shouldSpillResultToTemporaryFile() throws Exception {
+    when(rs.getBlob("column")).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    SpooledInputStream spilled = (SpooledInputStream) SPILLING_TYPE_HANDLER.getResult(rs, "column");
+    assertTrue(spilled.isSpilled());
+    assertEquals(3, spilled.getLength());
+    assertEquals(1, spilled.read());
+    assertEquals(2, spilled.read());
+    assertEquals(3, spilled.read());
+    assertEquals(-1, spilled.read());
+    spilled.close();
+  }
+
+  @Test
+  public void shouldLeaveParameterOpenAndReleaseSpilledCopyOnceRead() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setLobSpillThreshold(2);
+    TypeHandler<InputStream> handler = configuration.getTypeHandlerRegistry().getTypeHandler(InputStream.class);
+    final boolean[] closed = new boolean[1];
+    InputStream parameter = new ByteArrayInputStream(new byte[] { 1, 2, 3 }) {
+      @Override
+      public void close() throws IOException {
+        closed[0] = true;
+      }
+    };
+    handler.setParameter(ps, 1, parameter, null);
+    ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+    verify(ps).setBinaryStream(Mockito.eq(1), content.capture(), Mockito.eq(3));
+    SpooledInputStream copy = (SpooledInputStream) content.getValue();
+    assertTrue(copy.isSpilled());
+    assertEquals(3, copy.read(new byte[8]));
+    assertEquals(-1, copy.read());
+    assertFalse(copy.isSpilled());
+    assertEquals(-1, copy.read());
+    assertFalse(closed[0]);
+  }
+
+  @Test
+  public void shouldReadSpillThresholdFromConfigurationWhenRun() throws Exception {
+    Configuration configuration = new Configuration();
+    TypeHandler<InputStream> handler = new BlobInputStreamTypeHandler(configuration);
+    InputStream in = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+    when(rs.getBlob(1)).thenReturn(blob);
+    when(rs.wasNull()).thenReturn(false);
+    when(blob.getBinaryStream()).thenReturn(in, new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+    assertSame(in, handler.getResult(rs, 1));
+    configuration.setLobSpillThreshold(2);
+    SpooledInputStream spilled = (SpooledInputStream) handler.getResult(rs, 1);
+    assertTrue(spilled.isSpilled());
+    spilled.close();
+  }
+
+}
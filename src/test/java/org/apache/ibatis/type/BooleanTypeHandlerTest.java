@@ -16,6 +16,7 @@
 package org.apache.ibatis.type;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,6 +25,7 @@ import org.junit.Test;
 public class BooleanTypeHandlerTest extends BaseTypeHandlerTest {
 
   private static final TypeHandler<Boolean> TYPE_HANDLER = new BooleanTypeHandler();
+  private static final PrimitiveBooleanTypeHandler PRIMITIVE_TYPE_HANDLER = new BooleanTypeHandler();
 
   @Test
   public void shouldSetParameter() throws Exception {
@@ -45,4 +47,16 @@ public class BooleanTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(true, TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldSetPrimitiveParameter() throws Exception {
+    PRIMITIVE_TYPE_HANDLER.setBoolean(ps, 1, true);
+    verify(ps).setBoolean(1, true);
+  }
+
+  @Test
+  public void shouldGetPrimitiveResultFromResultSet() throws Exception {
+    when(rs.getBoolean("column")).thenReturn(true);
+    assertTrue(PRIMITIVE_TYPE_HANDLER.getBoolean(rs, "column"));
+  }
+
+}
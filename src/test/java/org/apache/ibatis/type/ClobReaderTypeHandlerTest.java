@@ -0,0 +1,136 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.sql.Clob;
+
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+public class ClobReaderTypeHandlerTest extends BaseTypeHandlerTest {
+
+  private static final TypeHandler<Reader> TYPE_HANDLER = new ClobReaderTypeHandler();
+  private static final TypeHandler<Reader> SPILLING_TYPE_HANDLER = new ClobReaderTypeHandler(4, null);
+
+  @Mock
+  protected Clob clob;
+
+  @Test
+  public void shouldSetParameter() throws Exception {
+    TYPE_HANDLER.setParameter(ps, 1, new StringReader("Hello"), null);
+    verify(ps).setCharacterStream(Mockito.eq(1), Mockito.any(Reader.class), Mockito.eq(5));
+  }
+
+  @Test
+  public void shouldGetResultFromResultSet() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(rs.getClob("column")).thenReturn(clob);
+    when(rs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader);
+    assertSame(reader, TYPE_HANDLER.getResult(rs, "column"));
+  }
+
+  @Test
+  public void shouldGetResultFromCallableStatement() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(cs.getClob(1)).thenReturn(clob);
+    when(cs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader);
+    assertSame(reader, TYPE_HANDLER.getResult(cs, 1));
+  }
+
+  @Test
+  public void shouldSpillResultToTemporaryFile() throws Exception {
+    when(rs.getClob(1)).thenReturn(clob);
+    when(rs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(new StringReader("Hello"), new StringReader("Hi"));
+    SpooledReader spilled = (SpooledReader) SPILLING_TYPE_HANDLER.getResult(rs, 1);
+    assertTrue(spilled.isSpilled());
+    assertEquals(5, spilled.getLength());
+    assertEquals("Hello", new BufferedReader(spilled).readLine());
+    spilled.close();
+    SpooledReader small = (SpooledReader) SPILLING_TYPE_HANDLER.getResult(rs, 1);
+    assertFalse(small.isSpilled());
+    assertEquals("Hi", new BufferedReader(small).readLine());
+  }
+
+  @Test
+  public void shouldLeaveParameterOpenAndReleaseSpilledCopyOnceRead() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setLobSpillThreshold(2);
+    TypeHandler<Reader> handler = configuration.getTypeHandlerRegistry().getTypeHandler(Reader.class);
+    StringReader parameter = new StringReader("Hello");
+    handler.setParameter(ps, 1, parameter, null);
+    ArgumentCaptor<Reader> content = ArgumentCaptor.forClass(Reader.class);
+    verify(ps).setCharacterStream(Mockito.eq(1), content.capture(), Mockito.eq(5));
+    SpooledReader copy = (SpooledReader) content.getValue();
+    assertTrue(copy.isSpilled());
+    assertEquals("Hello", new BufferedReader(copy).readLine());
+    assertEquals(-1, copy.read());
+    assertFalse(copy.isSpilled());
+    assertEquals(-1, parameter.read());
+  }
+
+  @Test
+  public void shouldReadSpillThresholdFromConfigurationWhenRun() throws Exception {
+    Configuration configuration = new Configuration();
+    TypeHandler<Reader> handler = new ClobReaderTypeHandler(configuration);
+    Reader reader = new StringReader("Hello");
+    when(rs.getClob(1)).thenReturn(clob);
+    when(rs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader, new StringReader("Hello"));
+    assertSame(reader, handler.getResult(rs, 1));
+    configuration.setLobSpillThreshold(4);
+    SpooledReader spilled = (SpooledReader) handler.getResult(rs, 1);
+    assertTrue(spilled.isSpilled());
+    spilled.close();
+  }
+
+  @Test
+  public void shouldKeepHandlerRegisteredByUserWhenSpillSettingsChange() throws Exception {
+    Configuration configuration = new Configuration();
+    TypeHandler<Reader> custom = new ClobReaderTypeHandler(0, null);
+    configuration.getTypeHandlerRegistry().register(Reader.class, custom);
+    configuration.setLobSpillThreshold(4);
+    configuration.setLobSpillDirectory(System.getProperty("java.io.tmpdir"));
+    assertSame(custom, configuration.getTypeHandlerRegistry().getTypeHandler(Reader.class));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldCloseResultLocatorStreamAfterCopying() throws Exception {
+    Reader reader = new StringReader("Hello");
+    when(rs.getClob(1)).thenReturn(clob);
+    when(rs.wasNull()).thenReturn(false);
+    when(clob.getCharacterStream()).thenReturn(reader);
+    ((Reader) SPILLING_TYPE_HANDLER.getResult(rs, 1)).close();
+    reader.read();
+  }
+
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 public class DoubleTypeHandlerTest extends BaseTypeHandlerTest {
 
   private static final TypeHandler<Double> TYPE_HANDLER = new DoubleTypeHandler();
+  private static final PrimitiveDoubleTypeHandler PRIMITIVE_TYPE_HANDLER = new DoubleTypeHandler();
 
   @Test
   public void shouldSetParameter() throws Exception {
@@ -45,4 +46,16 @@ public class DoubleTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(new Double(100d), TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldSetPrimitiveParameter() throws Exception {
+    PRIMITIVE_TYPE_HANDLER.setDouble(ps, 1, 100d);
+    verify(ps).setDouble(1, 100d);
+  }
+
+  @Test
+  public void shouldGetPrimitiveResultFromResultSet() throws Exception {
+    when(rs.getDouble("column")).thenReturn(100d);
+    assertEquals(100d, PRIMITIVE_TYPE_HANDLER.getDouble(rs, "column"), 0);
+  }
+
+}
@@ -24,6 +24,7 @@ import org.junit.Test;
 public class IntegerTypeHandlerTest extends BaseTypeHandlerTest {
 
   private static final TypeHandler<Integer> TYPE_HANDLER = new IntegerTypeHandler();
+  private static final PrimitiveIntTypeHandler PRIMITIVE_TYPE_HANDLER = new IntegerTypeHandler();
 
   @Test
   public void shouldSetParameter() throws Exception {
@@ -45,4 +46,16 @@ public class IntegerTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(new Integer(100), TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldSetPrimitiveParameter() throws Exception {
+    PRIMITIVE_TYPE_HANDLER.setInt(ps, 1, 100);
+    verify(ps).setInt(1, 100);
+  }
+
+  @Test
+  public void shouldGetPrimitiveResultFromResultSet() throws Exception {
+    when(rs.getInt("column")).thenReturn(100);
+    assertEquals(100, PRIMITIVE_TYPE_HANDLER.getInt(rs, "column"));
+  }
+
+}
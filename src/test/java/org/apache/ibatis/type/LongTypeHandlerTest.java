@@ -24,6 +24,7 @@ import org.junit.Test;
 public class LongTypeHandlerTest extends BaseTypeHandlerTest {
 
   private static final TypeHandler<Long> TYPE_HANDLER = new LongTypeHandler();
+  private static final PrimitiveLongTypeHandler PRIMITIVE_TYPE_HANDLER = new LongTypeHandler();
 
   @Test
   public void shouldSetParameter() throws Exception {
@@ -45,4 +46,16 @@ public class LongTypeHandlerTest extends BaseTypeHandlerTest {
     assertEquals(new Long(100l), TYPE_HANDLER.getResult(cs, 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  public void shouldSetPrimitiveParameter() throws Exception {
+    PRIMITIVE_TYPE_HANDLER.setLong(ps, 1, 100L);
+    verify(ps).setLong(1, 100L);
+  }
+
+  @Test
+  public void shouldGetPrimitiveResultFromResultSet() throws Exception {
+    when(rs.getLong("column")).thenReturn(100L);
+    assertEquals(100L, PRIMITIVE_TYPE_HANDLER.getLong(rs, "column"));
+  }
+
+}
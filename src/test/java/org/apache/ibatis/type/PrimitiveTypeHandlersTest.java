@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2009-2014 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+public class PrimitiveTypeHandlersTest {
+
+  @Test
+  public void shouldUsePrimitiveMethodsOfBuiltInHandlers() {
+    assertEquals(int.class, PrimitiveTypeHandlers.getReadType(new IntegerTypeHandler()));
+    assertEquals(long.class, PrimitiveTypeHandlers.getReadType(new LongTypeHandler()));
+    assertEquals(double.class, PrimitiveTypeHandlers.getReadType(new DoubleTypeHandler()));
+    assertEquals(boolean.class, PrimitiveTypeHandlers.getWriteType(new BooleanTypeHandler()));
+    assertNull(PrimitiveTypeHandlers.getReadType(new StringTypeHandler()));
+    assertNull(PrimitiveTypeHandlers.getWriteType(new FloatTypeHandler()));
+  }
+
+  @Test
+  public void shouldNotBypassOverriddenBoxedMethods() {
+    assertNull(PrimitiveTypeHandlers.getReadType(new BoxedReadHandler()));
+    assertEquals(int.class, PrimitiveTypeHandlers.getWriteType(new BoxedReadHandler()));
+    assertEquals(int.class, PrimitiveTypeHandlers.getReadType(new BoxedWriteHandler()));
+    assertNull(PrimitiveTypeHandlers.getWriteType(new BoxedWriteHandler()));
+    assertEquals(int.class, PrimitiveTypeHandlers.getReadType(new OverridingHandler()));
+  }
+
+  public static class BoxedReadHandler extends IntegerTypeHandler {
+    @Override
+    public Integer getNullableResult(ResultSet rs, String columnName) throws SQLException {
+      return super.getNullableResult(rs, columnName);
+    }
+  }
+
+  public static class BoxedWriteHandler extends IntegerTypeHandler {
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, Integer parameter, JdbcType jdbcType) throws SQLException {
+      super.setNonNullParameter(ps, i, parameter, jdbcType);
+    }
+  }
+
+  public static class OverridingHandler extends BoxedReadHandler {
+    @Override
+    public int getInt(ResultSet rs, String columnName) throws SQLException {
+      return super.getInt(rs, columnName);
+    }
+
+    @Override
+    public int getInt(ResultSet rs, int columnIndex) throws SQLException {
+      return super.getInt(rs, columnIndex);
+    }
+  }
+
+}
@@ -20,6 +20,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
@@ -122,6 +126,21 @@ public class TypeHandlerRegistryTest {
     assertSame(fakeHandler, typeHandlerRegistry.getTypeHandler(new TypeReference<List<URI>>(){}));
   }
 
+  @Test
+  public void shouldRetrieveLobTypeHandlerForSubclasses() {
+    assertSame(typeHandlerRegistry.getTypeHandler(Reader.class), typeHandlerRegistry.getTypeHandler(StringReader.class));
+    assertSame(typeHandlerRegistry.getTypeHandler(InputStream.class), typeHandlerRegistry.getTypeHandler(ByteArrayInputStream.class));
+    assertSame(ClobReaderTypeHandler.class, typeHandlerRegistry.getTypeHandler(StringReader.class).getClass());
+  }
+
+  @Test
+  public void shouldOnlyTreatExactBuiltInHandlerClassesAsBuiltIn() {
+    assertTrue(typeHandlerRegistry.isBuiltInTypeHandler(typeHandlerRegistry.getTypeHandler(Integer.class)));
+    assertTrue(typeHandlerRegistry.isBuiltInTypeHandler(new EnumTypeHandler<JdbcType>(JdbcType.class)));
+    assertFalse(typeHandlerRegistry.isBuiltInTypeHandler(new IntegerTypeHandler() {
+    }));
+  }
+
   @Ignore("see https://github.com/mybatis/mybatis-3/issues/165")
   @Test
   public void shouldBindHandlersToWrapersAndPrimitivesIndividually() {